@@ -1,6 +1,6 @@
 #version 400 core
-const int MAX_POINT_LIGHTS = 5;
-const int MAX_SPOT_LIGHTS = 5;
+const int MAX_POINT_LIGHTS = 64;
+const int MAX_SPOT_LIGHTS = 64;
 
 in vec2 fragTextureCoord;
 in vec3 fragNormal;
@@ -14,6 +14,7 @@ struct Material {
   vec4 specular;
   int hasTexture;
   float reflectance;
+  int layer;
 };
 
 struct DirectionalLight {
@@ -38,12 +39,27 @@ struct SpotLight {
 };
 
 uniform sampler2D textureSampler;
-uniform vec3 ambientLight;
+uniform sampler2DArray textureArraySampler;
+#ifdef INDIRECT
+// Indirect draws read their material from one record per model, std430 packs each into 64 bytes.
+flat in int fragMaterial;
+layout(std430, binding = 1) readonly buffer Materials {
+  Material materials[];
+};
+#else
 uniform Material material;
-uniform float specularPower;
-uniform DirectionalLight directionalLight;
-uniform PointLight pointLights[MAX_POINT_LIGHTS];
-uniform SpotLight spotLights[MAX_SPOT_LIGHTS];
+#endif
+// Written once per frame by FrameUniforms and shared by every program; only the first
+// pointLightCount and spotLightCount lights are set.
+layout(std140) uniform Lights {
+  vec3 ambientLight;
+  float specularPower;
+  DirectionalLight directionalLight;
+  int pointLightCount;
+  int spotLightCount;
+  PointLight pointLights[MAX_POINT_LIGHTS];
+  SpotLight spotLights[MAX_SPOT_LIGHTS];
+};
 
 vec4 ambientC;
 vec4 diffuseC;
@@ -51,7 +67,10 @@ vec4 specularC;
 
 void setupColors(Material material, vec2 textureCoord) {
   if (material.hasTexture == 1) {
-    ambientC = texture(textureSampler, textureCoord);
+    if (material.layer >= 0)
+      ambientC = texture(textureArraySampler, vec3(textureCoord, material.layer));
+    else
+      ambientC = texture(textureSampler, textureCoord);
     diffuseC = ambientC;
     specularC = ambientC;
   } else {
@@ -107,17 +126,21 @@ vec4 calcDirectionalLight(DirectionalLight light, vec3 position, vec3 normal) {
 }
 
 void main() {
+#ifdef INDIRECT
+  setupColors(materials[fragMaterial], fragTextureCoord);
+#else
   setupColors(material, fragTextureCoord);
+#endif
   vec4 diffuseSpecularColorComp = calcDirectionalLight(directionalLight, fragPos, fragNormal);
 
-  for (int i = 0; i < MAX_POINT_LIGHTS; i++) {
+  for (int i = 0; i < pointLightCount; i++) {
     if (pointLights[i].intensity > 0) {
       diffuseSpecularColorComp += calcPointLight(pointLights[i], fragPos, fragNormal);
     }
   }
 
-  for (int i = 0; i < MAX_SPOT_LIGHTS; i++) {
-    if (spotLights[i].pl.intensity > 0) { // Fix variable name
+  for (int i = 0; i < spotLightCount; i++) {
+    if (spotLights[i].pl.intensity > 0) {
       diffuseSpecularColorComp += calcSpotLight(spotLights[i], fragPos, fragNormal);
     }
   }
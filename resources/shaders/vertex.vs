@@ -1,23 +1,41 @@
 #version 400 core
 
-in vec3 position;
-in vec2 textureCoord;
-in vec3 normal;
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoord;
+layout(location = 2) in vec3 normal;
 
 out vec2 fragTextureCoord;
 out vec3 fragNormal;
 out vec3 fragPos;
 
 uniform mat4 transformationMatrix;
-uniform mat4 projectionMatrix;
-uniform mat4 viewMatrix;
+// Written once per frame by FrameUniforms and shared by every program.
+layout(std140) uniform Camera {
+    mat4 projectionMatrix;
+    mat4 viewMatrix;
+};
+
+// Quantized positions are normalized to the model bounds; float positions use scale 1 and offset 0.
+uniform vec3 positionScale;
+uniform vec3 positionOffset;
+// Set when the normal attribute holds the two octahedral components of the normal.
+uniform int octNormals;
+
+vec3 octDecode(vec2 e) {
+    vec3 n = vec3(e, 1.0 - abs(e.x) - abs(e.y));
+    float t = max(-n.z, 0.0);
+    n.x += n.x >= 0.0 ? -t : t;
+    n.y += n.y >= 0.0 ? -t : t;
+    return n;
+}
 
 void main() {
-    vec4 worldPos=transformationMatrix * vec4(position, 1.0);
+    vec4 worldPos=transformationMatrix * vec4(position * positionScale + positionOffset, 1.0);
         gl_Position = projectionMatrix * viewMatrix * worldPos;   // Order is very important here
 
-    fragNormal=normalize(worldPos.xyz);
+    vec3 modelNormal = octNormals != 0 ? octDecode(normal.xy) : normal;
+    fragNormal=normalize(mat3(transformationMatrix) * modelNormal);
     fragPos=worldPos.xyz;
     fragTextureCoord = textureCoord;
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+#version 460 core
+
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoord;
+layout(location = 2) in vec3 normal;
+
+out vec2 fragTextureCoord;
+out vec3 fragNormal;
+out vec3 fragPos;
+flat out int fragMaterial;
+
+// One record per drawn entity, written by the CPU every frame; std430 packs each into 48 bytes.
+struct Draw {
+    // Quantized positions are normalized to the model bounds; float positions use scale 1 and offset 0.
+    vec3 positionScale;
+    int material;
+    vec3 positionOffset;
+    // Set when the normal attribute holds the two octahedral components of the normal.
+    int octNormals;
+    // The slot of a retained entity's model matrix, or the complement of the index of the
+    // matrix of an entity processed this frame.
+    int transform;
+};
+
+layout(std430, binding = 0) readonly buffer Draws {
+    Draw draws[];
+};
+
+// The model matrices of the retained entities, only rewritten for the entities that moved.
+layout(std430, binding = 2) readonly buffer Transforms {
+    mat4 transforms[];
+};
+
+// The model matrices of the entities processed this frame.
+layout(std430, binding = 3) readonly buffer DynamicTransforms {
+    mat4 dynamicTransforms[];
+};
+
+// Written once per frame by FrameUniforms and shared by every program.
+layout(std140) uniform Camera {
+    mat4 projectionMatrix;
+    mat4 viewMatrix;
+};
+
+vec3 octDecode(vec2 e) {
+    vec3 n = vec3(e, 1.0 - abs(e.x) - abs(e.y));
+    float t = max(-n.z, 0.0);
+    n.x += n.x >= 0.0 ? -t : t;
+    n.y += n.y >= 0.0 ? -t : t;
+    return n;
+}
+
+void main() {
+    // Each indirect command's base instance is the index of its first entity's record.
+    Draw draw = draws[gl_BaseInstance + gl_InstanceID];
+    mat4 modelMatrix = draw.transform >= 0 ? transforms[draw.transform] : dynamicTransforms[~draw.transform];
+    vec4 worldPos = modelMatrix * vec4(position * draw.positionScale + draw.positionOffset, 1.0);
+    gl_Position = projectionMatrix * viewMatrix * worldPos;
+
+    vec3 modelNormal = draw.octNormals != 0 ? octDecode(normal.xy) : normal;
+    fragNormal = normalize(mat3(modelMatrix) * modelNormal);
+    fragPos = worldPos.xyz;
+    fragTextureCoord = textureCoord;
+    fragMaterial = draw.material;
+}
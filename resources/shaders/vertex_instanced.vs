@@ -0,0 +1,54 @@
+#version 400 core
+
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec2 textureCoord;
+layout(location = 2) in vec3 normal;
+// Where the model matrix of each instance is, advanced once per instance: the slot of a retained
+// entity, or the complement of the index of the matrix of an entity processed this frame.
+layout(location = 3) in int instanceTransform;
+
+out vec2 fragTextureCoord;
+out vec3 fragNormal;
+out vec3 fragPos;
+
+// Written once per frame by FrameUniforms and shared by every program.
+layout(std140) uniform Camera {
+    mat4 projectionMatrix;
+    mat4 viewMatrix;
+};
+
+// Quantized positions are normalized to the model bounds; float positions use scale 1 and offset 0.
+uniform vec3 positionScale;
+uniform vec3 positionOffset;
+// Set when the normal attribute holds the two octahedral components of the normal.
+uniform int octNormals;
+// The model matrices of the retained entities, only rewritten for the entities that moved, and of
+// the entities processed this frame, four texels each.
+uniform samplerBuffer transforms;
+uniform samplerBuffer dynamicTransforms;
+
+mat4 fetchMatrix(samplerBuffer matrices, int index) {
+    return mat4(texelFetch(matrices, index * 4), texelFetch(matrices, index * 4 + 1),
+                texelFetch(matrices, index * 4 + 2), texelFetch(matrices, index * 4 + 3));
+}
+
+vec3 octDecode(vec2 e) {
+    vec3 n = vec3(e, 1.0 - abs(e.x) - abs(e.y));
+    float t = max(-n.z, 0.0);
+    n.x += n.x >= 0.0 ? -t : t;
+    n.y += n.y >= 0.0 ? -t : t;
+    return n;
+}
+
+void main() {
+    mat4 modelMatrix = instanceTransform >= 0 ? fetchMatrix(transforms, instanceTransform)
+                                              : fetchMatrix(dynamicTransforms, ~instanceTransform);
+    vec4 worldPos=modelMatrix * vec4(position * positionScale + positionOffset, 1.0);
+        gl_Position = projectionMatrix * viewMatrix * worldPos;   // Order is very important here
+
+    vec3 modelNormal = octNormals != 0 ? octDecode(normal.xy) : normal;
+    fragNormal=normalize(mat3(modelMatrix) * modelNormal);
+    fragPos=worldPos.xyz;
+    fragTextureCoord = textureCoord;
+
+}
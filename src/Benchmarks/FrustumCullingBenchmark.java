@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import Core.Culling.FrustumCuller;
+import Core.Utils.Constants;
+import org.joml.Matrix4f;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The FrustumCullingBenchmark class measures {@link FrustumCuller} on random bounding spheres
+ * spread through a cube around a camera that turns a little every frame, the way
+ * {@code RenderManager} uses it: the spheres are added again and the frustum is set before each
+ * cull. Adding and culling are timed separately.
+ * <p>
+ * Usage: {@code FrustumCullingBenchmark [spheres] [frames]}, defaulting to 1,000,000 spheres and 200 frames.
+ */
+public class FrustumCullingBenchmark {
+
+    private static final int WARMUP = 50;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional sphere and frame counts.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Random random = new Random(1);
+        float extent = Constants.Z_FAR;
+        float[] x = new float[count], y = new float[count], z = new float[count], r = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = (random.nextFloat() * 2 - 1) * extent;
+            y[i] = (random.nextFloat() * 2 - 1) * extent;
+            z[i] = (random.nextFloat() * 2 - 1) * extent;
+            r[i] = 0.5f + random.nextFloat() * 4;
+        }
+
+        FrustumCuller culler = new FrustumCuller();
+        Matrix4f projection = new Matrix4f().setPerspective(Constants.FOV, 16f / 9f, Constants.Z_NEAR, Constants.Z_FAR);
+        Matrix4f projectionView = new Matrix4f();
+        long addTime = 0, cullTime = 0, bestCull = Long.MAX_VALUE;
+        long visible = 0;
+        for (int frame = 0; frame < WARMUP + frames; frame++) {
+            long start = System.nanoTime();
+            culler.clear();
+            for (int i = 0; i < count; i++)
+                culler.add(x[i], y[i], z[i], r[i]);
+            long added = System.nanoTime();
+            culler.setFrustum(projectionView.set(projection).rotateY((float) Math.toRadians(frame)));
+            visible += culler.cull();
+            long culled = System.nanoTime();
+            if (frame >= WARMUP) {
+                addTime += added - start;
+                cullTime += culled - added;
+                bestCull = Math.min(bestCull, culled - added);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%d spheres, %d frames, %.1f%% visible%n", count, frames,
+                100.0 * visible / ((long) count * (WARMUP + frames)));
+        System.out.printf(Locale.ROOT, "add   %8.3f ms/frame%n", addTime / 1e6 / frames);
+        System.out.printf(Locale.ROOT, "cull  %8.3f ms/frame (best %.3f ms, %.1f M spheres/s)%n",
+                cullTime / 1e6 / frames, bestCull / 1e6, count / (cullTime / 1e9 / frames) / 1e6);
+    }
+}
@@ -0,0 +1,113 @@
+package Benchmarks;
+
+import Core.Entities.Entity;
+import Core.Entities.Model;
+import Core.Lightning.DirectionalLight;
+import Core.Lightning.PointLight;
+import Core.Lightning.SpotLight;
+import Core.Managers.Camera;
+import Core.Managers.ObjectLoader;
+import Core.Managers.RenderManager;
+import Core.Managers.WindowManager;
+import org.joml.Vector3f;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The InstancingBenchmark class draws a field of cubes in front of the camera, every cube
+ * inside the view frustum, once with one draw call per entity, once with the instanced path of
+ * {@link RenderManager} and, where OpenGL 4.6 is available, once with its multi-draw-indirect
+ * path, and reports the draw calls and the frame time. The CPU time covers
+ * {@code processEntity} for every cube and {@code render}; the total also waits for the GPU with
+ * {@code glFinish}.
+ * <p>
+ * Usage: {@code InstancingBenchmark [count...]}, defaulting to 10,000 and 100,000 cubes.
+ * Needs an OpenGL 3.3 capable display.
+ */
+public class InstancingBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int FRAMES = 100;
+    private static final String[] MODES = {"per entity", "instanced", "indirect"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional cube counts.
+     * @throws Exception If the window, the shaders or the cube model cannot be created.
+     */
+    public static void main(String[] args) throws Exception {
+        int[] counts = args.length > 0 ? new int[args.length] : new int[]{10_000, 100_000};
+        for (int i = 0; i < args.length; i++)
+            counts[i] = Integer.parseInt(args[i]);
+
+        WindowManager window = new WindowManager("InstancingBenchmark", 1280, 720, false);
+        window.init();
+        GLFW.glfwSwapInterval(0);
+        ObjectLoader loader = new ObjectLoader();
+        RenderManager renderer = new RenderManager(window);
+        renderer.init();
+        try {
+            Model cube = loader.loadOBJModel("/models/cube.obj");
+            Camera camera = new Camera();
+            DirectionalLight light = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(-1, -10, 0), 1);
+            PointLight[] pointLights = new PointLight[0];
+            SpotLight[] spotLights = new SpotLight[0];
+
+            System.out.println("cubes      mode          draw calls   cpu ms/frame   total ms/frame");
+            for (int count : counts) {
+                List<Entity> entities = createField(cube, count);
+                for (int mode = 0; mode < MODES.length; mode++) {
+                    renderer.setInstancing(mode == 1);
+                    renderer.setIndirect(mode == 2);
+                    if (mode == 2 && !renderer.isIndirect())
+                        continue;
+                    long cpu = 0, total = 0;
+                    for (int frame = 0; frame < WARMUP + FRAMES; frame++) {
+                        long start = System.nanoTime();
+                        for (Entity entity : entities)
+                            renderer.processEntity(entity);
+                        renderer.render(camera, light, pointLights, spotLights);
+                        long submitted = System.nanoTime();
+                        GL11.glFinish();
+                        long finished = System.nanoTime();
+                        window.update();
+                        if (frame >= WARMUP) {
+                            cpu += submitted - start;
+                            total += finished - start;
+                        }
+                    }
+                    System.out.printf(Locale.ROOT, "%-10d %-13s %10d %14.2f %16.2f%n", count,
+                            MODES[mode], renderer.getDrawCalls(),
+                            cpu / 1e6 / FRAMES, total / 1e6 / FRAMES);
+                }
+            }
+        } finally {
+            renderer.cleanup();
+            loader.cleanup();
+            window.cleanup();
+            GLFW.glfwTerminate();
+        }
+    }
+
+    /**
+     * Scatters cubes through a box in front of the camera, well inside the view frustum.
+     */
+    private static List<Entity> createField(Model cube, int count) {
+        Random random = new Random(1);
+        List<Entity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float z = -20 - random.nextFloat() * 180;
+            float x = (random.nextFloat() * 2 - 1) * -z * 0.5f;
+            float y = (random.nextFloat() * 2 - 1) * -z * 0.3f;
+            entities.add(new Entity(cube, new Vector3f(x, y, z),
+                    new Vector3f(random.nextFloat() * 180, random.nextFloat() * 180, 0), 0.5f));
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,99 @@
+package Benchmarks;
+
+import Core.Managers.ObjectLoader;
+import Core.Meshes.CompiledMesh;
+import Core.Meshes.MeshCache;
+import Core.Utils.ResourceBuffer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * The MeshCacheBenchmark class measures the CPU time to get a scene of 50 models ready for upload:
+ * parsing every OBJ file, a cold start where every load misses an empty {@link MeshCache} and
+ * compiles and writes its file, and a warm start that maps the compiled files. The scene repeats
+ * a few models, so the cache directory is emptied, outside the timing, before each cold load;
+ * otherwise all but the first load of each model would be hits. The GL upload itself is the
+ * same {@code glBufferData} call in every case and is not part of the measurement.
+ */
+public class MeshCacheBenchmark {
+
+    private static final String[] MODELS = {"/models/cube.obj", "/models/bunny.obj", "/models/alligator.obj"};
+    private static final int SCENE_SIZE = 50;
+
+    /**
+     * Runs the benchmark and prints the timings of the three start-up paths.
+     *
+     * @param args Unused.
+     * @throws Exception If a model or cache file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        ObjectLoader loader = new ObjectLoader();
+        Path directory = Files.createTempDirectory("meshcache");
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < SCENE_SIZE; i++) {
+                try (ResourceBuffer source = ResourceBuffer.open(MODELS[i % MODELS.length])) {
+                    loader.compileOBJ(source.getBuffer());
+                }
+            }
+            report("parse every model", System.nanoTime() - start, null);
+
+            MeshCache cold = new MeshCache(directory);
+            long time = 0, bytes = 0;
+            for (int i = 0; i < SCENE_SIZE; i++) {
+                clear(directory);
+                start = System.nanoTime();
+                bytes += load(loader, cold, i);
+                time += System.nanoTime() - start;
+            }
+            check(bytes);
+            report("cold cache", time, cold);
+
+            // Cache every model again, since the cold loads only left the last one on disk.
+            MeshCache fill = new MeshCache(directory);
+            for (int i = 0; i < MODELS.length; i++)
+                load(loader, fill, i);
+            MeshCache warm = new MeshCache(directory);
+            bytes = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < SCENE_SIZE; i++)
+                bytes += load(loader, warm, i);
+            time = System.nanoTime() - start;
+            check(bytes);
+            report("warm cache", time, warm);
+        } finally {
+            clear(directory);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static long load(ObjectLoader loader, MeshCache cache, int index) throws Exception {
+        CompiledMesh mesh = cache.load(MODELS[index % MODELS.length], loader::compileOBJ);
+        return mesh.getPositions().remaining() + mesh.getIndices().remaining();
+    }
+
+    private static void check(long bytes) {
+        if (bytes == 0)
+            throw new IllegalStateException("Scene is empty");
+    }
+
+    /**
+     * Deletes everything inside a directory, keeping the directory itself.
+     */
+    private static void clear(Path directory) throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).filter(path -> !path.equals(directory))
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void report(String name, long nanos, MeshCache cache) {
+        double ms = nanos / 1e6;
+        String counts = cache != null ? String.format(Locale.ROOT, "   hits %d, misses %d", cache.getHits(), cache.getMisses()) : "";
+        System.out.printf(Locale.ROOT, "%-18s %8.2f ms%s%n", name, ms, counts);
+    }
+}
@@ -0,0 +1,123 @@
+package Benchmarks;
+
+import Core.Managers.ObjectLoader;
+import Core.Meshes.MeshData;
+import Core.Meshes.MeshOptimizer;
+import Core.Meshes.MeshSimplifier;
+import Core.Meshes.MeshWelder;
+import Core.Meshes.ObjData;
+import Core.Meshes.ObjParser;
+import Core.Meshes.VertexLayout;
+import Core.Meshes.VertexQuantizer;
+import Core.Utils.Constants;
+import Core.Utils.ResourceBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Locale;
+
+/**
+ * The MeshReport class prints import statistics for OBJ models: how many vertices the mesh needs
+ * unindexed (one per corner), indexed by position (the original loader), and after welding
+ * identical position/texture coordinate/normal triples, followed by the simulated post-transform
+ * cache efficiency (ACMR and ATVR, see {@link MeshOptimizer}) of the file order and of the
+ * optimized order, and the triangle counts of the generated levels of detail. A second table
+ * compares the GPU memory of each model, as compiled by {@link ObjectLoader#compileOBJ}, in the
+ * separate float layout and the interleaved quantized layout (see {@link VertexQuantizer}),
+ * together with the largest position and normal error the quantization introduces.
+ * <p>
+ * Usage: {@code MeshReport [model...]}, defaulting to the bundled models.
+ */
+public class MeshReport {
+
+    private static final String[] MODELS = {"/models/cube.obj", "/models/bunny.obj", "/models/alligator.obj"};
+
+    /**
+     * Prints one line of statistics per model.
+     *
+     * @param args Optional resource names or paths of the models to report on.
+     * @throws Exception If a model cannot be read.
+     */
+    public static void main(String[] args) throws Exception {
+        String[] models = args.length > 0 ? args : MODELS;
+        System.out.println("model                   triangles   corners  by position   welded   split positions"
+                + "   ACMR before  after   ATVR before  after   LOD triangles");
+        for (String model : models) {
+            ObjData obj;
+            try (ResourceBuffer resource = ResourceBuffer.open(model)) {
+                obj = ObjParser.parse(resource.getBuffer());
+            }
+            MeshWelder welder = new MeshWelder();
+            MeshData mesh = welder.weld(obj);
+            MeshData optimized = MeshOptimizer.optimize(mesh);
+            MeshData lods = MeshSimplifier.buildLodChain(mesh, Constants.LOD_RATIOS);
+            StringBuilder levels = new StringBuilder();
+            for (int level = 0; level < lods.getLodCount(); level++)
+                levels.append(level == 0 ? "" : "/").append(lods.getLodIndices(level).length / 3);
+            System.out.printf(Locale.ROOT, "%-22s %10d %9d %12d %8d %17d %13.3f %6.3f %13.3f %6.3f   %s%n", model,
+                    mesh.getTriangleCount(), welder.getCornerCount(), welder.getPositionCount(), welder.getVertexCount(),
+                    welder.getSplitPositionCount(),
+                    MeshOptimizer.acmr(mesh.getIndices(), mesh.getVertexCount()),
+                    MeshOptimizer.acmr(optimized.getIndices(), optimized.getVertexCount()),
+                    MeshOptimizer.atvr(mesh.getIndices(), mesh.getVertexCount()),
+                    MeshOptimizer.atvr(optimized.getIndices(), optimized.getVertexCount()), levels);
+        }
+
+        System.out.println();
+        System.out.println("model                   vertices   indices   separate KB  quantized KB   index KB"
+                + "   max position error   max normal error (deg)");
+        ObjectLoader loader = new ObjectLoader();
+        for (String model : models) {
+            MeshData mesh;
+            try (ResourceBuffer resource = ResourceBuffer.open(model)) {
+                mesh = loader.compileOBJ(resource.getBuffer());
+            }
+            int vertices = mesh.getVertexCount();
+            float[] bounds = mesh.computeBounds();
+            ByteBuffer quantized = ByteBuffer.allocate(vertices * VertexQuantizer.BYTES_PER_VERTEX);
+            VertexQuantizer.encode(FloatBuffer.wrap(mesh.getPositions()), FloatBuffer.wrap(mesh.getTextureCoords()),
+                    FloatBuffer.wrap(mesh.getNormals()), bounds, quantized);
+            float[] errors = quantizationErrors(mesh, bounds, quantized.flip());
+            System.out.printf(Locale.ROOT, "%-22s %9d %9d %13.1f %13.1f %10.1f %20.6f %24.3f%n", model, vertices,
+                    mesh.getIndices().length,
+                    vertices * VertexLayout.SEPARATE.getBytesPerVertex() / 1024f,
+                    vertices * VertexLayout.QUANTIZED.getBytesPerVertex() / 1024f,
+                    mesh.getIndices().length * Integer.BYTES / 1024f, errors[0], errors[1]);
+        }
+    }
+
+    /**
+     * Decodes quantized vertices the way the vertex shader does and measures the largest
+     * position distance and normal angle to the float attributes.
+     */
+    private static float[] quantizationErrors(MeshData mesh, float[] bounds, ByteBuffer quantized) {
+        float[] scale = VertexQuantizer.positionScale(bounds);
+        float[] positions = mesh.getPositions();
+        float[] normals = mesh.getNormals();
+        float maxPosition = 0, maxAngle = 0;
+        for (int v = 0; v < mesh.getVertexCount(); v++) {
+            int base = v * VertexQuantizer.BYTES_PER_VERTEX;
+            float distance = 0;
+            for (int k = 0; k < 3; k++) {
+                float decoded = (quantized.getShort(base + VertexQuantizer.POSITION_OFFSET + k * 2) & 0xffff) / 65535f * scale[k] + bounds[k];
+                distance += (decoded - positions[v * 3 + k]) * (decoded - positions[v * 3 + k]);
+            }
+            maxPosition = Math.max(maxPosition, (float) Math.sqrt(distance));
+
+            float nx = normals[v * 3], ny = normals[v * 3 + 1], nz = normals[v * 3 + 2];
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0)
+                continue;
+            float ex = Math.max(quantized.getShort(base + VertexQuantizer.NORMAL_OFFSET) / 32767f, -1);
+            float ey = Math.max(quantized.getShort(base + VertexQuantizer.NORMAL_OFFSET + 2) / 32767f, -1);
+            float ez = 1 - Math.abs(ex) - Math.abs(ey);
+            float t = Math.max(-ez, 0);
+            ex += ex >= 0 ? -t : t;
+            ey += ey >= 0 ? -t : t;
+            float decodedLength = (float) Math.sqrt(ex * ex + ey * ey + ez * ez);
+            float cos = (ex * nx + ey * ny + ez * nz) / (decodedLength * length);
+            maxAngle = Math.max(maxAngle, (float) Math.toDegrees(Math.acos(Math.min(cos, 1))));
+        }
+        return new float[]{maxPosition, maxAngle};
+    }
+}
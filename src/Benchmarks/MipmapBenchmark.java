@@ -0,0 +1,62 @@
+package Benchmarks;
+
+import Core.Textures.ImageData;
+import Core.Textures.MipmapGenerator;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The MipmapBenchmark class measures the throughput of {@link MipmapGenerator} on a noisy image
+ * for a growing number of threads, in megapixels of level 0 per second. Each thread count runs
+ * a few warm-up passes before the timed ones.
+ * <p>
+ * Usage: {@code MipmapBenchmark [size] [maxThreads]}, defaulting to a 4096x4096 image and up to
+ * twice the number of available processors.
+ */
+public class MipmapBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional image edge length and largest thread count.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors() * 2;
+        ImageData image = ImageData.allocate(size, size);
+        ByteBuffer pixels = image.getPixels();
+        Random random = new Random(1);
+        for (int i = 0; i < size * size * 4; i++)
+            pixels.put(i, (byte) random.nextInt(256));
+
+        System.out.printf(Locale.ROOT, "%dx%d, %d processors%n", size, size, Runtime.getRuntime().availableProcessors());
+        System.out.println("threads   best ms     MP/s   speedup");
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            MipmapGenerator generator = new MipmapGenerator(pool);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < WARMUP + RUNS; run++) {
+                long start = System.nanoTime();
+                ImageData[] chain = generator.generate(image);
+                long time = System.nanoTime() - start;
+                for (ImageData level : chain)
+                    level.free();
+                if (run >= WARMUP)
+                    best = Math.min(best, time);
+            }
+            pool.shutdown();
+            double megapixels = (double) size * size / 1e6 / (best / 1e9);
+            if (threads == 1)
+                single = megapixels;
+            System.out.printf(Locale.ROOT, "%7d %9.1f %8.1f %8.2fx%n", threads, best / 1e6, megapixels, megapixels / single);
+        }
+        image.free();
+    }
+}
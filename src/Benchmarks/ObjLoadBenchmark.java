@@ -0,0 +1,198 @@
+package Benchmarks;
+
+import Core.Meshes.MeshData;
+import Core.Meshes.MeshWelder;
+import Core.Meshes.ObjParser;
+import Core.Utils.ResourceBuffer;
+import Core.Utils.Utils;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ObjLoadBenchmark class compares the byte-scanning {@link ObjParser} and {@link MeshWelder}
+ * with the original line-splitting OBJ path on the bundled models and on a synthetic grid model.
+ * It runs on the CPU only and does not need an OpenGL context.
+ * <p>
+ * Usage: {@code ObjLoadBenchmark [gridSize]}, where the synthetic model has {@code 2 * gridSize^2} faces
+ * (default 1000, i.e. two million faces).
+ */
+public class ObjLoadBenchmark {
+
+    private static final String[] MODELS = {"/models/cube.obj", "/models/bunny.obj", "/models/alligator.obj"};
+
+    /**
+     * Runs the benchmark and prints one line per model.
+     *
+     * @param args An optional grid size for the synthetic model.
+     * @throws Exception If a model cannot be read.
+     */
+    public static void main(String[] args) throws Exception {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        System.out.println("model                      legacy ms   streaming ms   speedup");
+        for (String model : MODELS) {
+            verify(model, legacyParse(Utils.readAllLines(model)), streamingParse(model));
+            report(model, 200, () -> legacyParse(Utils.readAllLines(model)), () -> streamingParse(model));
+        }
+
+        Path synthetic = writeGrid(gridSize);
+        try {
+            String name = "synthetic " + (2L * gridSize * gridSize) + " faces";
+            report(name, 3, () -> legacyParse(Files.readAllLines(synthetic)), () -> streamingParse(synthetic.toString()));
+        } finally {
+            Files.deleteIfExists(synthetic);
+        }
+    }
+
+    private interface Task {
+        MeshData run() throws Exception;
+    }
+
+    private static void report(String name, int iterations, Task legacy, Task streaming) throws Exception {
+        double legacyMs = time(legacy, iterations);
+        double streamingMs = time(streaming, iterations);
+        System.out.printf(Locale.ROOT, "%-26s %9.3f   %12.3f   %6.2fx%n", name, legacyMs, streamingMs, legacyMs / streamingMs);
+    }
+
+    private static double time(Task task, int iterations) throws Exception {
+        for (int i = 0; i < Math.max(1, iterations / 4); i++)
+            task.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            task.run();
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+
+    private static MeshData streamingParse(String filename) throws Exception {
+        try (ResourceBuffer resource = ResourceBuffer.open(filename)) {
+            return new MeshWelder().weld(ObjParser.parse(resource.getBuffer()));
+        }
+    }
+
+    /**
+     * Checks that both paths produce the same triangles, comparing the position of every corner
+     * since the two paths index their vertices differently.
+     */
+    private static void verify(String name, MeshData expected, MeshData actual) {
+        if (expected.getTriangleCount() != actual.getTriangleCount()) {
+            System.out.println("note: " + name + " has polygons; legacy kept " + expected.getTriangleCount()
+                    + " triangles, streaming fan-triangulated " + actual.getTriangleCount());
+            return;
+        }
+        for (int i = 0; i < expected.getIndices().length; i++) {
+            int e = expected.getIndices()[i] * 3, a = actual.getIndices()[i] * 3;
+            if (!Arrays.equals(expected.getPositions(), e, e + 3, actual.getPositions(), a, a + 3)) {
+                System.out.println("WARNING: " + name + " differs between the legacy and the streaming parser");
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a {@code gridSize x gridSize} quad grid with positions, texture coordinates and normals.
+     */
+    static Path writeGrid(int gridSize) throws Exception {
+        Path file = Files.createTempFile("grid", ".obj");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            int side = gridSize + 1;
+            for (int z = 0; z < side; z++)
+                for (int x = 0; x < side; x++)
+                    writer.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f%n",
+                            x * 0.01f, (float) Math.sin(x * 0.1) * (float) Math.cos(z * 0.1), z * 0.01f));
+            for (int z = 0; z < side; z++)
+                for (int x = 0; x < side; x++)
+                    writer.write(String.format(Locale.ROOT, "vt %.6f %.6f%n", x / (float) gridSize, z / (float) gridSize));
+            writer.write("vn 0.000000 1.000000 0.000000\n");
+            for (int z = 0; z < gridSize; z++) {
+                for (int x = 0; x < gridSize; x++) {
+                    int a = z * side + x + 1, b = a + 1, c = a + side, d = c + 1;
+                    writer.write("f " + a + "/" + a + "/1 " + c + "/" + c + "/1 " + b + "/" + b + "/1\n");
+                    writer.write("f " + b + "/" + b + "/1 " + c + "/" + c + "/1 " + d + "/" + d + "/1\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * The original OBJ path: one String per line, {@code split} per line and per corner,
+     * and one JOML vector per record.
+     */
+    private static MeshData legacyParse(List<String> lines) {
+        List<Vector3f> vertices = new ArrayList<>();
+        List<Vector3f> normals = new ArrayList<>();
+        List<Vector2f> texts = new ArrayList<>();
+        List<Vector3i> faces = new ArrayList<>();
+        for (String line : lines) {
+            String[] tokens = line.split("\\s+");
+            switch (tokens[0]) {
+                case "v":
+                    vertices.add(new Vector3f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3])));
+                    break;
+                case "vt":
+                    texts.add(new Vector2f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2])));
+                    break;
+                case "vn":
+                    normals.add(new Vector3f(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3])));
+                    break;
+                case "f":
+                    legacyFace(tokens[1], faces);
+                    legacyFace(tokens[2], faces);
+                    legacyFace(tokens[3], faces);
+                    break;
+                default:
+                    break;
+            }
+        }
+        List<Integer> indices = new ArrayList<>();
+        float[] verticesArr = new float[vertices.size() * 3];
+        int i = 0;
+        for (Vector3f pos : vertices) {
+            verticesArr[i * 3] = pos.x;
+            verticesArr[i * 3 + 1] = pos.y;
+            verticesArr[i * 3 + 2] = pos.z;
+            i++;
+        }
+        float[] textCoordArr = new float[vertices.size() * 2];
+        float[] normalArr = new float[vertices.size() * 3];
+        for (Vector3i face : faces) {
+            indices.add(face.x);
+            if (face.y >= 0) {
+                Vector2f textCoordVec = texts.get(face.y);
+                textCoordArr[face.x * 2] = textCoordVec.x;
+                textCoordArr[face.x * 2 + 1] = 1 - textCoordVec.y;
+            }
+            if (face.z >= 0) {
+                Vector3f normalVec = normals.get(face.z);
+                normalArr[face.x * 3] = normalVec.x;
+                normalArr[face.x * 3 + 1] = normalVec.y;
+                normalArr[face.x * 3 + 2] = normalVec.z;
+            }
+        }
+        int[] indicesArr = indices.stream().mapToInt((Integer v) -> v).toArray();
+        return new MeshData(verticesArr, textCoordArr, normalArr, indicesArr);
+    }
+
+    private static void legacyFace(String token, List<Vector3i> faces) {
+        String[] lineToken = token.split("/");
+        int length = lineToken.length;
+        int pos, coords = -1, normal = -1;
+        pos = Integer.parseInt(lineToken[0]) - 1;
+        if (length > 1) {
+            String textCoord = lineToken[1];
+            coords = textCoord.length() > 0 ? Integer.parseInt(textCoord) - 1 : -1;
+            if (length > 2)
+                normal = Integer.parseInt(lineToken[2]) - 1;
+        }
+        faces.add(new Vector3i(pos, coords, normal));
+    }
+}
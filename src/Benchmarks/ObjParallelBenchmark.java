@@ -0,0 +1,98 @@
+package Benchmarks;
+
+import Core.Meshes.ObjData;
+import Core.Meshes.ObjParser;
+import Core.Utils.FloatArray;
+import Core.Utils.IntArray;
+import Core.Utils.ResourceBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The ObjParallelBenchmark class measures how {@link ObjParser#parse(ByteBuffer, ForkJoinPool)}
+ * scales with the number of worker threads on a synthetic grid model.
+ * <p>
+ * Usage: {@code ObjParallelBenchmark [gridSize]}, where the model has {@code 2 * gridSize^2} faces
+ * (default 2000, i.e. eight million faces and roughly 610 MB of text). Every parallel result is
+ * checked against a digest of the sequential one, so no full parse is kept alive across the
+ * timed runs.
+ */
+public class ObjParallelBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int ITERATIONS = 3;
+
+    /**
+     * Runs the benchmark and prints the parse time and speedup for every thread count.
+     *
+     * @param args An optional grid size for the synthetic model.
+     * @throws Exception If the synthetic model cannot be written or read.
+     */
+    public static void main(String[] args) throws Exception {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Path synthetic = ObjLoadBenchmark.writeGrid(gridSize);
+        try {
+            run(synthetic, gridSize);
+        } finally {
+            Files.deleteIfExists(synthetic);
+        }
+    }
+
+    private static void run(Path synthetic, int gridSize) throws Exception {
+        try (ResourceBuffer resource = ResourceBuffer.map(synthetic)) {
+            ByteBuffer data = resource.getBuffer();
+            System.out.printf(Locale.ROOT, "%d MB, %d faces, %d hardware threads%n",
+                    data.remaining() >> 20, 2L * gridSize * gridSize, Runtime.getRuntime().availableProcessors());
+
+            long reference = digest(ObjParser.parse(data));
+            double sequential = time(() -> ObjParser.parse(data));
+            System.out.printf(Locale.ROOT, "sequential   %9.1f ms%n", sequential);
+
+            double single = 0;
+            for (int threads : THREADS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    if (digest(ObjParser.parse(data, pool)) != reference)
+                        throw new IllegalStateException("Parallel parse differs from the sequential parse");
+                    double ms = time(() -> ObjParser.parse(data, pool));
+                    if (threads == 1)
+                        single = ms;
+                    System.out.printf(Locale.ROOT, "%2d threads   %9.1f ms   speedup %5.2fx%n", threads, ms, single / ms);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    private static double time(Runnable task) {
+        task.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            task.run();
+        return (System.nanoTime() - start) / 1e6 / ITERATIONS;
+    }
+
+    /**
+     * Hashes the sizes and contents of the four streams, reading them in place.
+     */
+    private static long digest(ObjData obj) {
+        long hash = 1;
+        for (FloatArray stream : new FloatArray[]{obj.getPositions(), obj.getTextureCoords(), obj.getNormals()}) {
+            float[] values = stream.elements();
+            hash = hash * 31 + stream.size();
+            for (int i = 0; i < stream.size(); i++)
+                hash = hash * 31 + Float.floatToIntBits(values[i]);
+        }
+        IntArray corners = obj.getCorners();
+        int[] values = corners.elements();
+        hash = hash * 31 + corners.size();
+        for (int i = 0; i < corners.size(); i++)
+            hash = hash * 31 + values[i];
+        return hash;
+    }
+}
@@ -0,0 +1,116 @@
+package Benchmarks;
+
+import Core.Culling.FrustumCuller;
+import Core.Culling.Occluder;
+import Core.Culling.OcclusionCuller;
+import Core.Utils.Constants;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The OcclusionCullingBenchmark class measures {@link OcclusionCuller} in a city: a grid of box
+ * buildings serves as occluders, and small boxes scattered through the streets and behind the
+ * buildings are tested against them, from a camera at street level that turns a little every
+ * frame. As in {@code RenderManager}, only the boxes inside the view frustum are tested.
+ * Binning the occluders, rasterizing them and testing the boxes are timed separately, for a
+ * growing number of threads. It runs entirely on the CPU.
+ * <p>
+ * Usage: {@code OcclusionCullingBenchmark [boxes] [gridSize] [maxThreads]}, defaulting to
+ * 100,000 boxes, a 32x32 grid of buildings and up to the number of available processors.
+ */
+public class OcclusionCullingBenchmark {
+
+    private static final int WARMUP = 50;
+    private static final int FRAMES = 200;
+    /** The distance between the centers of neighbouring buildings. */
+    private static final float BLOCK = 20;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional box count, grid size and largest thread count.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int grid = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Random random = new Random(1);
+        float half = grid * BLOCK / 2;
+        Occluder building = Occluder.box(new Vector3f(-1, 0, -1), new Vector3f(1, 1, 1));
+        Matrix4f[] buildings = new Matrix4f[grid * grid];
+        for (int i = 0; i < buildings.length; i++) {
+            float x = (i % grid + 0.5f) * BLOCK - half, z = (i / grid + 0.5f) * BLOCK - half;
+            float height = 10 + random.nextFloat() * 40;
+            // Buildings fill 14 of the 20 units of a block, leaving 6-unit streets.
+            buildings[i] = new Matrix4f().translate(x, 0, z).scale(7, height, 7);
+        }
+        float[] boxes = new float[count * 6];
+        for (int i = 0; i < count; i++) {
+            float x = (random.nextFloat() * 2 - 1) * half, z = (random.nextFloat() * 2 - 1) * half;
+            float y = random.nextFloat() * 8, size = 0.5f + random.nextFloat() * 2;
+            boxes[i * 6] = x;
+            boxes[i * 6 + 1] = y;
+            boxes[i * 6 + 2] = z;
+            boxes[i * 6 + 3] = x + size;
+            boxes[i * 6 + 4] = y + size;
+            boxes[i * 6 + 5] = z + size;
+        }
+
+        Matrix4f projection = new Matrix4f().setPerspective(Constants.FOV, 16f / 9f, Constants.Z_NEAR, Constants.Z_FAR);
+        Matrix4f projectionView = new Matrix4f();
+        FrustumCuller frustum = new FrustumCuller();
+        for (int i = 0; i < count; i++) {
+            int at = i * 6;
+            float extent = boxes[at + 3] - boxes[at];
+            frustum.add(boxes[at] + extent / 2, boxes[at + 1] + extent / 2, boxes[at + 2] + extent / 2,
+                    extent * (float) Math.sqrt(3) / 2);
+        }
+        System.out.printf(Locale.ROOT, "%d boxes, %d buildings, %dx%d depth buffer, %d processors%n", count,
+                buildings.length, Constants.OCCLUSION_BUFFER_WIDTH, Constants.OCCLUSION_BUFFER_HEIGHT,
+                Runtime.getRuntime().availableProcessors());
+        System.out.println("threads   bin ms   raster ms   test ms   in frustum   occluded");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            OcclusionCuller culler = new OcclusionCuller(Constants.OCCLUSION_BUFFER_WIDTH,
+                    Constants.OCCLUSION_BUFFER_HEIGHT, pool);
+            long binTime = 0, rasterTime = 0, testTime = 0, tested = 0, occluded = 0;
+            for (int frame = 0; frame < WARMUP + FRAMES; frame++) {
+                // The camera stands in a street, at eye height, and turns half a degree a frame.
+                projectionView.set(projection).rotateY((float) Math.toRadians(frame * 0.5f)).translate(0, -1.7f, -3);
+                frustum.setFrustum(projectionView);
+                int inFrustum = frustum.cull();
+                long start = System.nanoTime();
+                culler.begin(projectionView);
+                for (Matrix4f model : buildings)
+                    culler.addOccluder(building, model);
+                long binned = System.nanoTime();
+                culler.rasterize();
+                long rasterized = System.nanoTime();
+                int hidden = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!frustum.isVisible(i))
+                        continue;
+                    int at = i * 6;
+                    if (!culler.isVisible(boxes[at], boxes[at + 1], boxes[at + 2], boxes[at + 3], boxes[at + 4], boxes[at + 5]))
+                        hidden++;
+                }
+                long done = System.nanoTime();
+                if (frame >= WARMUP) {
+                    binTime += binned - start;
+                    rasterTime += rasterized - binned;
+                    testTime += done - rasterized;
+                    tested += inFrustum;
+                    occluded += hidden;
+                }
+            }
+            pool.shutdown();
+            System.out.printf(Locale.ROOT, "%7d %8.3f %11.3f %9.3f %12d %9.1f%%%n", threads, binTime / 1e6 / FRAMES,
+                    rasterTime / 1e6 / FRAMES, testTime / 1e6 / FRAMES, tested / FRAMES, 100.0 * occluded / Math.max(1, tested));
+        }
+    }
+}
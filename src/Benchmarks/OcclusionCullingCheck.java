@@ -0,0 +1,166 @@
+package Benchmarks;
+
+import Core.Culling.Occluder;
+import Core.Culling.OcclusionCuller;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The OcclusionCullingCheck class checks the results of {@link OcclusionCuller} on small scenes
+ * whose answers are known: boxes behind, in front of, beside and inside a wall, boxes around a
+ * floor that crosses the near plane, a box just past the silhouette of a wall, the coverage and
+ * depth of every pixel written for a turned wall, and the same buffer rasterized on one and on
+ * four threads. It prints one line per check and exits with status 1 if any fails. It runs
+ * entirely on the CPU.
+ * <p>
+ * Usage: {@code OcclusionCullingCheck}.
+ */
+public class OcclusionCullingCheck {
+
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 128;
+    /** The tolerance of the coverage test in pixels. */
+    private static final float EPSILON = 1e-4f;
+
+    private static final Matrix4f PROJECTION = new Matrix4f().setPerspective((float) Math.toRadians(60), 2, 0.01f, 1000);
+    private static int failures;
+
+    /**
+     * Runs the checks.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        OcclusionCuller culler = new OcclusionCuller(WIDTH, HEIGHT, pool);
+        // The camera stands at the origin and looks down -z.
+        Occluder wall = Occluder.box(new Vector3f(-5, -5, -11), new Vector3f(5, 5, -10));
+
+        culler.begin(PROJECTION);
+        culler.addOccluder(wall, new Matrix4f());
+        culler.rasterize();
+        check("wall hides a box behind it", !culler.isVisible(-1, -1, -30, 1, 1, -28));
+        check("box in front of the wall is visible", culler.isVisible(-1, -1, -8, 1, 1, -6));
+        check("wall does not hide itself", culler.isVisible(-5, -5, -11, 5, 5, -10));
+        check("box beside the wall is visible", culler.isVisible(12, -1, -30, 20, 1, -28));
+        check("box crossing the near plane is visible", culler.isVisible(-1, -1, -1, 1, 1, 1));
+
+        // A wall whose right edge ends seven tenths into a pixel column, and a box behind it that
+        // only covers the rest of that column: only a conservative rasterizer sees the box.
+        float edge = 183.7f;
+        Occluder partial = Occluder.box(new Vector3f(-5, -5, -11), new Vector3f(worldX(edge, -10), 5, -10));
+        culler.begin(PROJECTION);
+        culler.addOccluder(partial, new Matrix4f());
+        culler.rasterize();
+        check("box past the silhouette of a wall is visible",
+                culler.isVisible(worldX(183.75f, -30), -0.5f, -30, worldX(183.9f, -29.99f), 0.5f, -29.99f));
+
+        // A floor slab that reaches behind the camera, so its top face is clipped at the near plane.
+        culler.begin(PROJECTION);
+        culler.addOccluder(Occluder.box(new Vector3f(-50, -2, -50), new Vector3f(50, -1, 50)), new Matrix4f());
+        culler.rasterize();
+        check("floor hides a box under it", !culler.isVisible(-1, -10, -20, 1, -8, -18));
+        check("box above the floor is visible", culler.isVisible(-1, 0, -20, 1, 2, -18));
+
+        Matrix4f turned = new Matrix4f().translate(1, 0.5f, -12).rotateY(0.7f).rotateX(0.3f);
+        Occluder quad = new Occluder(new float[]{-4, -3, 0, 4, -3, 0, 4, 3, 0, -4, 3, 0}, new int[]{0, 1, 2, 0, 2, 3}, false);
+        culler.begin(PROJECTION);
+        culler.addOccluder(quad, turned);
+        culler.rasterize();
+        check("turned wall is rasterized as one quad", culler.getFaceCount() == 1);
+        checkConservative(culler, quad, turned);
+
+        ForkJoinPool singlePool = new ForkJoinPool(1);
+        OcclusionCuller single = new OcclusionCuller(WIDTH, HEIGHT, singlePool);
+        Random random = new Random(3);
+        culler.begin(PROJECTION);
+        single.begin(PROJECTION);
+        for (int i = 0; i < 500; i++) {
+            Matrix4f model = new Matrix4f().translate(random.nextFloat() * 200 - 100, random.nextFloat() * 20 - 10,
+                    -random.nextFloat() * 300).rotateY(random.nextFloat() * 3);
+            culler.addOccluder(wall, model);
+            single.addOccluder(wall, model);
+        }
+        culler.rasterize();
+        single.rasterize();
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (culler.getDepth(x, y) != single.getDepth(x, y))
+                    different++;
+            }
+        }
+        check("four threads rasterize the same buffer as one", different == 0);
+        pool.shutdown();
+        singlePool.shutdown();
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " checks failed");
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Checks every pixel written for a single quad: all four of its corners must lie inside the
+     * projected quad, and its depth must be no nearer than the quad's plane at any of them.
+     */
+    private static void checkConservative(OcclusionCuller culler, Occluder quad, Matrix4f model) {
+        Matrix4f m = new Matrix4f(PROJECTION).mul(model);
+        float[] positions = quad.getPositions();
+        float[] sx = new float[4], sy = new float[4], sz = new float[4];
+        for (int i = 0; i < 4; i++) {
+            Vector3f v = m.transformProject(new Vector3f(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]));
+            sx[i] = (v.x * 0.5f + 0.5f) * WIDTH;
+            sy[i] = (v.y * 0.5f + 0.5f) * HEIGHT;
+            sz[i] = v.z * 0.5f + 0.5f;
+        }
+        // The depth plane through three corners, as z = zc + dzdx * x + dzdy * y.
+        float area = (sx[1] - sx[0]) * (sy[2] - sy[0]) - (sx[2] - sx[0]) * (sy[1] - sy[0]);
+        float dzdx = ((sz[1] - sz[0]) * (sy[2] - sy[0]) - (sz[2] - sz[0]) * (sy[1] - sy[0])) / area;
+        float dzdy = ((sz[2] - sz[0]) * (sx[1] - sx[0]) - (sz[1] - sz[0]) * (sx[2] - sx[0])) / area;
+        float zc = sz[0] - dzdx * sx[0] - dzdy * sy[0];
+        float sign = area > 0 ? 1 : -1;
+
+        int written = 0, uncovered = 0, tooNear = 0;
+        for (int y = 0; y < culler.getHeight(); y++) {
+            for (int x = 0; x < culler.getWidth(); x++) {
+                float depth = culler.getDepth(x, y);
+                if (depth >= 1)
+                    continue;
+                written++;
+                for (int corner = 0; corner < 4; corner++) {
+                    float px = x + (corner & 1), py = y + (corner >> 1);
+                    for (int i = 0; i < 4; i++) {
+                        int j = (i + 1) % 4;
+                        if (((sx[j] - sx[i]) * (py - sy[i]) - (sy[j] - sy[i]) * (px - sx[i])) * sign < -EPSILON) {
+                            uncovered++;
+                            break;
+                        }
+                    }
+                    // Window depths crowd towards 1, so the tolerance is a few float roundings of the depth.
+                    if (depth < zc + dzdx * px + dzdy * py - 4 * Math.ulp(depth))
+                        tooNear++;
+                }
+            }
+        }
+        check("turned wall writes pixels", written > 0);
+        check("turned wall writes only pixels it covers entirely", uncovered == 0);
+        check("turned wall writes no depth nearer than its plane", tooNear == 0);
+    }
+
+    /**
+     * Gets the x coordinate at a depth in front of the camera that projects to a column of the buffer.
+     */
+    private static float worldX(float screenX, float z) {
+        float ndc = screenX / WIDTH * 2 - 1;
+        return ndc * -z / PROJECTION.m00();
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "ok    " : "FAIL  ") + name);
+        if (!passed)
+            failures++;
+    }
+}
@@ -0,0 +1,118 @@
+package Benchmarks;
+
+import Core.Entities.Entity;
+import Core.Entities.Model;
+import Core.Lightning.DirectionalLight;
+import Core.Lightning.PointLight;
+import Core.Lightning.SpotLight;
+import Core.Managers.Camera;
+import Core.Managers.ObjectLoader;
+import Core.Managers.RenderManager;
+import Core.Managers.WindowManager;
+import org.joml.Vector3f;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL11;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The RetainedSceneBenchmark class draws a mostly static field of cubes, rotating a small share
+ * of them every frame, once handing every cube to {@code processEntity} each frame and once
+ * adding them to the retained render list of {@link RenderManager} up front, and reports the
+ * frame time and the model matrices recomputed per frame. The CPU time covers the per-frame
+ * submission, the moves and {@code render}; the total also waits for the GPU with
+ * {@code glFinish}.
+ * <p>
+ * Usage: {@code RetainedSceneBenchmark [count] [movingPercent]}, defaulting to 100,000 cubes of
+ * which 1% move. Needs an OpenGL 3.3 capable display; draws with the indirect path where OpenGL 4.6
+ * is available.
+ */
+public class RetainedSceneBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int FRAMES = 100;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional cube count and percentage of cubes moving each frame.
+     * @throws Exception If the window, the shaders or the cube model cannot be created.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        float movingPercent = args.length > 1 ? Float.parseFloat(args[1]) : 1;
+        int moving = (int) (count * movingPercent / 100);
+
+        WindowManager window = new WindowManager("RetainedSceneBenchmark", 1280, 720, false);
+        window.init();
+        GLFW.glfwSwapInterval(0);
+        ObjectLoader loader = new ObjectLoader();
+        RenderManager renderer = new RenderManager(window);
+        renderer.init();
+        try {
+            Model cube = loader.loadOBJModel("/models/cube.obj");
+            Camera camera = new Camera();
+            DirectionalLight light = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(-1, -10, 0), 1);
+            PointLight[] pointLights = new PointLight[0];
+            SpotLight[] spotLights = new SpotLight[0];
+            List<Entity> entities = createField(cube, count);
+
+            System.out.printf(Locale.ROOT, "%d cubes, %d moving per frame, %s path%n", count, moving,
+                    renderer.isIndirect() ? "indirect" : renderer.isInstancing() ? "instanced" : "per entity");
+            System.out.println("mode         matrices/frame   cpu ms/frame   total ms/frame");
+            for (boolean retained : new boolean[]{false, true}) {
+                if (retained) {
+                    for (Entity entity : entities)
+                        renderer.add(entity);
+                }
+                long cpu = 0, total = 0, updated = 0;
+                for (int frame = 0; frame < WARMUP + FRAMES; frame++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < moving; i++)
+                        entities.get((frame * moving + i) % count).incRotation(0, 1, 0);
+                    if (!retained) {
+                        for (Entity entity : entities)
+                            renderer.processEntity(entity);
+                    }
+                    renderer.render(camera, light, pointLights, spotLights);
+                    long submitted = System.nanoTime();
+                    GL11.glFinish();
+                    long finished = System.nanoTime();
+                    window.update();
+                    if (frame >= WARMUP) {
+                        cpu += submitted - start;
+                        total += finished - start;
+                        // Processed entities have their matrix computed whenever they are drawn.
+                        updated += retained ? renderer.getTransformsUpdated() : renderer.getEntitiesVisible();
+                    }
+                }
+                System.out.printf(Locale.ROOT, "%-12s %14d %14.2f %16.2f%n", retained ? "retained" : "immediate",
+                        updated / FRAMES, cpu / 1e6 / FRAMES, total / 1e6 / FRAMES);
+            }
+        } finally {
+            renderer.cleanup();
+            loader.cleanup();
+            window.cleanup();
+            GLFW.glfwTerminate();
+        }
+    }
+
+    /**
+     * Scatters cubes through a box in front of the camera, well inside the view frustum.
+     */
+    private static List<Entity> createField(Model cube, int count) {
+        Random random = new Random(1);
+        List<Entity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float z = -20 - random.nextFloat() * 180;
+            float x = (random.nextFloat() * 2 - 1) * -z * 0.5f;
+            float y = (random.nextFloat() * 2 - 1) * -z * 0.3f;
+            entities.add(new Entity(cube, new Vector3f(x, y, z),
+                    new Vector3f(random.nextFloat() * 180, random.nextFloat() * 180, 0), 0.5f));
+        }
+        return entities;
+    }
+}
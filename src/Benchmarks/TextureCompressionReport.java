@@ -0,0 +1,127 @@
+package Benchmarks;
+
+import Core.Textures.CompiledTexture;
+import Core.Textures.CompiledTextureCache;
+import Core.Textures.ImageData;
+import Core.Textures.TextureFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * The TextureCompressionReport class prints, for each image and block compressed format, the GPU memory
+ * of the mip-complete texture against uncompressed RGBA8 with mipmaps, the quality of level 0 as
+ * PSNR over the color channels, and the time to get the texture ready for upload: decoding the
+ * image (what {@code loadTexture} does before {@code glGenerateMipmap}), compiling it on a cache
+ * miss, and mapping it on a cache hit. The cache lives in a temporary directory.
+ * <p>
+ * Usage: {@code TextureCompressionReport [image...]}, defaulting to the bundled textures.
+ */
+public class TextureCompressionReport {
+
+    private static final String[] TEXTURES = {"textures/blue.png", "textures/world.png", "textures/grassblock.png"};
+
+    /**
+     * Prints one line per image and format.
+     *
+     * @param args Optional paths of the images to report on.
+     * @throws Exception If an image cannot be read or the cache cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        String[] textures = args.length > 0 ? args : TEXTURES;
+        Path directory = Files.createTempDirectory("texture-cache");
+        try {
+            CompiledTextureCache cache = new CompiledTextureCache(directory);
+            System.out.println("image                      size     format   RGBA8+mips KB   compressed KB   ratio   PSNR dB"
+                    + "   decode ms   miss ms   hit ms");
+            for (String texture : textures) {
+                long start = System.nanoTime();
+                ImageData image = ImageData.decode(texture);
+                double decode = (System.nanoTime() - start) / 1e6;
+                int uncompressed = CompiledTexture.sizeInBytes(TextureFormat.RGBA8, image.getWidth(), image.getHeight())
+                        - CompiledTexture.HEADER_SIZE;
+                for (TextureFormat format : new TextureFormat[]{TextureFormat.BC1, TextureFormat.BC3}) {
+                    start = System.nanoTime();
+                    CompiledTexture compiled = cache.load(texture, format);
+                    double miss = (System.nanoTime() - start) / 1e6;
+                    start = System.nanoTime();
+                    cache.load(texture, format);
+                    double hit = (System.nanoTime() - start) / 1e6;
+                    System.out.printf(Locale.ROOT, "%-24s %5dx%-5d %-6s %15d %15d %6.1fx %9.2f %11.1f %9.1f %8.2f%n",
+                            texture, image.getWidth(), image.getHeight(), format, uncompressed / 1024,
+                            compiled.getLevelsSize() / 1024, (double) uncompressed / compiled.getLevelsSize(),
+                            psnr(image, compiled), decode, miss, hit);
+                }
+                image.free();
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                    Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Computes the peak signal-to-noise ratio of the red, green and blue channels of level 0.
+     */
+    private static double psnr(ImageData image, CompiledTexture texture) {
+        int width = image.getWidth(), height = image.getHeight();
+        ByteBuffer blocks = texture.getLevel(0).order(ByteOrder.LITTLE_ENDIAN);
+        int blockBytes = texture.getFormat().sizeInBytes(4, 4);
+        // BC3 stores alpha first and the same color block as BC1 in its second half.
+        int colorOffset = blockBytes - 8;
+        int[] palette = new int[4 * 3];
+        double error = 0;
+        for (int by = 0; by < (height + 3) / 4; by++) {
+            for (int bx = 0; bx < (width + 3) / 4; bx++) {
+                int base = (by * ((width + 3) / 4) + bx) * blockBytes + colorOffset;
+                decodePalette(blocks.getShort(base) & 0xFFFF, blocks.getShort(base + 2) & 0xFFFF, colorOffset == 0, palette);
+                int indices = blocks.getInt(base + 4);
+                for (int y = 0; y < 4 && by * 4 + y < height; y++) {
+                    for (int x = 0; x < 4 && bx * 4 + x < width; x++) {
+                        int entry = (indices >>> ((y * 4 + x) * 2)) & 3;
+                        int pixel = ((by * 4 + y) * width + bx * 4 + x) * 4;
+                        for (int c = 0; c < 3; c++) {
+                            int diff = (image.getPixels().get(pixel + c) & 0xFF) - palette[entry * 3 + c];
+                            error += diff * diff;
+                        }
+                    }
+                }
+            }
+        }
+        double mse = error / ((double) width * height * 3);
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255 * 255 / mse);
+    }
+
+    /**
+     * Expands the two RGB565 endpoints of a color block into its four colors. Only BC1 switches
+     * to three colors and black when the first endpoint is not the larger one.
+     */
+    private static void decodePalette(int color0, int color1, boolean bc1, int[] palette) {
+        expand565(color0, palette, 0);
+        expand565(color1, palette, 1);
+        for (int c = 0; c < 3; c++) {
+            int a = palette[c], b = palette[3 + c];
+            if (color0 > color1 || !bc1) {
+                palette[6 + c] = (2 * a + b) / 3;
+                palette[9 + c] = (a + 2 * b) / 3;
+            } else {
+                palette[6 + c] = (a + b) / 2;
+                palette[9 + c] = 0;
+            }
+        }
+    }
+
+    private static void expand565(int color, int[] palette, int entry) {
+        int r = (color >> 11) & 31, g = (color >> 5) & 63, b = color & 31;
+        palette[entry * 3] = (r << 3) | (r >> 2);
+        palette[entry * 3 + 1] = (g << 2) | (g >> 4);
+        palette[entry * 3 + 2] = (b << 3) | (b >> 2);
+    }
+}
@@ -0,0 +1,173 @@
+package Benchmarks;
+
+import Core.Entities.Texture;
+import Core.Managers.ObjectLoader;
+import Core.Managers.TextureStreamer;
+import Core.Textures.TextureOptions;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.stb.STBImageWrite;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The TextureStreamBenchmark class loads a set of generated PNG textures three ways and reports
+ * the total wall time and the longest frame: all at once before the first frame (what
+ * {@code TestGame.init} used to do), one blocking {@link ObjectLoader#loadTexture(String)} per
+ * frame, and through a {@link TextureStreamer}. Frames only clear and swap a hidden window, so the
+ * frame time is the time the render thread spends on loading.
+ * <p>
+ * Usage: {@code TextureStreamBenchmark [count] [size]}, defaulting to 100 textures of 1024x1024.
+ * Needs an OpenGL 3.2 capable display.
+ */
+public class TextureStreamBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional texture count and edge length.
+     * @throws Exception If the textures cannot be written or loaded.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        Path directory = Files.createTempDirectory("textures");
+        List<String> files = writeTextures(directory, count, size);
+        long window = createWindow();
+        try {
+            System.out.printf(Locale.ROOT, "%d textures of %dx%d%n", count, size, size);
+            System.out.println("mode                     wall ms   worst frame ms   frames");
+            blockingInit(files, window);
+            blockingPerFrame(files, window);
+            streamed(files, window);
+        } finally {
+            GLFW.glfwDestroyWindow(window);
+            GLFW.glfwTerminate();
+            for (String file : files)
+                Files.deleteIfExists(Path.of(file));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static void blockingInit(List<String> files, long window) throws Exception {
+        ObjectLoader loader = new ObjectLoader();
+        loader.setTextureCache(null);
+        long start = System.nanoTime();
+        for (String file : files)
+            loader.loadTexture(file);
+        endFrame(window);
+        GL11.glFinish();
+        double wall = (System.nanoTime() - start) / 1e6;
+        report("blocking, before frame 1", wall, wall, 1);
+        loader.cleanup();
+    }
+
+    private static void blockingPerFrame(List<String> files, long window) throws Exception {
+        ObjectLoader loader = new ObjectLoader();
+        loader.setTextureCache(null);
+        long start = System.nanoTime();
+        long worst = 0;
+        for (String file : files) {
+            long frameStart = System.nanoTime();
+            loader.loadTexture(file);
+            endFrame(window);
+            worst = Math.max(worst, System.nanoTime() - frameStart);
+        }
+        GL11.glFinish();
+        report("blocking, one per frame", (System.nanoTime() - start) / 1e6, worst / 1e6, files.size());
+        loader.cleanup();
+    }
+
+    private static void streamed(List<String> files, long window) {
+        ObjectLoader loader = new ObjectLoader();
+        TextureStreamer streamer = new TextureStreamer(loader);
+        long start = System.nanoTime();
+        List<CompletableFuture<Texture>> textures = new ArrayList<>();
+        for (String file : files)
+            textures.add(streamer.loadTexture(file, TextureOptions.DEFAULT));
+        CompletableFuture<Void> all = CompletableFuture.allOf(textures.toArray(CompletableFuture<?>[]::new));
+        long worst = 0;
+        int frames = 0;
+        while (!all.isDone()) {
+            long frameStart = System.nanoTime();
+            streamer.update();
+            endFrame(window);
+            worst = Math.max(worst, System.nanoTime() - frameStart);
+            frames++;
+        }
+        GL11.glFinish();
+        report("streamed", (System.nanoTime() - start) / 1e6, worst / 1e6, frames);
+        all.join();
+        streamer.cleanup();
+        loader.cleanup();
+    }
+
+    private static void endFrame(long window) {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        GLFW.glfwSwapBuffers(window);
+        GLFW.glfwPollEvents();
+    }
+
+    private static void report(String mode, double wall, double worst, int frames) {
+        System.out.printf(Locale.ROOT, "%-24s %8.1f %16.2f %8d%n", mode, wall, worst, frames);
+    }
+
+    /**
+     * Creates a hidden window with the same context the engine uses.
+     */
+    private static long createWindow() {
+        if (!GLFW.glfwInit())
+            throw new IllegalStateException("Unable to initialize GLFW");
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+        GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 2);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+        GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GLFW.GLFW_TRUE);
+        long window = GLFW.glfwCreateWindow(64, 64, "TextureStreamBenchmark", MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL)
+            throw new IllegalStateException("Failed to create a GLFW window");
+        GLFW.glfwMakeContextCurrent(window);
+        GLFW.glfwSwapInterval(0);
+        GL.createCapabilities();
+        return window;
+    }
+
+    /**
+     * Writes noisy gradient PNGs, so decoding costs about as much as for real images.
+     */
+    static List<String> writeTextures(Path directory, int count, int size) {
+        List<String> files = new ArrayList<>();
+        ByteBuffer pixels = MemoryUtil.memAlloc(size * size * 4);
+        Random random = new Random(1);
+        try {
+            for (int i = 0; i < count; i++) {
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        int base = (y * size + x) * 4;
+                        pixels.put(base, (byte) (x * 255 / size + random.nextInt(16)));
+                        pixels.put(base + 1, (byte) (y * 255 / size + random.nextInt(16)));
+                        pixels.put(base + 2, (byte) (i * 255 / count));
+                        pixels.put(base + 3, (byte) 255);
+                    }
+                }
+                String file = directory.resolve("texture" + i + ".png").toString();
+                if (!STBImageWrite.stbi_write_png(file, size, size, 4, pixels, size * 4))
+                    throw new IllegalStateException("Could not write " + file);
+                files.add(file);
+            }
+        } finally {
+            MemoryUtil.memFree(pixels);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,190 @@
+package Core.Culling;
+
+import Core.Utils.FloatArray;
+import org.joml.Matrix4f;
+
+/**
+ * The FrustumCuller class tests bounding spheres against the six planes of a view frustum. The
+ * spheres are kept as a structure of arrays, one array per coordinate and one for the radii, and
+ * tested in blocks of {@link #BLOCK_SIZE} that stay in the L1 cache: one plane at a time, each
+ * pass a straight loop without branches that indexes every array the same way, which is the
+ * shape the JIT vectorizes. One loop testing all six planes at once is not vectorized and runs
+ * several times slower.
+ * <p>
+ * Each frame, the spheres are added with {@link #add}, the frustum is set from the
+ * projection-view matrix, and {@link #cull()} marks every sphere visible or culled. Spheres of
+ * entities that persist across frames can instead be kept, with {@link #setSize} and
+ * {@link #set}, and only rewritten when they move.
+ */
+public class FrustumCuller {
+
+    /** The number of spheres tested against all planes before moving on to the next ones. */
+    private static final int BLOCK_SIZE = 1024;
+
+    private final float[] planes = new float[6 * 4];
+    private final FloatArray x = new FloatArray(1024);
+    private final FloatArray y = new FloatArray(1024);
+    private final FloatArray z = new FloatArray(1024);
+    private final FloatArray radius = new FloatArray(1024);
+    private float[] distance = new float[1024];
+    private int visibleCount;
+
+    /**
+     * Extracts the frustum planes from a projection-view matrix (Gribb and Hartmann). Each plane
+     * is normalized, so its equation gives the signed distance of a point, positive inside.
+     *
+     * @param projectionView The projection matrix multiplied by the view matrix.
+     */
+    public void setFrustum(Matrix4f projectionView) {
+        Matrix4f m = projectionView;
+        setPlane(0, m.m03() + m.m00(), m.m13() + m.m10(), m.m23() + m.m20(), m.m33() + m.m30()); // left
+        setPlane(1, m.m03() - m.m00(), m.m13() - m.m10(), m.m23() - m.m20(), m.m33() - m.m30()); // right
+        setPlane(2, m.m03() + m.m01(), m.m13() + m.m11(), m.m23() + m.m21(), m.m33() + m.m31()); // bottom
+        setPlane(3, m.m03() - m.m01(), m.m13() - m.m11(), m.m23() - m.m21(), m.m33() - m.m31()); // top
+        setPlane(4, m.m03() + m.m02(), m.m13() + m.m12(), m.m23() + m.m22(), m.m33() + m.m32()); // near
+        setPlane(5, m.m03() - m.m02(), m.m13() - m.m12(), m.m23() - m.m22(), m.m33() - m.m32()); // far
+    }
+
+    private void setPlane(int plane, float a, float b, float c, float d) {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        planes[plane * 4] = a / length;
+        planes[plane * 4 + 1] = b / length;
+        planes[plane * 4 + 2] = c / length;
+        planes[plane * 4 + 3] = d / length;
+    }
+
+    /**
+     * Removes all spheres.
+     */
+    public void clear() {
+        x.clear();
+        y.clear();
+        z.clear();
+        radius.clear();
+        visibleCount = 0;
+    }
+
+    /**
+     * Adds a bounding sphere in world space.
+     *
+     * @param cx The x coordinate of the center.
+     * @param cy The y coordinate of the center.
+     * @param cz The z coordinate of the center.
+     * @param r  The radius.
+     * @return The index of the sphere.
+     */
+    public int add(float cx, float cy, float cz, float r) {
+        x.add(cx);
+        y.add(cy);
+        z.add(cz);
+        radius.add(r);
+        return radius.size() - 1;
+    }
+
+    /**
+     * Sets the number of spheres, dropping those past it or making room for new ones, whose
+     * values are undefined until written with {@link #set}. Spheres below the size keep their
+     * values, so spheres that rarely move can stay from one frame to the next.
+     *
+     * @param size The new sphere count.
+     */
+    public void setSize(int size) {
+        x.ensureCapacity(size);
+        y.ensureCapacity(size);
+        z.ensureCapacity(size);
+        radius.ensureCapacity(size);
+        x.setSize(size);
+        y.setSize(size);
+        z.setSize(size);
+        radius.setSize(size);
+    }
+
+    /**
+     * Replaces a bounding sphere in world space.
+     *
+     * @param index The index of the sphere.
+     * @param cx    The x coordinate of the center.
+     * @param cy    The y coordinate of the center.
+     * @param cz    The z coordinate of the center.
+     * @param r     The radius.
+     */
+    public void set(int index, float cx, float cy, float cz, float r) {
+        x.set(index, cx);
+        y.set(index, cy);
+        z.set(index, cz);
+        radius.set(index, r);
+    }
+
+    /**
+     * Gets the number of spheres added since the last {@link #clear()}.
+     *
+     * @return The sphere count.
+     */
+    public int size() {
+        return radius.size();
+    }
+
+    /**
+     * Tests every sphere against the frustum. A sphere is culled when it lies entirely behind
+     * one of the planes; spheres crossing a corner outside the frustum are kept, which only
+     * costs a draw.
+     *
+     * @return The number of visible spheres.
+     */
+    public int cull() {
+        int count = radius.size();
+        if (distance.length < count)
+            distance = new float[Math.max(count, distance.length * 2)];
+        float[] xs = x.elements(), ys = y.elements(), zs = z.elements(), rs = radius.elements();
+        float[] d = distance;
+        int culled = 0;
+        for (int start = 0; start < count; start += BLOCK_SIZE) {
+            int end = Math.min(count, start + BLOCK_SIZE);
+            // The distance of the sphere's surface to the nearest plane, negative when it lies
+            // entirely behind one.
+            float a = planes[0], b = planes[1], c = planes[2], w = planes[3];
+            for (int i = start; i < end; i++)
+                d[i] = a * xs[i] + b * ys[i] + c * zs[i] + w + rs[i];
+            for (int plane = 1; plane < 6; plane++) {
+                a = planes[plane * 4];
+                b = planes[plane * 4 + 1];
+                c = planes[plane * 4 + 2];
+                w = planes[plane * 4 + 3];
+                for (int i = start; i < end; i++)
+                    d[i] = Math.min(d[i], a * xs[i] + b * ys[i] + c * zs[i] + w + rs[i]);
+            }
+            for (int i = start; i < end; i++)
+                culled += Float.floatToRawIntBits(d[i]) >>> 31;
+        }
+        visibleCount = count - culled;
+        return visibleCount;
+    }
+
+    /**
+     * Checks whether a sphere was found visible by the last {@link #cull()}.
+     *
+     * @param index The index returned by {@link #add}.
+     * @return True if the sphere intersects the frustum.
+     */
+    public boolean isVisible(int index) {
+        return Float.floatToRawIntBits(distance[index]) >= 0;
+    }
+
+    /**
+     * Gets the number of spheres found visible by the last {@link #cull()}.
+     *
+     * @return The visible count.
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * Gets the number of spheres culled by the last {@link #cull()}.
+     *
+     * @return The culled count.
+     */
+    public int getCulledCount() {
+        return radius.size() - visibleCount;
+    }
+}
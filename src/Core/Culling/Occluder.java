@@ -0,0 +1,188 @@
+package Core.Culling;
+
+import Core.Utils.IntArray;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Occluder class is a low-poly triangle mesh standing in for a model when the
+ * {@link OcclusionCuller} rasterizes what hides the rest of the scene. It must lie inside the
+ * surface of the model it stands for, or it hides entities that are in fact visible; a few
+ * dozen triangles are enough for walls, buildings and terrain.
+ * <p>
+ * A closed mesh, wound counter-clockwise seen from outside, only needs its front faces
+ * rasterized, since its back faces are always behind them; an open one, like a single wall,
+ * occludes with both faces.
+ * <p>
+ * The {@link OcclusionCuller} only writes pixels a polygon covers entirely, so pixels along an
+ * edge between two triangles are covered by neither. To keep flat faces free of such gaps, pairs
+ * of triangles that share an edge, lie in one plane and form a convex quad are merged into that
+ * quad when the occluder is constructed.
+ */
+public class Occluder {
+
+    private final float[] positions;
+    private final int[] indices;
+    private final int[] faces;
+    private final boolean closed;
+
+    /**
+     * Constructs a new Occluder from a triangle list in model space.
+     *
+     * @param positions The vertex positions, three values per vertex.
+     * @param indices   The vertex indices, three per triangle.
+     * @param closed    True if the mesh is closed and wound counter-clockwise seen from outside.
+     */
+    public Occluder(float[] positions, int[] indices, boolean closed) {
+        this.positions = positions;
+        this.indices = indices;
+        this.closed = closed;
+        this.faces = mergeQuads(positions, indices);
+    }
+
+    /**
+     * Merges pairs of coplanar triangles sharing an edge into convex quads, each triangle into at
+     * most one quad, keeping the winding. Triangles left over repeat their last vertex.
+     */
+    private static int[] mergeQuads(float[] positions, int[] indices) {
+        int triangles = indices.length / 3;
+        Map<Long, Integer> edges = new HashMap<>();
+        for (int t = 0; t < triangles; t++) {
+            for (int e = 0; e < 3; e++)
+                edges.putIfAbsent(edge(indices[t * 3 + e], indices[t * 3 + (e + 1) % 3]), t);
+        }
+        boolean[] merged = new boolean[triangles];
+        IntArray faces = new IntArray(triangles * 4);
+        for (int t = 0; t < triangles; t++) {
+            if (merged[t])
+                continue;
+            merged[t] = true;
+            int first = faces.size();
+            for (int e = 0; e < 3 && faces.size() == first; e++) {
+                int x = indices[t * 3 + e], y = indices[t * 3 + (e + 1) % 3], p = indices[t * 3 + (e + 2) % 3];
+                // A neighbour with the same winding runs the shared edge the other way.
+                Integer u = edges.get(edge(y, x));
+                if (u == null || merged[u])
+                    continue;
+                int q = -1;
+                for (int v = 0; v < 3; v++) {
+                    if (indices[u * 3 + v] == y && indices[u * 3 + (v + 1) % 3] == x)
+                        q = indices[u * 3 + (v + 2) % 3];
+                }
+                if (q < 0 || !isConvexQuad(positions, x, q, y, p))
+                    continue;
+                merged[u] = true;
+                faces.add(x);
+                faces.add(q);
+                faces.add(y);
+                faces.add(p);
+            }
+            if (faces.size() == first) {
+                faces.add(indices[t * 3]);
+                faces.add(indices[t * 3 + 1]);
+                faces.add(indices[t * 3 + 2]);
+                faces.add(indices[t * 3 + 2]);
+            }
+        }
+        return faces.toArray();
+    }
+
+    private static long edge(int from, int to) {
+        return (long) from << 32 | (to & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether four vertices, in winding order, lie in one plane and form a convex quad:
+     * the fourth lies in the plane of the first three, and every corner turns the same way.
+     */
+    private static boolean isConvexQuad(float[] positions, int... corners) {
+        Vector3f[] v = new Vector3f[4];
+        for (int i = 0; i < 4; i++)
+            v[i] = new Vector3f(positions[corners[i] * 3], positions[corners[i] * 3 + 1], positions[corners[i] * 3 + 2]);
+        Vector3f normal = new Vector3f(v[1]).sub(v[0]).cross(new Vector3f(v[2]).sub(v[0]));
+        float size = Math.max(new Vector3f(v[2]).sub(v[0]).length(), new Vector3f(v[3]).sub(v[1]).length());
+        if (normal.length() == 0 || Math.abs(normal.dot(new Vector3f(v[3]).sub(v[0]))) > 1e-4f * normal.length() * size)
+            return false;
+        for (int i = 0; i < 4; i++) {
+            Vector3f in = new Vector3f(v[i]).sub(v[(i + 3) % 4]);
+            Vector3f out = new Vector3f(v[(i + 1) % 4]).sub(v[i]);
+            if (in.cross(out).dot(normal) <= 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates an occluder covering an axis-aligned box, the twelve triangles of its faces.
+     *
+     * @param min The minimum corner in model space.
+     * @param max The maximum corner in model space.
+     * @return The box occluder.
+     */
+    public static Occluder box(Vector3f min, Vector3f max) {
+        float[] positions = new float[8 * 3];
+        for (int corner = 0; corner < 8; corner++) {
+            positions[corner * 3] = (corner & 1) != 0 ? max.x : min.x;
+            positions[corner * 3 + 1] = (corner & 2) != 0 ? max.y : min.y;
+            positions[corner * 3 + 2] = (corner & 4) != 0 ? max.z : min.z;
+        }
+        int[] indices = {
+                0, 2, 3, 0, 3, 1, // -z
+                4, 5, 7, 4, 7, 6, // +z
+                0, 4, 6, 0, 6, 2, // -x
+                1, 3, 7, 1, 7, 5, // +x
+                0, 1, 5, 0, 5, 4, // -y
+                2, 6, 7, 2, 7, 3, // +y
+        };
+        return new Occluder(positions, indices, true);
+    }
+
+    /**
+     * Gets the vertex positions.
+     *
+     * @return The positions, three values per vertex; must not be modified.
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets the vertex indices.
+     *
+     * @return The indices, three per triangle; must not be modified.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Gets the faces the occluder is rasterized as: the triangles, with coplanar pairs merged
+     * into convex quads.
+     *
+     * @return The vertex indices, four per face in winding order, a triangle repeating its last
+     * vertex; must not be modified.
+     */
+    public int[] getFaces() {
+        return faces;
+    }
+
+    /**
+     * Checks whether the mesh is closed, so that its back faces can be skipped.
+     *
+     * @return True if the mesh is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the number of triangles.
+     *
+     * @return The triangle count.
+     */
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+}
@@ -0,0 +1,398 @@
+package Core.Culling;
+
+import Core.Utils.Constants;
+import Core.Utils.FloatArray;
+import Core.Utils.IntArray;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The OcclusionCuller class rasterizes low-poly {@link Occluder} meshes into a small depth
+ * buffer on the CPU and tests the bounding boxes of entities against it, so that entities hidden
+ * behind nearer ones are not drawn. It follows masked occlusion culling in spirit: a coarse
+ * buffer, conservative rasterization and tests, and a hierarchy of per-block farthest depths
+ * that settles most tests without reading single pixels.
+ * <p>
+ * Each frame, {@link #begin} sets the projection-view matrix, {@link #addOccluder} transforms,
+ * clips against the near plane and bins the faces of each occluder, triangles and quads, into
+ * tiles of {@link Constants#OCCLUSION_TILE_SIZE} pixels, and {@link #rasterize()} fills the
+ * tiles in parallel on a fork/join pool; no two tiles share a pixel, so they need no locking. The pixel
+ * loops evaluate the edge functions and the depth plane as straight arithmetic with a select at
+ * the end, without branches, the shape the JIT vectorizes. Depths are window depths, 0 at the
+ * near plane and 1 at the far plane, and the buffer keeps the nearest.
+ * <p>
+ * {@link #isVisible} only reads the buffer, so it may run on several threads once the frame
+ * is rasterized.
+ */
+public class OcclusionCuller {
+
+    /** The edge length in pixels of the blocks whose farthest depth forms the upper level. */
+    private static final int BLOCK_SIZE = 8;
+    /** The number of values per binned face: x, y and depth of each of four vertices. */
+    private static final int FACE_FLOATS = 12;
+
+    private final ForkJoinPool pool;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final int blocksX;
+    private final float[] depth;
+    private final float[] blockDepth;
+    private final IntArray[] bins;
+    private final FloatArray faces = new FloatArray(4096 * FACE_FLOATS);
+    private final Matrix4f projectionView = new Matrix4f();
+    private final Matrix4f transform = new Matrix4f();
+    private float[] clip = new float[256 * 4];
+    /** Two polygons of clip-space vertices, the face and the face clipped, of up to four and five vertices. */
+    private final float[] polygon = new float[(4 + 5) * 4];
+    private boolean cullBackFaces;
+
+    /**
+     * Constructs a new OcclusionCuller of {@link Constants#OCCLUSION_BUFFER_WIDTH} by
+     * {@link Constants#OCCLUSION_BUFFER_HEIGHT} pixels that runs on the common fork/join pool.
+     */
+    public OcclusionCuller() {
+        this(Constants.OCCLUSION_BUFFER_WIDTH, Constants.OCCLUSION_BUFFER_HEIGHT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new OcclusionCuller. The size is rounded up to whole tiles.
+     *
+     * @param width  The width of the depth buffer in pixels.
+     * @param height The height of the depth buffer in pixels.
+     * @param pool   The pool the tiles are rasterized on.
+     */
+    public OcclusionCuller(int width, int height, ForkJoinPool pool) {
+        this.pool = pool;
+        this.tileSize = Constants.OCCLUSION_TILE_SIZE;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.width = tilesX * tileSize;
+        this.height = tilesY * tileSize;
+        this.blocksX = this.width / BLOCK_SIZE;
+        this.depth = new float[this.width * this.height];
+        this.blockDepth = new float[blocksX * (this.height / BLOCK_SIZE)];
+        this.bins = new IntArray[tilesX * tilesY];
+        for (int i = 0; i < bins.length; i++)
+            bins[i] = new IntArray();
+        Arrays.fill(depth, 1);
+        Arrays.fill(blockDepth, 1);
+    }
+
+    /**
+     * Starts a frame: drops the occluders of the last frame and sets the view.
+     *
+     * @param projectionView The projection matrix multiplied by the view matrix.
+     */
+    public void begin(Matrix4f projectionView) {
+        this.projectionView.set(projectionView);
+        faces.clear();
+        for (IntArray bin : bins)
+            bin.clear();
+    }
+
+    /**
+     * Adds an occluder at a position in the world. Its faces are transformed, clipped against
+     * the near plane and binned into the tiles they overlap. The back faces of a closed
+     * occluder are skipped; the model matrix must then not mirror it.
+     *
+     * @param occluder The occluder mesh.
+     * @param model    The model matrix placing it in the world.
+     */
+    public void addOccluder(Occluder occluder, Matrix4f model) {
+        Matrix4f m = transform.set(projectionView).mul(model);
+        cullBackFaces = occluder.isClosed();
+        float[] positions = occluder.getPositions();
+        int vertices = positions.length / 3;
+        if (clip.length < vertices * 4)
+            clip = new float[vertices * 4];
+        for (int v = 0; v < vertices; v++) {
+            float x = positions[v * 3], y = positions[v * 3 + 1], z = positions[v * 3 + 2];
+            clip[v * 4] = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+            clip[v * 4 + 1] = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+            clip[v * 4 + 2] = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+            clip[v * 4 + 3] = m.m03() * x + m.m13() * y + m.m23() * z + m.m33();
+        }
+        int[] indices = occluder.getFaces();
+        for (int i = 0; i + 3 < indices.length; i += 4)
+            addFace(indices, i);
+    }
+
+    /**
+     * Clips a face against the near plane, {@code z >= -w} in clip space, and bins what is left
+     * as one face, or two when clipping a quad leaves five vertices. The other planes need no
+     * clipping: the pixel loops stay inside the buffer, and depths past the far plane never pass
+     * the depth test.
+     */
+    private void addFace(int[] indices, int at) {
+        int corners = indices[at + 2] == indices[at + 3] ? 3 : 4, count = 0, out = 16;
+        for (int i = 0; i < corners; i++)
+            System.arraycopy(clip, indices[at + i] * 4, polygon, i * 4, 4);
+        for (int i = 0; i < corners; i++) {
+            int a = i * 4, b = (i + 1) % corners * 4;
+            float da = polygon[a + 2] + polygon[a + 3], db = polygon[b + 2] + polygon[b + 3];
+            if (da >= 0)
+                System.arraycopy(polygon, a, polygon, out + count++ * 4, 4);
+            if ((da >= 0) != (db >= 0)) {
+                float t = da / (da - db);
+                for (int c = 0; c < 4; c++)
+                    polygon[out + count * 4 + c] = polygon[a + c] + (polygon[b + c] - polygon[a + c]) * t;
+                count++;
+            }
+        }
+        if (count < 3)
+            return;
+        // Three vertices are binned as a triangle repeating its last vertex, five as a quad and a triangle.
+        int last = Math.min(count, 4) - 1;
+        binFace(polygon, out, out + 4, out + 8, out + last * 4);
+        if (count == 5)
+            binFace(polygon, out, out + 12, out + 16, out + 16);
+    }
+
+    /**
+     * Projects a clipped face to the buffer and adds it to the bin of every tile its bounding
+     * rectangle overlaps.
+     */
+    private void binFace(float[] v, int a, int b, int c, int d) {
+        float ax = screenX(v, a), ay = screenY(v, a), bx = screenX(v, b), by = screenY(v, b);
+        float cx = screenX(v, c), cy = screenY(v, c), dx = screenX(v, d), dy = screenY(v, d);
+        float area = (ax * by - bx * ay) + (bx * cy - cx * by) + (cx * dy - dx * cy) + (dx * ay - ax * dy);
+        // Counter-clockwise faces have a positive area; the others face away.
+        if (Math.abs(area) < 1e-6f || (cullBackFaces && area < 0))
+            return;
+        int minX = Math.max(0, (int) Math.floor(Math.min(Math.min(ax, bx), Math.min(cx, dx))));
+        int maxX = Math.min(width - 1, (int) Math.floor(Math.max(Math.max(ax, bx), Math.max(cx, dx))));
+        int minY = Math.max(0, (int) Math.floor(Math.min(Math.min(ay, by), Math.min(cy, dy))));
+        int maxY = Math.min(height - 1, (int) Math.floor(Math.max(Math.max(ay, by), Math.max(cy, dy))));
+        if (minX > maxX || minY > maxY)
+            return;
+        int index = faces.size() / FACE_FLOATS;
+        faces.add(ax);
+        faces.add(ay);
+        faces.add(windowDepth(v, a));
+        faces.add(bx);
+        faces.add(by);
+        faces.add(windowDepth(v, b));
+        faces.add(cx);
+        faces.add(cy);
+        faces.add(windowDepth(v, c));
+        faces.add(dx);
+        faces.add(dy);
+        faces.add(windowDepth(v, d));
+        for (int ty = minY / tileSize; ty <= maxY / tileSize; ty++) {
+            for (int tx = minX / tileSize; tx <= maxX / tileSize; tx++)
+                bins[ty * tilesX + tx].add(index);
+        }
+    }
+
+    private float screenX(float[] v, int at) {
+        return (v[at] / v[at + 3] * 0.5f + 0.5f) * width;
+    }
+
+    private float screenY(float[] v, int at) {
+        return (v[at + 1] / v[at + 3] * 0.5f + 0.5f) * height;
+    }
+
+    private static float windowDepth(float[] v, int at) {
+        return v[at + 2] / v[at + 3] * 0.5f + 0.5f;
+    }
+
+    /**
+     * Rasterizes the binned faces, one task per tile, and builds the block level.
+     */
+    public void rasterize() {
+        pool.submit(() -> IntStream.range(0, bins.length).parallel().forEach(this::rasterizeTile)).join();
+    }
+
+    private void rasterizeTile(int tile) {
+        int x0 = tile % tilesX * tileSize, y0 = tile / tilesX * tileSize;
+        int x1 = x0 + tileSize, y1 = y0 + tileSize;
+        for (int y = y0; y < y1; y++)
+            Arrays.fill(depth, y * width + x0, y * width + x1, 1);
+        IntArray bin = bins[tile];
+        float[] f = faces.elements();
+        for (int i = 0; i < bin.size(); i++)
+            rasterizeFace(f, bin.get(i) * FACE_FLOATS, x0, y0, x1, y1);
+
+        for (int by = y0; by < y1; by += BLOCK_SIZE) {
+            for (int bx = x0; bx < x1; bx += BLOCK_SIZE) {
+                float farthest = 0;
+                for (int y = by; y < by + BLOCK_SIZE; y++) {
+                    int row = y * width;
+                    for (int x = bx; x < bx + BLOCK_SIZE; x++)
+                        farthest = Math.max(farthest, depth[row + x]);
+                }
+                blockDepth[by / BLOCK_SIZE * blocksX + bx / BLOCK_SIZE] = farthest;
+            }
+        }
+    }
+
+    /**
+     * Rasterizes the part of a convex face inside a tile conservatively, so that the buffer never
+     * claims more than the occluders hide: only pixels the face covers entirely are written, and
+     * each keeps the farthest depth of the face's plane over the pixel, if nearer than the depth
+     * already there. The four edge functions are oriented to be positive inside whatever the
+     * winding and biased inward by half a pixel along their gradient, so that they are positive at
+     * a pixel's center exactly when they are at all four of its corners; the repeated vertex of a
+     * triangle gives an edge function that is zero everywhere. The depth is a plane in screen
+     * space, taken from the larger of the face's two triangles and offset from the pixel's center
+     * to its farther corner.
+     */
+    private void rasterizeFace(float[] f, int at, int x0, int y0, int x1, int y1) {
+        float ax = f[at], ay = f[at + 1], az = f[at + 2];
+        float bx = f[at + 3], by = f[at + 4], bz = f[at + 5];
+        float cx = f[at + 6], cy = f[at + 7], cz = f[at + 8];
+        float dx = f[at + 9], dy = f[at + 10], dz = f[at + 11];
+        float abc = (bx - ax) * (cy - ay) - (cx - ax) * (by - ay);
+        float acd = (cx - ax) * (dy - ay) - (dx - ax) * (cy - ay);
+        float sign = abc + acd > 0 ? 1 : -1;
+        float a0 = (ay - by) * sign, b0 = (bx - ax) * sign;
+        float a1 = (by - cy) * sign, b1 = (cx - bx) * sign;
+        float a2 = (cy - dy) * sign, b2 = (dx - cx) * sign;
+        float a3 = (dy - ay) * sign, b3 = (ax - dx) * sign;
+        float c0 = (ax * by - bx * ay) * sign - (Math.abs(a0) + Math.abs(b0)) * 0.5f;
+        float c1 = (bx * cy - cx * by) * sign - (Math.abs(a1) + Math.abs(b1)) * 0.5f;
+        float c2 = (cx * dy - dx * cy) * sign - (Math.abs(a2) + Math.abs(b2)) * 0.5f;
+        float c3 = (dx * ay - ax * dy) * sign - (Math.abs(a3) + Math.abs(b3)) * 0.5f;
+        float dzdx, dzdy;
+        if (Math.abs(abc) >= Math.abs(acd)) {
+            dzdx = ((bz - az) * (cy - ay) - (cz - az) * (by - ay)) / abc;
+            dzdy = ((cz - az) * (bx - ax) - (bz - az) * (cx - ax)) / abc;
+        } else {
+            dzdx = ((cz - az) * (dy - ay) - (dz - az) * (cy - ay)) / acd;
+            dzdy = ((dz - az) * (cx - ax) - (cz - az) * (dx - ax)) / acd;
+        }
+        float zc = az - dzdx * ax - dzdy * ay + (Math.abs(dzdx) + Math.abs(dzdy)) * 0.5f;
+
+        // Pixels lying entirely within the face's bounding rectangle.
+        int minX = Math.max(x0, (int) Math.ceil(Math.min(Math.min(ax, bx), Math.min(cx, dx))));
+        int maxX = Math.min(x1 - 1, (int) Math.floor(Math.max(Math.max(ax, bx), Math.max(cx, dx))) - 1);
+        int minY = Math.max(y0, (int) Math.ceil(Math.min(Math.min(ay, by), Math.min(cy, dy))));
+        int maxY = Math.min(y1 - 1, (int) Math.floor(Math.max(Math.max(ay, by), Math.max(cy, dy))) - 1);
+        float[] d = depth;
+        for (int y = minY; y <= maxY; y++) {
+            float fy = y + 0.5f;
+            float r0 = b0 * fy + c0, r1 = b1 * fy + c1, r2 = b2 * fy + c2, r3 = b3 * fy + c3, rz = dzdy * fy + zc;
+            int row = y * width;
+            for (int x = minX; x <= maxX; x++) {
+                float fx = x + 0.5f;
+                float inside = Math.min(Math.min(a0 * fx + r0, a1 * fx + r1), Math.min(a2 * fx + r2, a3 * fx + r3));
+                float z = dzdx * fx + rz;
+                float current = d[row + x];
+                d[row + x] = inside >= 0 && z < current ? z : current;
+            }
+        }
+    }
+
+    /**
+     * Tests an axis-aligned box in world space against the rasterized occluders.
+     *
+     * @param min The minimum corner of the box.
+     * @param max The maximum corner of the box.
+     * @return False if the occluders hide the whole box.
+     */
+    public boolean isVisible(Vector3f min, Vector3f max) {
+        return isVisible(min.x, min.y, min.z, max.x, max.y, max.z);
+    }
+
+    /**
+     * Tests an axis-aligned box in world space against the rasterized occluders. The test is
+     * conservative: the box is hidden only if every pixel of its screen rectangle holds a depth
+     * nearer than its nearest corner. Boxes reaching in front of the near plane are visible.
+     *
+     * @param minX The minimum x coordinate of the box.
+     * @param minY The minimum y coordinate of the box.
+     * @param minZ The minimum z coordinate of the box.
+     * @param maxX The maximum x coordinate of the box.
+     * @param maxY The maximum y coordinate of the box.
+     * @param maxZ The maximum z coordinate of the box.
+     * @return False if the occluders hide the whole box.
+     */
+    public boolean isVisible(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        Matrix4f m = projectionView;
+        float left = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = Float.MAX_VALUE, top = -Float.MAX_VALUE;
+        float nearest = Float.MAX_VALUE;
+        for (int corner = 0; corner < 8; corner++) {
+            float x = (corner & 1) != 0 ? maxX : minX;
+            float y = (corner & 2) != 0 ? maxY : minY;
+            float z = (corner & 4) != 0 ? maxZ : minZ;
+            float cz = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+            float cw = m.m03() * x + m.m13() * y + m.m23() * z + m.m33();
+            if (cz < -cw)
+                return true;
+            float cx = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+            float cy = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+            float sx = (cx / cw * 0.5f + 0.5f) * width, sy = (cy / cw * 0.5f + 0.5f) * height;
+            left = Math.min(left, sx);
+            right = Math.max(right, sx);
+            bottom = Math.min(bottom, sy);
+            top = Math.max(top, sy);
+            nearest = Math.min(nearest, cz / cw * 0.5f + 0.5f);
+        }
+        int px0 = Math.max(0, (int) Math.floor(left)), px1 = Math.min(width - 1, (int) Math.floor(right));
+        int py0 = Math.max(0, (int) Math.floor(bottom)), py1 = Math.min(height - 1, (int) Math.floor(top));
+        if (px0 > px1 || py0 > py1)
+            return true; // Off the buffer; the frustum decides.
+
+        for (int by = py0 / BLOCK_SIZE; by <= py1 / BLOCK_SIZE; by++) {
+            for (int bx = px0 / BLOCK_SIZE; bx <= px1 / BLOCK_SIZE; bx++) {
+                if (blockDepth[by * blocksX + bx] < nearest)
+                    continue; // Every pixel of the block is nearer than the box.
+                int ys = Math.max(py0, by * BLOCK_SIZE), ye = Math.min(py1, by * BLOCK_SIZE + BLOCK_SIZE - 1);
+                int xs = Math.max(px0, bx * BLOCK_SIZE), xe = Math.min(px1, bx * BLOCK_SIZE + BLOCK_SIZE - 1);
+                for (int y = ys; y <= ye; y++) {
+                    int row = y * width;
+                    for (int x = xs; x <= xe; x++) {
+                        if (depth[row + x] >= nearest)
+                            return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of faces binned since the last {@link #begin}, after clipping.
+     *
+     * @return The face count.
+     */
+    public int getFaceCount() {
+        return faces.size() / FACE_FLOATS;
+    }
+
+    /**
+     * Gets the depth of a pixel after the last {@link #rasterize()}.
+     *
+     * @param x The column, from the left.
+     * @param y The row, from the bottom.
+     * @return The window depth, 1 where no occluder was drawn.
+     */
+    public float getDepth(int x, int y) {
+        return depth[y * width + x];
+    }
+
+    /**
+     * Gets the width of the depth buffer.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the depth buffer.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -1,15 +1,27 @@
 package Core.Entities;
 
+import org.joml.Matrix3f;
 import org.joml.Vector3f;
 
 /**
  * The Entity class represents an object in a 3D space with a model, position, rotation, and scale.
+ * The entity caches the world-space bounds of its model and recomputes them only after its
+ * transform changed through one of its setters. Each change also bumps a transform version,
+ * which lets a retained render list recompute the model matrix only of entities that moved.
  */
 public class Entity {
 
     private Model model;
     private Vector3f pos, rotation;
     private float scale;
+    private int lod;
+    private final Vector3f worldCenter = new Vector3f();
+    private final Vector3f worldMin = new Vector3f();
+    private final Vector3f worldMax = new Vector3f();
+    private float worldRadius;
+    private boolean boundsDirty = true;
+    private int transformVersion;
+    private int renderSlot = -1;
 
     /**
      * Constructs a new Entity with the specified parameters.
@@ -37,6 +49,7 @@ public class Entity {
         this.pos.x += x;
         this.pos.y += y;
         this.pos.z += z;
+        transformChanged();
     }
 
     /**
@@ -50,6 +63,7 @@ public class Entity {
         this.pos.x = x;
         this.pos.y = y;
         this.pos.z = z;
+        transformChanged();
     }
 
     /**
@@ -63,6 +77,7 @@ public class Entity {
         this.rotation.x += x;
         this.rotation.y += y;
         this.rotation.z += z;
+        transformChanged();
     }
 
     /**
@@ -76,6 +91,7 @@ public class Entity {
         this.rotation.x = x;
         this.rotation.y = y;
         this.rotation.z = z;
+        transformChanged();
     }
 
     /**
@@ -113,4 +129,133 @@ public class Entity {
     public float getScale() {
         return scale;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the level of detail the entity was last drawn with.
+     *
+     * @return The level of detail, 0 being the full model.
+     */
+    public int getLod() {
+        return lod;
+    }
+
+    /**
+     * Sets the level of detail the entity is drawn with.
+     *
+     * @param lod The level of detail, 0 being the full model.
+     */
+    public void setLod(int lod) {
+        this.lod = lod;
+    }
+
+    /**
+     * Marks the world-space bounds and the transform as stale. Only needed after changing the
+     * vectors returned by {@link #getPos()} or {@link #getRotation()} directly; the setters do it
+     * themselves.
+     */
+    public void invalidateBounds() {
+        transformChanged();
+    }
+
+    private void transformChanged() {
+        boundsDirty = true;
+        transformVersion++;
+    }
+
+    /**
+     * Gets a counter that changes whenever the transform changes, so that a renderer keeping
+     * the entity's model matrix can tell whether it is still current.
+     *
+     * @return The transform version.
+     */
+    public int getTransformVersion() {
+        return transformVersion;
+    }
+
+    /**
+     * Gets the slot of the entity in a renderer's retained render list.
+     *
+     * @return The slot, or -1 if the entity is not retained.
+     */
+    public int getRenderSlot() {
+        return renderSlot;
+    }
+
+    /**
+     * Sets the slot of the entity in a renderer's retained render list. Only called by the list.
+     *
+     * @param renderSlot The slot, or -1 once the entity is removed.
+     */
+    public void setRenderSlot(int renderSlot) {
+        this.renderSlot = renderSlot;
+    }
+
+    /**
+     * Gets the center of the model's bounding sphere in world space.
+     *
+     * @return The bounding sphere center; must not be modified.
+     */
+    public Vector3f getWorldCenter() {
+        updateBounds();
+        return worldCenter;
+    }
+
+    /**
+     * Gets the radius of the model's bounding sphere in world space.
+     *
+     * @return The bounding sphere radius.
+     */
+    public float getWorldRadius() {
+        updateBounds();
+        return worldRadius;
+    }
+
+    /**
+     * Gets the minimum corner of the world-space axis-aligned box enclosing the model's bounding box.
+     *
+     * @return The bounding box minimum; must not be modified.
+     */
+    public Vector3f getWorldMin() {
+        updateBounds();
+        return worldMin;
+    }
+
+    /**
+     * Gets the maximum corner of the world-space axis-aligned box enclosing the model's bounding box.
+     *
+     * @return The bounding box maximum; must not be modified.
+     */
+    public Vector3f getWorldMax() {
+        updateBounds();
+        return worldMax;
+    }
+
+    /**
+     * Transforms the model's bounds the way {@code Transformation.createTransformationMatrix}
+     * transforms its vertices: scale, rotate Z, Y, X, translate. The box is transformed by its
+     * center and half extents, each extent of the new box being the absolute rotation applied
+     * to the old extents.
+     */
+    private void updateBounds() {
+        if (!boundsDirty)
+            return;
+        Matrix3f rotate = new Matrix3f().rotationX((float) Math.toRadians(rotation.x))
+                .rotateY((float) Math.toRadians(rotation.y))
+                .rotateZ((float) Math.toRadians(rotation.z));
+        float absScale = Math.abs(scale);
+
+        rotate.transform(worldCenter.set(model.getBoundsCenter()).mul(scale)).add(pos);
+        worldRadius = model.getBoundsRadius() * absScale;
+
+        Vector3f min = model.getBoundsMin(), max = model.getBoundsMax();
+        float cx = (min.x + max.x) / 2 * scale, cy = (min.y + max.y) / 2 * scale, cz = (min.z + max.z) / 2 * scale;
+        float ex = (max.x - min.x) / 2 * absScale, ey = (max.y - min.y) / 2 * absScale, ez = (max.z - min.z) / 2 * absScale;
+        Vector3f center = rotate.transform(new Vector3f(cx, cy, cz)).add(pos);
+        float wx = Math.abs(rotate.m00) * ex + Math.abs(rotate.m10) * ey + Math.abs(rotate.m20) * ez;
+        float wy = Math.abs(rotate.m01) * ex + Math.abs(rotate.m11) * ey + Math.abs(rotate.m21) * ez;
+        float wz = Math.abs(rotate.m02) * ex + Math.abs(rotate.m12) * ey + Math.abs(rotate.m22) * ez;
+        worldMin.set(center.x - wx, center.y - wy, center.z - wz);
+        worldMax.set(center.x + wx, center.y + wy, center.z + wz);
+        boundsDirty = false;
+    }
+}
@@ -2,15 +2,28 @@
 package Core.Entities;
 
 import Core.Materials.Material;
+import Core.Meshes.VertexLayout;
+import org.joml.Vector3f;
 
 /**
  * The Model class represents a 3D model with an ID, vertex count, and associated material.
+ * A model may hold several levels of detail in its index buffer, finest first, together with
+ * its bounds in model space: an axis-aligned bounding box and a bounding sphere, computed once
+ * when the mesh is imported, from which each {@link Entity} derives its world-space bounds.
  */
 public class Model {
 
     private int id;
     private int vertexCount;
     private Material material;
+    private int[] lodOffsets;
+    private Vector3f boundsMin = new Vector3f();
+    private Vector3f boundsMax = new Vector3f();
+    private Vector3f boundsCenter;
+    private float boundsRadius;
+    private VertexLayout vertexLayout = VertexLayout.SEPARATE;
+    private Vector3f positionScale = new Vector3f(1, 1, 1);
+    private Vector3f positionOffset = new Vector3f();
 
     /**
      * Constructs a new Model with the specified ID and vertex count.
@@ -22,6 +35,47 @@ public class Model {
         this.id = id;
         this.vertexCount = vertexCount;
         this.material = new Material();
+        this.lodOffsets = new int[]{0, vertexCount};
+        this.boundsCenter = new Vector3f();
+    }
+
+    /**
+     * Constructs a new Model with several levels of detail in one index buffer.
+     *
+     * @param id          The unique identifier for the model.
+     * @param lodOffsets  The index offset of every level, finest first, followed by the total index count.
+     * @param bounds      The bounding box of the positions: minimum x, y, z followed by maximum x, y, z.
+     */
+    public Model(int id, int[] lodOffsets, float[] bounds) {
+        this(id, lodOffsets, bounds, boxSphere(bounds));
+    }
+
+    /**
+     * Constructs a new Model with several levels of detail in one index buffer and a bounding
+     * sphere tighter than the one around its bounding box.
+     *
+     * @param id          The unique identifier for the model.
+     * @param lodOffsets  The index offset of every level, finest first, followed by the total index count.
+     * @param bounds      The bounding box of the positions: minimum x, y, z followed by maximum x, y, z.
+     * @param sphere      The bounding sphere of the positions: center x, y, z followed by the radius.
+     */
+    public Model(int id, int[] lodOffsets, float[] bounds, float[] sphere) {
+        this.id = id;
+        this.vertexCount = lodOffsets[1] - lodOffsets[0];
+        this.material = new Material();
+        this.lodOffsets = lodOffsets;
+        this.boundsMin = new Vector3f(bounds[0], bounds[1], bounds[2]);
+        this.boundsMax = new Vector3f(bounds[3], bounds[4], bounds[5]);
+        this.boundsCenter = new Vector3f(sphere[0], sphere[1], sphere[2]);
+        this.boundsRadius = sphere[3];
+    }
+
+    /**
+     * Computes the sphere through the corners of a bounding box.
+     */
+    private static float[] boxSphere(float[] bounds) {
+        float x = (bounds[3] - bounds[0]) / 2, y = (bounds[4] - bounds[1]) / 2, z = (bounds[5] - bounds[2]) / 2;
+        return new float[]{bounds[0] + x, bounds[1] + y, bounds[2] + z, (float) Math.sqrt(x * x + y * y + z * z)};
     }
 
     /**
@@ -35,6 +89,8 @@ public class Model {
         this.id = id;
         this.vertexCount = vertexCount;
         this.material = material;
+        this.lodOffsets = new int[]{0, vertexCount};
+        this.boundsCenter = new Vector3f();
     }
 
     /**
@@ -48,6 +104,14 @@ public class Model {
         this.vertexCount = model.getVertexCount();
         this.material = model.getMaterial();
         this.material.setTexture(texture);
+        this.lodOffsets = model.lodOffsets;
+        this.boundsMin = model.boundsMin;
+        this.boundsMax = model.boundsMax;
+        this.boundsCenter = model.boundsCenter;
+        this.boundsRadius = model.boundsRadius;
+        this.vertexLayout = model.vertexLayout;
+        this.positionScale = model.positionScale;
+        this.positionOffset = model.positionOffset;
     }
 
     /**
@@ -95,6 +159,15 @@ public class Model {
         return id;
     }
 
+    /**
+     * Sets the ID of the model, when its GPU memory was reloaded after an eviction.
+     *
+     * @param id The new ID of the model.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Gets the number of vertices in the model.
      *
@@ -104,6 +177,112 @@ public class Model {
         return vertexCount;
     }
 
+    /**
+     * Gets the number of levels of detail in the model's index buffer.
+     *
+     * @return The level count, at least 1.
+     */
+    public int getLodCount() {
+        return lodOffsets.length - 1;
+    }
+
+    /**
+     * Gets the first index of a level of detail.
+     *
+     * @param level The level, 0 being the full model.
+     * @return The index offset of the level.
+     */
+    public int getLodIndexOffset(int level) {
+        return lodOffsets[level];
+    }
+
+    /**
+     * Gets the number of indices of a level of detail.
+     *
+     * @param level The level, 0 being the full model.
+     * @return The index count of the level.
+     */
+    public int getLodIndexCount(int level) {
+        return lodOffsets[level + 1] - lodOffsets[level];
+    }
+
+    /**
+     * Gets the minimum corner of the model's bounding box in model space.
+     *
+     * @return The bounding box minimum, (0, 0, 0) if the bounds are unknown.
+     */
+    public Vector3f getBoundsMin() {
+        return boundsMin;
+    }
+
+    /**
+     * Gets the maximum corner of the model's bounding box in model space.
+     *
+     * @return The bounding box maximum, (0, 0, 0) if the bounds are unknown.
+     */
+    public Vector3f getBoundsMax() {
+        return boundsMax;
+    }
+
+    /**
+     * Gets the center of the model's bounding sphere in model space.
+     *
+     * @return The bounding sphere center.
+     */
+    public Vector3f getBoundsCenter() {
+        return boundsCenter;
+    }
+
+    /**
+     * Gets the radius of the model's bounding sphere in model space.
+     *
+     * @return The bounding sphere radius, or 0 if the bounds are unknown.
+     */
+    public float getBoundsRadius() {
+        return boundsRadius;
+    }
+
+    /**
+     * Gets the layout the model's vertices are stored in.
+     *
+     * @return The vertex layout.
+     */
+    public VertexLayout getVertexLayout() {
+        return vertexLayout;
+    }
+
+    /**
+     * Sets the layout the model's vertices are stored in, with the transform that restores
+     * quantized positions in the vertex shader.
+     *
+     * @param vertexLayout   The vertex layout.
+     * @param positionScale  The factor stored positions are multiplied with.
+     * @param positionOffset The offset added to scaled positions.
+     */
+    public void setVertexLayout(VertexLayout vertexLayout, Vector3f positionScale, Vector3f positionOffset) {
+        this.vertexLayout = vertexLayout;
+        this.positionScale = positionScale;
+        this.positionOffset = positionOffset;
+    }
+
+    /**
+     * Gets the factor the vertex shader multiplies stored positions with.
+     *
+     * @return The position scale, (1, 1, 1) for float positions.
+     */
+    public Vector3f getPositionScale() {
+        return positionScale;
+    }
+
+    /**
+     * Gets the offset the vertex shader adds to scaled positions.
+     *
+     * @return The position offset, (0, 0, 0) for float positions.
+     */
+    public Vector3f getPositionOffset() {
+        return positionOffset;
+    }
+
     /**
      * Sets the texture and reflectance for the model's material.
      *
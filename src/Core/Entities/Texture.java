@@ -1,11 +1,14 @@
 package Core.Entities;
 
 /**
- * The Texture class represents a texture used in rendering 3D models.
+ * The Texture class represents a texture used in rendering 3D models. A texture is either a
+ * 2D texture of its own or one layer of a 2D array texture shared with other textures, so that
+ * models using different layers can be drawn without binding another texture in between.
  */
 public class Texture {
 
-    private final int id;
+    private int id;
+    private final int layer;
 
     /**
      * Constructs a new Texture with the specified ID.
@@ -13,7 +16,18 @@ public class Texture {
      * @param id The unique identifier for the texture.
      */
     public Texture(int id) {
+        this(id, -1);
+    }
+
+    /**
+     * Constructs a new Texture for one layer of a 2D array texture.
+     *
+     * @param id    The unique identifier of the array texture.
+     * @param layer The layer of the array holding this texture, or -1 for a plain 2D texture.
+     */
+    public Texture(int id, int layer) {
         this.id = id;
+        this.layer = layer;
     }
 
     /**
@@ -24,4 +38,31 @@ public class Texture {
     public int getId() {
         return id;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the unique identifier of the texture, when its GPU memory was reloaded after an eviction.
+     *
+     * @param id The new ID of the texture.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the layer of the array texture holding this texture.
+     *
+     * @return The layer index, or -1 for a plain 2D texture.
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Checks whether the texture is a layer of a 2D array texture.
+     *
+     * @return True if the texture must be bound to {@code GL_TEXTURE_2D_ARRAY}; false otherwise.
+     */
+    public boolean isArrayLayer() {
+        return layer >= 0;
+    }
+}
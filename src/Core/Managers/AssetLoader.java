@@ -0,0 +1,286 @@
+package Core.Managers;
+
+import Core.Entities.Model;
+import Core.Entities.Texture;
+import Core.Meshes.CompiledMesh;
+import Core.Meshes.MeshCache;
+import Core.Meshes.MeshData;
+import Core.Textures.CompiledTexture;
+import Core.Textures.ImageData;
+import Core.Textures.TextureFormat;
+import Core.Textures.TextureOptions;
+import Core.Utils.Constants;
+import Core.Utils.ResourceBuffer;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The AssetLoader class loads models and textures without blocking the render thread. Reading,
+ * parsing and decoding run on virtual threads; the OpenGL uploads they produce wait in a queue
+ * that the render thread drains once per frame through {@link #processUploads()}, under a time
+ * and byte budget, so large scenes stream in over several frames instead of stalling one.
+ * <p>
+ * Every load returns a future that completes on the render thread right after the upload, so
+ * callbacks attached to it may use OpenGL and modify the scene directly.
+ */
+public class AssetLoader implements TextureSource {
+
+    private final ObjectLoader loader;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Queue<Upload> uploads = new ConcurrentLinkedQueue<>();
+    private long frameBudgetNanos = Constants.UPLOAD_BUDGET_NANOS;
+    private long frameBudgetBytes = Constants.UPLOAD_BUDGET_BYTES;
+    private int lastFrameUploads;
+    private long lastFrameBytes;
+    private long lastFrameNanos;
+
+    /**
+     * A GL upload waiting for the render thread, with the number of bytes it sends to the GPU and
+     * what to do if it is dropped instead.
+     */
+    private static class Upload {
+        private final long bytes;
+        private final Runnable task;
+        private final Runnable discard;
+
+        private Upload(long bytes, Runnable task, Runnable discard) {
+            this.bytes = bytes;
+            this.task = task;
+            this.discard = discard;
+        }
+    }
+
+    /**
+     * The CPU side of an asset: what to upload, how large it is and what to free afterwards.
+     */
+    private static class Prepared<T> {
+        private final long bytes;
+        private final Supplier<T> upload;
+        private final Runnable release;
+
+        private Prepared(long bytes, Supplier<T> upload, Runnable release) {
+            this.bytes = bytes;
+            this.upload = upload;
+            this.release = release;
+        }
+    }
+
+    /**
+     * A worker task that prepares an asset and may throw.
+     */
+    private interface Preparation<T> {
+        Prepared<T> prepare() throws Exception;
+    }
+
+    /**
+     * Constructs a new AssetLoader that uploads through the specified ObjectLoader.
+     *
+     * @param loader The loader that owns the uploaded GL objects.
+     */
+    public AssetLoader(ObjectLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Loads a model from an OBJ file in the background. The compiled mesh is taken from the
+     * loader's mesh cache when one is set; otherwise the file is parsed on the worker.
+     *
+     * @param filename The path to the OBJ file.
+     * @return A future completed with the model once it is on the GPU.
+     */
+    public CompletableFuture<Model> loadOBJModel(String filename) {
+        return submit(() -> {
+            MeshCache cache = loader.getMeshCache();
+            if (cache != null) {
+                CompiledMesh mesh = cache.load(filename, loader::compileOBJ);
+                return new Prepared<>(meshBytes(mesh.getVertexCount(), mesh.getIndexCount()), () -> loader.setSource(loader.loadModel(mesh), filename), null);
+            }
+            MeshData mesh;
+            try (ResourceBuffer resource = ResourceBuffer.open(filename)) {
+                mesh = loader.compileOBJ(resource.getBuffer());
+            }
+            return new Prepared<>(meshBytes(mesh.getVertexCount(), mesh.getIndices().length), () -> loader.setSource(loader.loadModel(mesh), filename), null);
+        });
+    }
+
+    private long meshBytes(int vertexCount, int indexCount) {
+        return (long) vertexCount * loader.getVertexLayout().getBytesPerVertex() + (long) indexCount * Integer.BYTES;
+    }
+
+    /**
+     * Loads a texture from an image file in the background.
+     *
+     * @param filename The path to the image file.
+     * @return A future completed with the texture once it is on the GPU.
+     */
+    public CompletableFuture<Texture> loadTexture(String filename) {
+        return loadTexture(filename, TextureOptions.DEFAULT);
+    }
+
+    /**
+     * Loads a texture from an image file in the background. When the loader compiles textures,
+     * the texture is compiled, or taken from the texture cache, on the worker.
+     *
+     * @param filename The path to the image file.
+     * @param options  The filtering and mipmap options.
+     * @return A future completed with the texture once it is on the GPU.
+     */
+    @Override
+    public CompletableFuture<Texture> loadTexture(String filename, TextureOptions options) {
+        TextureFormat format = loader.getTextureFormat();
+        if (loader.compilesTextures()) {
+            return submit(() -> {
+                CompiledTexture texture = loader.compileTexture(filename, format, 0, 0);
+                return new Prepared<>(texture.getLevelsSize(), () -> loader.setSource(new Texture(loader.loadTexture(texture, options)), filename, options), null);
+            });
+        }
+        return submit(() -> {
+            ImageData image = ImageData.decode(filename);
+            long bytes = (long) image.getWidth() * image.getHeight() * 4;
+            return new Prepared<>(bytes, () -> loader.setSource(new Texture(loader.loadTexture(image, options)), filename, options), image::free);
+        });
+    }
+
+    /**
+     * Builds a texture array in the background: the builder's images are decoded, resampled and
+     * compiled on a worker, and the layers are uploaded on the render thread.
+     *
+     * @param builder The builder holding the layers; must not be used until the future completes.
+     * @return A future completed with the textures of {@link TextureArrayBuilder#build()} once they are on the GPU.
+     */
+    public CompletableFuture<Texture[]> loadTextureArray(TextureArrayBuilder builder) {
+        return submit(() -> {
+            builder.compile();
+            return new Prepared<>(builder.getBytes(), () -> {
+                try {
+                    return builder.build();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, null);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Preparation<T> preparation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        workers.execute(() -> {
+            Prepared<T> prepared;
+            try {
+                prepared = preparation.prepare();
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            uploads.add(new Upload(prepared.bytes, () -> {
+                try {
+                    result.complete(prepared.upload.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    if (prepared.release != null)
+                        prepared.release.run();
+                }
+            }, () -> {
+                if (prepared.release != null)
+                    prepared.release.run();
+                result.cancel(false);
+            }));
+        });
+        return result;
+    }
+
+    /**
+     * Runs queued uploads until the frame's time or byte budget is spent. At least one upload
+     * runs per call, so an asset larger than the byte budget still gets through. Must be called
+     * on the render thread.
+     */
+    public void processUploads() {
+        long start = System.nanoTime();
+        long bytes = 0;
+        int count = 0;
+        Upload upload;
+        while ((upload = uploads.peek()) != null) {
+            if (count > 0 && (System.nanoTime() - start >= frameBudgetNanos || bytes + upload.bytes > frameBudgetBytes))
+                break;
+            uploads.poll();
+            upload.task.run();
+            bytes += upload.bytes;
+            count++;
+        }
+        lastFrameUploads = count;
+        lastFrameBytes = bytes;
+        lastFrameNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Sets the budget {@link #processUploads()} spends per frame.
+     *
+     * @param nanos The time budget in nanoseconds.
+     * @param bytes The byte budget.
+     */
+    public void setFrameBudget(long nanos, long bytes) {
+        this.frameBudgetNanos = nanos;
+        this.frameBudgetBytes = bytes;
+    }
+
+    /**
+     * Gets the number of prepared assets waiting for upload.
+     *
+     * @return The pending upload count.
+     */
+    public int getPendingUploads() {
+        return uploads.size();
+    }
+
+    /**
+     * Gets the number of uploads the last call to {@link #processUploads()} ran.
+     *
+     * @return The upload count of the last frame.
+     */
+    public int getLastFrameUploads() {
+        return lastFrameUploads;
+    }
+
+    /**
+     * Gets the number of bytes the last call to {@link #processUploads()} sent to the GPU.
+     *
+     * @return The uploaded bytes of the last frame.
+     */
+    public long getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    /**
+     * Gets the time the last call to {@link #processUploads()} took.
+     *
+     * @return The upload time of the last frame in nanoseconds.
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    /**
+     * Stops the workers, waits for them to finish, and frees the assets that were prepared but
+     * never uploaded.
+     */
+    public void cleanup() {
+        workers.shutdownNow();
+        try {
+            // A worker finishing its decode after the drain would leak what it queues.
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS))
+                System.err.println("Asset workers did not stop; their assets may leak");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Upload upload;
+        while ((upload = uploads.poll()) != null)
+            upload.discard.run();
+    }
+}
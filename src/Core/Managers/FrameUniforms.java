@@ -0,0 +1,150 @@
+package Core.Managers;
+
+import Core.Lightning.DirectionalLight;
+import Core.Lightning.PointLight;
+import Core.Lightning.SpotLight;
+import Core.Utils.Constants;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The FrameUniforms class holds the data every shader program reads and that changes at most
+ * once per frame: the camera matrices and the lights. Each is a std140 uniform block, kept in a
+ * uniform buffer bound to a fixed binding point, so it is written with one upload per frame
+ * rather than one {@code glUniform} call per value and program.
+ * <p>
+ * The blocks are laid out as {@code Camera} in the vertex shaders and {@code Lights} in
+ * fragment.fs; the offsets below follow the std140 rules for those declarations. Both are
+ * staged in one off-heap buffer allocated once.
+ */
+public class FrameUniforms {
+
+    /** The uniform buffer binding point of the Camera block. */
+    public static final int CAMERA_BINDING = 0;
+    /** The uniform buffer binding point of the Lights block. */
+    public static final int LIGHTS_BINDING = 1;
+
+    private static final int CAMERA_BYTES = 2 * 16 * Float.BYTES;
+    private static final int DIRECTIONAL_LIGHT_OFFSET = 16;
+    private static final int LIGHT_COUNTS_OFFSET = 48;
+    private static final int POINT_LIGHTS_OFFSET = 64;
+    private static final int POINT_LIGHT_BYTES = 48;
+    private static final int SPOT_LIGHTS_OFFSET = POINT_LIGHTS_OFFSET + Constants.MAX_POINT_LIGHTS * POINT_LIGHT_BYTES;
+    private static final int SPOT_LIGHT_BYTES = 64;
+    private static final int LIGHTS_BYTES = SPOT_LIGHTS_OFFSET + Constants.MAX_SPOT_LIGHTS * SPOT_LIGHT_BYTES;
+
+    private final int cameraBuffer;
+    private final int lightsBuffer;
+    private final ByteBuffer data;
+
+    /**
+     * Constructs a new FrameUniforms, creating its uniform buffers.
+     */
+    public FrameUniforms() {
+        cameraBuffer = createBuffer(CAMERA_BYTES);
+        lightsBuffer = createBuffer(LIGHTS_BYTES);
+        data = MemoryUtil.memCalloc(LIGHTS_BYTES);
+    }
+
+    private static int createBuffer(int size) {
+        int buffer = GL15.glGenBuffers();
+        GLState.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, size, GL15.GL_DYNAMIC_DRAW);
+        GLState.bindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        return buffer;
+    }
+
+    /**
+     * Connects the Camera and Lights blocks of a program to the binding points of the buffers.
+     *
+     * @param shader The linked shader program.
+     * @throws Exception If the program lacks one of the blocks.
+     */
+    public void bind(ShaderManager shader) throws Exception {
+        shader.bindUniformBlock("Camera", CAMERA_BINDING);
+        shader.bindUniformBlock("Lights", LIGHTS_BINDING);
+    }
+
+    /**
+     * Writes the camera block.
+     *
+     * @param projection The projection matrix.
+     * @param view       The view matrix.
+     */
+    public void setCamera(Matrix4f projection, Matrix4f view) {
+        data.clear();
+        projection.get(0, data);
+        view.get(16 * Float.BYTES, data);
+        upload(cameraBuffer, CAMERA_BINDING, CAMERA_BYTES);
+    }
+
+    /**
+     * Writes the lights block. Lights beyond {@link Constants#MAX_POINT_LIGHTS} and
+     * {@link Constants#MAX_SPOT_LIGHTS} are ignored.
+     *
+     * @param ambientLight     The ambient light color.
+     * @param specularPower    The specular exponent.
+     * @param directionalLight The directional light, or null for none.
+     * @param pointLights      The point lights, or null for none.
+     * @param spotLights       The spot lights, or null for none.
+     */
+    public void setLights(Vector3f ambientLight, float specularPower, DirectionalLight directionalLight,
+                          PointLight[] pointLights, SpotLight[] spotLights) {
+        data.clear();
+        ambientLight.get(0, data);
+        data.putFloat(12, specularPower);
+        if (directionalLight != null) {
+            directionalLight.getColor().get(DIRECTIONAL_LIGHT_OFFSET, data);
+            directionalLight.getDirection().get(DIRECTIONAL_LIGHT_OFFSET + 16, data);
+            data.putFloat(DIRECTIONAL_LIGHT_OFFSET + 28, directionalLight.getIntensity());
+        } else {
+            data.putFloat(DIRECTIONAL_LIGHT_OFFSET + 28, 0);
+        }
+        int pointCount = pointLights != null ? Math.min(pointLights.length, Constants.MAX_POINT_LIGHTS) : 0;
+        int spotCount = spotLights != null ? Math.min(spotLights.length, Constants.MAX_SPOT_LIGHTS) : 0;
+        data.putInt(LIGHT_COUNTS_OFFSET, pointCount);
+        data.putInt(LIGHT_COUNTS_OFFSET + 4, spotCount);
+        for (int i = 0; i < pointCount; i++)
+            putPointLight(POINT_LIGHTS_OFFSET + i * POINT_LIGHT_BYTES, pointLights[i]);
+        for (int i = 0; i < spotCount; i++) {
+            int at = SPOT_LIGHTS_OFFSET + i * SPOT_LIGHT_BYTES;
+            putPointLight(at, spotLights[i].getPointLight());
+            spotLights[i].getConeDirection().get(at + POINT_LIGHT_BYTES, data);
+            data.putFloat(at + POINT_LIGHT_BYTES + 12, spotLights[i].getCutOff());
+        }
+        upload(lightsBuffer, LIGHTS_BINDING, LIGHTS_BYTES);
+    }
+
+    private void putPointLight(int at, PointLight light) {
+        light.getColor().get(at, data);
+        light.getPosition().get(at + 16, data);
+        data.putFloat(at + 28, light.getIntensity());
+        data.putFloat(at + 32, light.getConstant());
+        data.putFloat(at + 36, light.getLinear());
+        data.putFloat(at + 40, light.getExponent());
+    }
+
+    private void upload(int buffer, int binding, int size) {
+        data.limit(size);
+        GLState.bindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+        // Orphan last frame's storage rather than wait for the draws still reading it.
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, size, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+        GLState.bindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        GLState.bindBufferBase(GL31.GL_UNIFORM_BUFFER, binding, buffer);
+    }
+
+    /**
+     * Deletes the uniform buffers and frees the staging buffer.
+     */
+    public void cleanup() {
+        GLState.deleteBuffer(cameraBuffer);
+        GLState.deleteBuffer(lightsBuffer);
+        MemoryUtil.memFree(data);
+    }
+}
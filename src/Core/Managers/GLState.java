@@ -0,0 +1,343 @@
+package Core.Managers;
+
+import Core.Utils.Constants;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import java.util.Arrays;
+
+/**
+ * The GLState class tracks the OpenGL state the engine changes, the current program, vertex
+ * array, buffer bindings, texture bindings per unit and enabled capabilities, and drops calls
+ * that would set a value already set. The managers make these calls through it rather than
+ * through LWJGL directly, so the tracked state stays that of the context; state changed behind
+ * its back can be forgotten with {@link #invalidate()}.
+ * <p>
+ * The element array buffer binding belongs to the vertex array, so it is forgotten whenever the
+ * vertex array changes. Deleting an object through this class resets the bindings GL resets.
+ * <p>
+ * It tracks the single context of the render thread and is not thread-safe. In debug mode
+ * ({@link Constants#GL_STATE_DEBUG}) {@link #endFrame()} logs the state changes issued and
+ * removed in each frame.
+ */
+public class GLState {
+
+    private static final int UNKNOWN = -1;
+    private static final int TEXTURE_UNITS = 32;
+    private static final int MAX_TARGETS = 16;
+
+    private static int program = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int activeTexture = UNKNOWN;
+    private static final int[] textures2D = new int[TEXTURE_UNITS];
+    private static final int[] textureArrays = new int[TEXTURE_UNITS];
+    private static final int[] bufferTargets = new int[MAX_TARGETS];
+    private static final int[] buffers = new int[MAX_TARGETS];
+    private static int bufferTargetCount;
+    private static final int[] capabilities = new int[MAX_TARGETS];
+    private static final byte[] enabled = new byte[MAX_TARGETS];
+    private static int capabilityCount;
+    private static boolean debug = Constants.GL_STATE_DEBUG;
+    private static int issued;
+    private static int skipped;
+
+    static {
+        invalidate();
+    }
+
+    private GLState() {
+    }
+
+    /**
+     * Forgets all tracked state, so that the next call of each kind is issued.
+     */
+    public static void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeTexture = UNKNOWN;
+        Arrays.fill(textures2D, UNKNOWN);
+        Arrays.fill(textureArrays, UNKNOWN);
+        bufferTargetCount = 0;
+        capabilityCount = 0;
+    }
+
+    private static boolean change(boolean changed) {
+        if (changed)
+            issued++;
+        else
+            skipped++;
+        return changed;
+    }
+
+    /**
+     * Makes a program current.
+     *
+     * @param id The OpenGL ID of the program, or 0.
+     */
+    public static void useProgram(int id) {
+        if (change(program != id)) {
+            GL20.glUseProgram(id);
+            program = id;
+        }
+    }
+
+    /**
+     * Binds a vertex array.
+     *
+     * @param id The OpenGL ID of the vertex array, or 0.
+     */
+    public static void bindVertexArray(int id) {
+        if (change(vertexArray != id)) {
+            GL30.glBindVertexArray(id);
+            vertexArray = id;
+            setBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+        }
+    }
+
+    /**
+     * Binds a buffer to a target.
+     *
+     * @param target The binding target.
+     * @param id     The OpenGL ID of the buffer, or 0.
+     */
+    public static void bindBuffer(int target, int id) {
+        if (change(getBuffer(target) != id)) {
+            GL15.glBindBuffer(target, id);
+            setBuffer(target, id);
+        }
+    }
+
+    /**
+     * Binds a buffer to an indexed binding point. This also binds it to the target itself. The
+     * indexed bindings are not tracked, so the call is always issued.
+     *
+     * @param target The indexed binding target.
+     * @param index  The binding point.
+     * @param id     The OpenGL ID of the buffer.
+     */
+    public static void bindBufferBase(int target, int index, int id) {
+        change(true);
+        GL30.glBindBufferBase(target, index, id);
+        setBuffer(target, id);
+    }
+
+    /**
+     * Binds a range of a buffer to an indexed binding point. This also binds the buffer to the
+     * target itself. The indexed bindings are not tracked, so the call is always issued.
+     *
+     * @param target The indexed binding target.
+     * @param index  The binding point.
+     * @param id     The OpenGL ID of the buffer.
+     * @param offset The offset of the range in bytes.
+     * @param size   The size of the range in bytes.
+     */
+    public static void bindBufferRange(int target, int index, int id, long offset, long size) {
+        change(true);
+        GL30.glBindBufferRange(target, index, id, offset, size);
+        setBuffer(target, id);
+    }
+
+    private static int getBuffer(int target) {
+        for (int i = 0; i < bufferTargetCount; i++) {
+            if (bufferTargets[i] == target)
+                return buffers[i];
+        }
+        return UNKNOWN;
+    }
+
+    private static void setBuffer(int target, int id) {
+        for (int i = 0; i < bufferTargetCount; i++) {
+            if (bufferTargets[i] == target) {
+                buffers[i] = id;
+                return;
+            }
+        }
+        if (bufferTargetCount < MAX_TARGETS) {
+            bufferTargets[bufferTargetCount] = target;
+            buffers[bufferTargetCount++] = id;
+        }
+    }
+
+    /**
+     * Selects the active texture unit.
+     *
+     * @param unit The unit, as {@code GL_TEXTURE0 + i}.
+     */
+    public static void activeTexture(int unit) {
+        if (change(activeTexture != unit)) {
+            GL13.glActiveTexture(unit);
+            activeTexture = unit;
+        }
+    }
+
+    /**
+     * Binds a texture to the active texture unit.
+     *
+     * @param target The texture target.
+     * @param id     The OpenGL ID of the texture, or 0.
+     * @return True if the binding changed.
+     */
+    public static boolean bindTexture(int target, int id) {
+        int[] bound = textureBindings(target);
+        int unit = activeTexture - GL13.GL_TEXTURE0;
+        if (bound == null || activeTexture == UNKNOWN || unit >= TEXTURE_UNITS) {
+            change(true);
+            GL11.glBindTexture(target, id);
+            return true;
+        }
+        if (!change(bound[unit] != id))
+            return false;
+        GL11.glBindTexture(target, id);
+        bound[unit] = id;
+        return true;
+    }
+
+    /**
+     * Binds a texture to a texture unit, selecting the unit first if needed.
+     *
+     * @param unit   The unit, as {@code GL_TEXTURE0 + i}.
+     * @param target The texture target.
+     * @param id     The OpenGL ID of the texture, or 0.
+     * @return True if the binding changed.
+     */
+    public static boolean bindTexture(int unit, int target, int id) {
+        int[] bound = textureBindings(target);
+        int index = unit - GL13.GL_TEXTURE0;
+        if (bound != null && index < TEXTURE_UNITS && bound[index] == id) {
+            skipped++;
+            return false;
+        }
+        activeTexture(unit);
+        return bindTexture(target, id);
+    }
+
+    private static int[] textureBindings(int target) {
+        if (target == GL11.GL_TEXTURE_2D)
+            return textures2D;
+        if (target == GL30.GL_TEXTURE_2D_ARRAY)
+            return textureArrays;
+        return null;
+    }
+
+    /**
+     * Enables a capability.
+     *
+     * @param capability The capability.
+     */
+    public static void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    /**
+     * Disables a capability.
+     *
+     * @param capability The capability.
+     */
+    public static void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    private static void setCapability(int capability, boolean enable) {
+        int index = 0;
+        while (index < capabilityCount && capabilities[index] != capability)
+            index++;
+        byte state = (byte) (enable ? 1 : 0);
+        if (index < capabilityCount && !change(enabled[index] != state))
+            return;
+        if (index == capabilityCount) {
+            change(true);
+            if (capabilityCount < MAX_TARGETS) {
+                capabilities[index] = capability;
+                capabilityCount++;
+            }
+        }
+        if (index < MAX_TARGETS)
+            enabled[index] = state;
+        if (enable)
+            GL11.glEnable(capability);
+        else
+            GL11.glDisable(capability);
+    }
+
+    /**
+     * Deletes a buffer, forgetting the bindings it had.
+     *
+     * @param id The OpenGL ID of the buffer.
+     */
+    public static void deleteBuffer(int id) {
+        GL15.glDeleteBuffers(id);
+        for (int i = 0; i < bufferTargetCount; i++) {
+            if (buffers[i] == id)
+                buffers[i] = 0;
+        }
+    }
+
+    /**
+     * Deletes a vertex array, forgetting the binding it had.
+     *
+     * @param id The OpenGL ID of the vertex array.
+     */
+    public static void deleteVertexArray(int id) {
+        GL30.glDeleteVertexArrays(id);
+        if (vertexArray == id) {
+            vertexArray = 0;
+            setBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+        }
+    }
+
+    /**
+     * Deletes a texture, forgetting the bindings it had.
+     *
+     * @param id The OpenGL ID of the texture.
+     */
+    public static void deleteTexture(int id) {
+        GL11.glDeleteTextures(id);
+        for (int i = 0; i < TEXTURE_UNITS; i++) {
+            if (textures2D[i] == id)
+                textures2D[i] = 0;
+            if (textureArrays[i] == id)
+                textureArrays[i] = 0;
+        }
+    }
+
+    /**
+     * Ends a frame: logs the state changes issued and removed in it when in debug mode, and
+     * resets the counters.
+     */
+    public static void endFrame() {
+        if (debug)
+            System.out.println("GL state changes: " + issued + " issued, " + skipped + " redundant removed");
+        issued = 0;
+        skipped = 0;
+    }
+
+    /**
+     * Sets whether {@link #endFrame()} logs the state changes of each frame.
+     *
+     * @param debug True to log.
+     */
+    public static void setDebug(boolean debug) {
+        GLState.debug = debug;
+    }
+
+    /**
+     * Gets the number of state changes issued since the last {@link #endFrame()}.
+     *
+     * @return The issued count.
+     */
+    public static int getIssued() {
+        return issued;
+    }
+
+    /**
+     * Gets the number of redundant state changes removed since the last {@link #endFrame()}.
+     *
+     * @return The removed count.
+     */
+    public static int getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,377 @@
+package Core.Managers;
+
+import Core.Utils.Constants;
+import Core.Utils.IntArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The GpuResourceManager class keeps account of the GPU memory held by the vertex arrays,
+ * buffers and textures an {@link ObjectLoader} creates, and keeps it within a budget.
+ * <p>
+ * The objects created for one asset are recorded together, between {@link #begin()} and
+ * {@link #end(Object)}, as one resource owned by its {@link Core.Entities.Model} or
+ * {@link Core.Entities.Texture}. A resource that knows how to load itself again is evictable:
+ * the {@link RenderManager} touches the resources it draws, and at the end of a frame over budget
+ * the least recently drawn ones are deleted from the GPU. An evicted resource is reloaded from
+ * disk the next time it is touched, into the same owner, so the rest of the engine never sees it
+ * go. Resources without a reloader, such as meshes built from arrays or texture arrays, are pinned.
+ * <p>
+ * The manager is not thread-safe and must be used from the render thread.
+ */
+public class GpuResourceManager {
+
+    /**
+     * Loads an evicted resource again, creating its GL objects through the same loader so that
+     * they are recorded into the resource, and updating the ID its owner holds.
+     */
+    public interface Reloader {
+        void reload() throws Exception;
+    }
+
+    /**
+     * Is told when the GL objects of an asset are deleted, by eviction or for good, so that
+     * copies made of them elsewhere may be freed too.
+     */
+    public interface EvictionListener {
+        void evicted(Object owner);
+    }
+
+    /**
+     * The GL objects of one asset and the bytes they occupy.
+     */
+    private static class Resource {
+        private final IntArray vertexArrays = new IntArray(1);
+        private final IntArray buffers = new IntArray(4);
+        private final IntArray textures = new IntArray(1);
+        private long bytes;
+        private Object owner;
+        private Reloader reloader;
+        private boolean resident = true;
+        private long lastUsedFrame = -1;
+    }
+
+    private final List<Resource> pinned = new ArrayList<>();
+    private final Map<Object, Resource> evictable = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Object, Resource> byOwner = new IdentityHashMap<>();
+    private final Map<Integer, Resource> byTexture = new HashMap<>();
+    private final List<EvictionListener> listeners = new ArrayList<>();
+    private Resource recording;
+    private long budget = Constants.GPU_MEMORY_BUDGET;
+    private long residentBytes;
+    private long frame;
+    private int evictions;
+    private int reloads;
+
+    /**
+     * Starts recording the GL objects of one asset. Objects created outside of a recording are
+     * pinned resources of their own.
+     */
+    public void begin() {
+        recording = new Resource();
+    }
+
+    /**
+     * Ends the recording started by {@link #begin()}, making the recorded objects a pinned resource.
+     *
+     * @param owner The model or texture using the objects, or null if they have no single owner.
+     */
+    public void end(Object owner) {
+        Resource resource = recording;
+        recording = null;
+        resource.owner = owner;
+        pinned.add(resource);
+        if (owner != null)
+            byOwner.put(owner, resource);
+    }
+
+    /**
+     * Records a new vertex array object. Vertex arrays hold no data of their own.
+     *
+     * @param id The OpenGL ID of the vertex array.
+     */
+    public void addVertexArray(int id) {
+        target().vertexArrays.add(id);
+    }
+
+    /**
+     * Records a new buffer object.
+     *
+     * @param id    The OpenGL ID of the buffer.
+     * @param bytes The size of the buffer's data store.
+     */
+    public void addBuffer(int id, long bytes) {
+        Resource resource = target();
+        resource.buffers.add(id);
+        resource.bytes += bytes;
+        residentBytes += bytes;
+    }
+
+    /**
+     * Records a new texture.
+     *
+     * @param id    The OpenGL ID of the texture.
+     * @param bytes The size of all its levels and layers.
+     */
+    public void addTexture(int id, long bytes) {
+        Resource resource = target();
+        resource.textures.add(id);
+        resource.bytes += bytes;
+        residentBytes += bytes;
+        byTexture.put(id, resource);
+    }
+
+    /**
+     * Counts GPU memory held outside of the manager's resources against the budget, such as the
+     * shared buffers meshes are copied into for multi-draw calls. Such memory is never evicted.
+     *
+     * @param bytes The number of bytes allocated, or negative when freed.
+     */
+    public void addExternalBytes(long bytes) {
+        residentBytes += bytes;
+    }
+
+    /**
+     * Adds a listener told about every asset whose GL objects are deleted.
+     *
+     * @param listener The listener.
+     */
+    public void addEvictionListener(EvictionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addEvictionListener(EvictionListener)}.
+     *
+     * @param listener The listener.
+     */
+    public void removeEvictionListener(EvictionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private Resource target() {
+        if (recording != null)
+            return recording;
+        Resource resource = new Resource();
+        pinned.add(resource);
+        return resource;
+    }
+
+    /**
+     * Makes the resource of a texture evictable. The texture takes ownership of the resource
+     * holding its ID.
+     *
+     * @param texture  The texture, as created from the ID of a recorded texture object.
+     * @param id       The OpenGL ID of the texture.
+     * @param reloader Loads the texture again and gives it its new ID.
+     */
+    public void setReloader(Object texture, int id, Reloader reloader) {
+        Resource resource = byTexture.get(id);
+        if (resource == null)
+            return;
+        if (resource.owner != null && resource.owner != texture)
+            byOwner.remove(resource.owner);
+        resource.owner = texture;
+        byOwner.put(texture, resource);
+        setReloader(resource, reloader);
+    }
+
+    /**
+     * Makes the resource of a model, or of a texture already known to the manager, evictable.
+     *
+     * @param owner    The owner passed to {@link #end(Object)}.
+     * @param reloader Loads the asset again and gives the owner its new ID.
+     */
+    public void setReloader(Object owner, Reloader reloader) {
+        Resource resource = byOwner.get(owner);
+        if (resource != null)
+            setReloader(resource, reloader);
+    }
+
+    private void setReloader(Resource resource, Reloader reloader) {
+        resource.reloader = reloader;
+        if (pinned.remove(resource))
+            evictable.put(resource.owner, resource);
+    }
+
+    /**
+     * Marks the resource of an asset as used by the current frame, reloading it first if it was
+     * evicted. Unknown and pinned owners are always resident.
+     *
+     * @param owner The model or texture about to be drawn.
+     * @return True if the asset is on the GPU; false if it could not be reloaded.
+     */
+    public boolean touch(Object owner) {
+        Resource resource = evictable.get(owner);
+        if (resource == null)
+            return true;
+        resource.lastUsedFrame = frame;
+        if (!resource.resident)
+            reload(resource);
+        return resource.resident;
+    }
+
+    private void reload(Resource resource) {
+        recording = resource;
+        try {
+            resource.reloader.reload();
+            resource.resident = true;
+            reloads++;
+        } catch (Exception e) {
+            // The asset stays evicted and is skipped; the next touch tries again.
+            System.err.println("Failed to reload an evicted asset: " + e.getMessage());
+            delete(resource);
+        } finally {
+            recording = null;
+        }
+    }
+
+    /**
+     * Ends a frame: evicts the least recently drawn resources, except those drawn in this frame,
+     * until the resident bytes fit in the budget.
+     */
+    public void endFrame() {
+        Iterator<Resource> iterator = evictable.values().iterator();
+        while (residentBytes > budget && iterator.hasNext()) {
+            Resource resource = iterator.next();
+            if (resource.lastUsedFrame == frame)
+                break; // Iteration is in access order, so every later resource was drawn too.
+            if (resource.resident) {
+                delete(resource);
+                resource.resident = false;
+                evictions++;
+                notifyEvicted(resource.owner);
+            }
+        }
+        frame++;
+    }
+
+    /**
+     * Deletes the GL objects of a resource and stops counting its bytes. The resource itself is
+     * kept, so it can be reloaded.
+     */
+    private void delete(Resource resource) {
+        for (int i = 0; i < resource.vertexArrays.size(); i++)
+            GLState.deleteVertexArray(resource.vertexArrays.get(i));
+        for (int i = 0; i < resource.buffers.size(); i++)
+            GLState.deleteBuffer(resource.buffers.get(i));
+        for (int i = 0; i < resource.textures.size(); i++) {
+            GLState.deleteTexture(resource.textures.get(i));
+            byTexture.remove(resource.textures.get(i));
+        }
+        resource.vertexArrays.clear();
+        resource.buffers.clear();
+        resource.textures.clear();
+        residentBytes -= resource.bytes;
+        resource.bytes = 0;
+    }
+
+    /**
+     * Deletes an asset for good, whether it is resident or evicted.
+     *
+     * @param owner The model or texture to delete.
+     * @return True if the owner was known and its resource deleted.
+     */
+    public boolean release(Object owner) {
+        Resource resource = byOwner.remove(owner);
+        if (resource == null)
+            return false;
+        evictable.remove(owner);
+        pinned.remove(resource);
+        delete(resource);
+        notifyEvicted(owner);
+        return true;
+    }
+
+    /**
+     * Deletes the resource holding a texture, along with every other object recorded with it.
+     *
+     * @param id The OpenGL ID of the texture.
+     * @return True if the texture was known and deleted.
+     */
+    public boolean releaseTexture(int id) {
+        Resource resource = byTexture.get(id);
+        if (resource == null)
+            return false;
+        if (resource.owner != null) {
+            byOwner.remove(resource.owner);
+            evictable.remove(resource.owner);
+        }
+        pinned.remove(resource);
+        delete(resource);
+        if (resource.owner != null)
+            notifyEvicted(resource.owner);
+        return true;
+    }
+
+    private void notifyEvicted(Object owner) {
+        for (int i = 0; i < listeners.size(); i++)
+            listeners.get(i).evicted(owner);
+    }
+
+    /**
+     * Deletes the GL objects of every resource.
+     */
+    public void cleanup() {
+        for (Resource resource : pinned)
+            delete(resource);
+        for (Resource resource : evictable.values())
+            delete(resource);
+        pinned.clear();
+        evictable.clear();
+        byOwner.clear();
+        byTexture.clear();
+    }
+
+    /**
+     * Gets the number of bytes resources may occupy on the GPU before some are evicted.
+     *
+     * @return The budget in bytes.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the number of bytes resources may occupy on the GPU. Pinned resources count against
+     * the budget but are never evicted, so it may be exceeded when they alone are larger.
+     *
+     * @param budget The budget in bytes.
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets the number of bytes all resident resources occupy on the GPU.
+     *
+     * @return The resident size in bytes.
+     */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Gets the number of resources evicted to stay within the budget.
+     *
+     * @return The eviction count.
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of evicted resources loaded again because they were drawn.
+     *
+     * @return The reload count.
+     */
+    public int getReloads() {
+        return reloads;
+    }
+}
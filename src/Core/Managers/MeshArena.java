@@ -0,0 +1,341 @@
+package Core.Managers;
+
+import Core.Entities.Model;
+import Core.Meshes.VertexLayout;
+import Core.Meshes.VertexQuantizer;
+import Core.Utils.IntArray;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The MeshArena class holds the meshes of many models, all stored in one vertex layout, in one
+ * set of shared vertex and index buffers behind a single VAO, which is what a multi-draw call
+ * needs: every command addresses its mesh by the first index and base vertex within the arena.
+ * <p>
+ * A model is copied in on the GPU, with {@code glCopyBufferSubData} from the buffers its own VAO
+ * points at, the first time it is drawn, into the first free ranges that fit; buffers double in
+ * size when none does. The ranges of a model are freed when it is released, which the
+ * {@link RenderManager} does when the {@link GpuResourceManager} evicts the model, and before a
+ * model whose VAO changed since is copied again. The buffers count against the manager's budget.
+ */
+public class MeshArena {
+
+    /**
+     * The place of a model's mesh in the arena.
+     */
+    public static class Entry {
+        private final int vertexArray;
+        private final int firstIndex;
+        private final int indexCount;
+        private final int baseVertex;
+        private final int vertexCount;
+
+        private Entry(int vertexArray, int firstIndex, int indexCount, int baseVertex, int vertexCount) {
+            this.vertexArray = vertexArray;
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+            this.baseVertex = baseVertex;
+            this.vertexCount = vertexCount;
+        }
+
+        /**
+         * Gets the offset of the model's first index in the arena's index buffer.
+         *
+         * @return The first index.
+         */
+        public int getFirstIndex() {
+            return firstIndex;
+        }
+
+        /**
+         * Gets the value added to the model's indices to address the arena's vertex buffers.
+         *
+         * @return The base vertex.
+         */
+        public int getBaseVertex() {
+            return baseVertex;
+        }
+    }
+
+    /**
+     * The free ranges of one of the arena's buffers, in elements, and the end of the part in use.
+     */
+    private static class Space {
+        /** The offset and length of each free range below the top, sorted by offset. */
+        private final IntArray free = new IntArray(16);
+        private int top;
+
+        /**
+         * Takes the first free range that fits, or the space above the top.
+         *
+         * @return The offset of the allocated range.
+         */
+        private int allocate(int count) {
+            int[] ranges = free.elements();
+            for (int i = 0; i < free.size(); i += 2) {
+                if (ranges[i + 1] < count)
+                    continue;
+                int offset = ranges[i];
+                ranges[i] += count;
+                ranges[i + 1] -= count;
+                if (ranges[i + 1] == 0)
+                    remove(i);
+                return offset;
+            }
+            int offset = top;
+            top += count;
+            return offset;
+        }
+
+        /**
+         * Returns a range, merging it with the free ranges next to it or lowering the top.
+         */
+        private void release(int offset, int count) {
+            int[] ranges = free.elements();
+            int i = 0;
+            while (i < free.size() && ranges[i] < offset)
+                i += 2;
+            if (i > 0 && ranges[i - 2] + ranges[i - 1] == offset) {
+                i -= 2;
+                offset = ranges[i];
+                count += ranges[i + 1];
+                remove(i);
+            }
+            ranges = free.elements();
+            if (i < free.size() && offset + count == ranges[i]) {
+                count += ranges[i + 1];
+                remove(i);
+            }
+            if (offset + count == top) {
+                top = offset;
+                return;
+            }
+            free.ensureCapacity(free.size() + 2);
+            ranges = free.elements();
+            System.arraycopy(ranges, i, ranges, i + 2, free.size() - i);
+            ranges[i] = offset;
+            ranges[i + 1] = count;
+            free.setSize(free.size() + 2);
+        }
+
+        private void remove(int i) {
+            int[] ranges = free.elements();
+            System.arraycopy(ranges, i + 2, ranges, i, free.size() - i - 2);
+            free.setSize(free.size() - 2);
+        }
+    }
+
+    private final VertexLayout layout;
+    private final GpuResourceManager resources;
+    private final int[] strides;
+    private final int vertexArray;
+    private final int[] vertexBuffers;
+    private int indexBuffer;
+    private int vertexCapacity;
+    private int indexCapacity;
+    private final Space vertexSpace = new Space();
+    private final Space indexSpace = new Space();
+    private final Map<Model, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Constructs a new, empty MeshArena.
+     *
+     * @param layout    The vertex layout of every model stored in it.
+     * @param resources The manager whose budget the arena's buffers count against, or null.
+     */
+    public MeshArena(VertexLayout layout, GpuResourceManager resources) {
+        this.layout = layout;
+        this.resources = resources;
+        this.strides = layout == VertexLayout.QUANTIZED
+                ? new int[]{VertexQuantizer.BYTES_PER_VERTEX}
+                : new int[]{3 * Float.BYTES, 2 * Float.BYTES, 3 * Float.BYTES};
+        this.vertexArray = GL30.glGenVertexArrays();
+        this.vertexBuffers = new int[strides.length];
+        this.vertexCapacity = 1 << 16;
+        this.indexCapacity = 1 << 18;
+        for (int i = 0; i < strides.length; i++)
+            vertexBuffers[i] = createBuffer(GL15.GL_ARRAY_BUFFER, (long) vertexCapacity * strides[i]);
+        indexBuffer = createBuffer(GL15.GL_ARRAY_BUFFER, (long) indexCapacity * Integer.BYTES);
+        account(vertexCapacity, indexCapacity);
+        setUpVertexArray();
+    }
+
+    /**
+     * Counts the bytes of a number of vertices and indices against the manager's budget.
+     */
+    private void account(long vertices, long indices) {
+        if (resources == null)
+            return;
+        long bytes = indices * Integer.BYTES;
+        for (int stride : strides)
+            bytes += vertices * stride;
+        resources.addExternalBytes(bytes);
+    }
+
+    private static int createBuffer(int target, long size) {
+        int buffer = GL15.glGenBuffers();
+        GLState.bindBuffer(target, buffer);
+        GL15.glBufferData(target, size, GL15.GL_STATIC_DRAW);
+        GLState.bindBuffer(target, 0);
+        return buffer;
+    }
+
+    /**
+     * Points the arena's VAO at its current buffers.
+     */
+    private void setUpVertexArray() {
+        GLState.bindVertexArray(vertexArray);
+        GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+        if (layout == VertexLayout.QUANTIZED) {
+            int stride = VertexQuantizer.BYTES_PER_VERTEX;
+            GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vertexBuffers[0]);
+            GL20.glVertexAttribPointer(0, 3, GL11.GL_UNSIGNED_SHORT, true, stride, VertexQuantizer.POSITION_OFFSET);
+            GL20.glVertexAttribPointer(1, 2, GL30.GL_HALF_FLOAT, false, stride, VertexQuantizer.TEXTURE_COORD_OFFSET);
+            GL20.glVertexAttribPointer(2, 2, GL11.GL_SHORT, true, stride, VertexQuantizer.NORMAL_OFFSET);
+        } else {
+            int[] sizes = {3, 2, 3};
+            for (int i = 0; i < 3; i++) {
+                GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vertexBuffers[i]);
+                GL20.glVertexAttribPointer(i, sizes[i], GL11.GL_FLOAT, false, 0, 0);
+            }
+        }
+        for (int i = 0; i < 3; i++)
+            GL20.glEnableVertexAttribArray(i);
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Gets the place of a model's mesh in the arena, copying the mesh in first if needed.
+     *
+     * @param model A model stored in the arena's vertex layout.
+     * @return The model's entry.
+     */
+    public Entry get(Model model) {
+        Entry entry = entries.get(model);
+        if (entry != null && entry.vertexArray == model.getId())
+            return entry;
+        if (entry != null)
+            release(model);
+
+        GLState.bindVertexArray(model.getId());
+        int sourceIndices = GL11.glGetInteger(GL15.GL_ELEMENT_ARRAY_BUFFER_BINDING);
+        int[] sources = new int[strides.length];
+        for (int i = 0; i < strides.length; i++)
+            sources[i] = GL20.glGetVertexAttribi(i, GL15.GL_VERTEX_ATTRIB_ARRAY_BUFFER_BINDING);
+        GLState.bindVertexArray(0);
+        int indices = size(sourceIndices) / Integer.BYTES;
+        int vertices = size(sources[0]) / strides[0];
+        int usedVertices = vertexSpace.top, usedIndices = indexSpace.top;
+        int firstIndex = indexSpace.allocate(indices);
+        int baseVertex = vertexSpace.allocate(vertices);
+        reserve(usedVertices, usedIndices);
+
+        copy(sourceIndices, indexBuffer, (long) firstIndex * Integer.BYTES, (long) indices * Integer.BYTES);
+        for (int i = 0; i < strides.length; i++)
+            copy(sources[i], vertexBuffers[i], (long) baseVertex * strides[i], (long) vertices * strides[i]);
+        entry = new Entry(model.getId(), firstIndex, indices, baseVertex, vertices);
+        entries.put(model, entry);
+        return entry;
+    }
+
+    /**
+     * Frees the ranges holding a model's mesh, for the next models copied in. Does nothing if
+     * the model is not in the arena.
+     *
+     * @param model The model, evicted or deleted.
+     */
+    public void release(Model model) {
+        Entry entry = entries.remove(model);
+        if (entry == null)
+            return;
+        indexSpace.release(entry.firstIndex, entry.indexCount);
+        vertexSpace.release(entry.baseVertex, entry.vertexCount);
+    }
+
+    private static int size(int buffer) {
+        GLState.bindBuffer(GL31.GL_COPY_READ_BUFFER, buffer);
+        int size = GL15.glGetBufferParameteri(GL31.GL_COPY_READ_BUFFER, GL15.GL_BUFFER_SIZE);
+        GLState.bindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        return size;
+    }
+
+    private static void copy(int source, int target, long targetOffset, long size) {
+        GLState.bindBuffer(GL31.GL_COPY_READ_BUFFER, source);
+        GLState.bindBuffer(GL31.GL_COPY_WRITE_BUFFER, target);
+        GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, targetOffset, size);
+        GLState.bindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        GLState.bindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+    }
+
+    /**
+     * Grows the buffers until the vertices and indices in use fit, keeping the content of the
+     * specified number of vertices and indices in use before.
+     */
+    private void reserve(int usedVertices, int usedIndices) {
+        boolean grown = false;
+        if (vertexSpace.top > vertexCapacity) {
+            int capacity = vertexCapacity;
+            while (vertexSpace.top > capacity)
+                capacity *= 2;
+            for (int i = 0; i < strides.length; i++)
+                vertexBuffers[i] = grow(vertexBuffers[i], (long) usedVertices * strides[i], (long) capacity * strides[i]);
+            account(capacity - vertexCapacity, 0);
+            vertexCapacity = capacity;
+            grown = true;
+        }
+        if (indexSpace.top > indexCapacity) {
+            int capacity = indexCapacity;
+            while (indexSpace.top > capacity)
+                capacity *= 2;
+            indexBuffer = grow(indexBuffer, (long) usedIndices * Integer.BYTES, (long) capacity * Integer.BYTES);
+            account(0, capacity - indexCapacity);
+            indexCapacity = capacity;
+            grown = true;
+        }
+        if (grown)
+            setUpVertexArray();
+    }
+
+    private static int grow(int buffer, long used, long capacity) {
+        int grown = createBuffer(GL31.GL_COPY_WRITE_BUFFER, capacity);
+        if (used > 0)
+            copy(buffer, grown, 0, used);
+        GLState.deleteBuffer(buffer);
+        return grown;
+    }
+
+    /**
+     * Binds the arena's VAO.
+     */
+    public void bind() {
+        GLState.bindVertexArray(vertexArray);
+    }
+
+    /**
+     * Gets the vertex layout of the models stored in the arena.
+     *
+     * @return The vertex layout.
+     */
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Deletes the arena's VAO and buffers.
+     */
+    public void cleanup() {
+        GLState.deleteVertexArray(vertexArray);
+        for (int buffer : vertexBuffers)
+            GLState.deleteBuffer(buffer);
+        GLState.deleteBuffer(indexBuffer);
+        account(-vertexCapacity, -indexCapacity);
+        entries.clear();
+    }
+}
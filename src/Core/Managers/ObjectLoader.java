@@ -1,151 +1,234 @@
 package Core.Managers;
 
 import Core.Entities.Model;
+import Core.Entities.Texture;
+import Core.Meshes.BoundingSphere;
+import Core.Meshes.CompiledMesh;
+import Core.Meshes.MeshCache;
+import Core.Meshes.MeshData;
+import Core.Meshes.MeshOptimizer;
+import Core.Meshes.MeshSimplifier;
+import Core.Meshes.MeshWelder;
+import Core.Meshes.ObjData;
+import Core.Meshes.ObjParser;
+import Core.Meshes.VertexLayout;
+import Core.Meshes.VertexQuantizer;
+import Core.Textures.CompiledTexture;
+import Core.Textures.CompiledTextureCache;
+import Core.Textures.ImageData;
+import Core.Textures.TextureFormat;
+import Core.Textures.TextureOptions;
+import Core.Utils.Constants;
+import Core.Utils.ResourceBuffer;
 import Core.Utils.Utils;
-import org.joml.Vector2f;
 import org.joml.Vector3f;
-import org.joml.Vector3i;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
-import org.lwjgl.stb.STBImage;
-import org.lwjgl.system.MemoryStack;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.opengl.GL46;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The ObjectLoader class is responsible for loading 3D models in the Wavefront OBJ format and managing associated resources.
  */
 public class ObjectLoader {
 
-    private List<Integer> vaos = new ArrayList<>();
-    private List<Integer> vbos = new ArrayList<>();
-    private List<Integer> textures = new ArrayList<>();
+    /** The attribute location of where each instance's model matrix is, read by the instanced path. */
+    public static final int INSTANCE_TRANSFORM_LOCATION = 3;
+
+    private final GpuResourceManager resources = new GpuResourceManager();
+    private int instanceDefaults;
+    private ForkJoinPool parsePool = ForkJoinPool.commonPool();
+    private MeshCache meshCache = new MeshCache(Paths.get(Constants.MESH_CACHE_DIR));
+    private VertexLayout vertexLayout = VertexLayout.SEPARATE;
+    private CompiledTextureCache textureCache = new CompiledTextureCache(Paths.get(Constants.TEXTURE_CACHE_DIR));
+    private TextureFormat textureFormat = TextureFormat.RGBA8;
     /**
-     * Loads a 3D model from an OBJ file.
+     * Loads a 3D model from an OBJ file. When the mesh cache is enabled, a compiled copy of the
+     * model is memory-mapped from the cache and uploaded without parsing; otherwise the file is
+     * memory-mapped when it lives on the file system and parsed straight from the mapped bytes.
      *
      * @param filename The path to the OBJ file.
      * @return A Model object representing the loaded 3D model.
+     * @throws Exception If the OBJ file cannot be read.
      */
-    public Model loadOBJModel(String filename){
-        List<String> lines=Utils.readAllLines(filename);
-
-        List<Vector3f>vertices=new ArrayList<>();
-        List<Vector3f>normals=new ArrayList<>();
-        List<Vector2f>texts=new ArrayList<>();
-        List<Vector3i>faces=new ArrayList<>();
-
-
-        for(String line:lines){
-            String[]tokens=line.split("\\s+");
-            switch(tokens[0]){
-                case "v":
-                    Vector3f verticesVec=new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    );
-                    vertices.add(verticesVec);
-                    break;
-                case "vt":
-                    Vector2f textureVec=new Vector2f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2])
-                    );
-                    texts.add(textureVec);
-                    break;
-                case "vn":
-                    Vector3f normalsVec=new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3])
-                    );
-                    normals.add(normalsVec);
-                    break;
-                case "f":
-                    processFace(tokens[1],faces);
-                    processFace(tokens[2],faces);
-                    processFace(tokens[3],faces);
-                    break;
-                default:
-                    break;
+    public Model loadOBJModel(String filename) throws Exception {
+        Model model;
+        if (meshCache != null) {
+            model = loadModel(meshCache.load(filename, this::compileOBJ));
+        } else {
+            try (ResourceBuffer resource = ResourceBuffer.open(filename)) {
+                model = loadModel(compileOBJ(resource.getBuffer()));
             }
         }
-        List<Integer>indices=new ArrayList<>();
-        float[]verticesArr=new float[vertices.size()*3];
-        int i=0;
-        for(Vector3f pos:vertices){
-            verticesArr[i*3]=pos.x;
-            verticesArr[i*3+1]=pos.y;
-            verticesArr[i*3+2]=pos.z;
-            i++;
-        }
-        float[]textCoordArr=new float[vertices.size()*2];
-        float[]normalArr=new float[vertices.size()*3];
-        for(Vector3i face:faces){
-            processVertex(face.x,face.y,face.z,texts,normals,indices,textCoordArr,normalArr);
-        }
-        int[] indicesArr=indices.stream().mapToInt((Integer v)->v).toArray();
-
-        return loadModel(verticesArr,textCoordArr,normalArr,indicesArr);
-    }
-    /**
-     * Processes a vertex in the OBJ file and updates the corresponding lists.
-     *
-     * @param pos         The position index of the vertex.
-     * @param textCoord   The texture coordinate index of the vertex.
-     * @param normal      The normal vector index of the vertex.
-     * @param textCoordList The list of texture coordinates.
-     * @param normalList    The list of normal vectors.
-     * @param indicesList   The list of vertex indices.
-     * @param textCoordArr  The array to store texture coordinates.
-     * @param normalArr     The array to store normal vectors.
-     */
-    public static void processVertex(int pos,int textCoord,int normal
-            ,List<Vector2f> textCoordList,List<Vector3f>normalList,
-                                     List<Integer>indicesList,
-                                     float[]textCoordArr,float[]normalArr){
-        indicesList.add(pos);
-        if(textCoord>=0){
-            Vector2f textCoordVec=textCoordList.get(textCoord);
-            textCoordArr[pos*2]=textCoordVec.x;
-            textCoordArr[pos*2+1]=1-textCoordVec.y;
-        }
-        if(normal>=0){
-            Vector3f normalVec=normalList.get(normal);
-            normalArr[pos*3]=normalVec.x;
-            normalArr[pos*3+1]=normalVec.y;
-            normalArr[pos*3+2]=normalVec.z;
-        }
+        return setSource(model, filename);
     }
     /**
-     * Processes a face in the OBJ file and updates the list of faces.
+     * Records the OBJ file a model was loaded from, so that its GPU memory may be evicted when
+     * over budget and the model reloaded from the file, in the vertex layout it was loaded in,
+     * the next time it is drawn.
      *
-     * @param token The face token from the OBJ file.
-     * @param faces The list of faces.
+     * @param model    A model loaded by this loader.
+     * @param filename The path to the OBJ file.
+     * @return The model.
      */
-    private static void processFace(String token, List<Vector3i>faces){
-        String[] lineToken=token.split("/");
-        int length= lineToken.length;
-        int pos=-1,coords=-1,normal=-1;
-        pos=Integer.parseInt(lineToken[0])-1;
-        if(length>1){
-            String textCoord=lineToken[1];
-            coords=textCoord.length()>0?Integer.parseInt(textCoord)-1 :-1;
-            if(length>2){
-                normal=Integer.parseInt(lineToken[2])-1;
-
+    public Model setSource(Model model, String filename) {
+        VertexLayout layout = model.getVertexLayout();
+        resources.setReloader(model, () -> {
+            VertexLayout current = vertexLayout;
+            vertexLayout = layout;
+            try {
+                if (meshCache != null) {
+                    CompiledMesh mesh = meshCache.load(filename, this::compileOBJ);
+                    model.setId(uploadMesh(mesh.getIndices(), mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), mesh.getBounds()));
+                } else {
+                    MeshData mesh;
+                    try (ResourceBuffer resource = ResourceBuffer.open(filename)) {
+                        mesh = compileOBJ(resource.getBuffer());
+                    }
+                    model.setId(uploadMesh(mesh, mesh.computeBounds()));
+                }
+            } finally {
+                vertexLayout = current;
             }
-        }
-        Vector3i facesVec=new Vector3i(pos,coords,normal);
-        faces.add(facesVec);
+        });
+        return model;
+    }
+    /**
+     * Records the image file a texture was loaded from, so that its GPU memory may be evicted
+     * when over budget and the texture reloaded from the file, in the format it was loaded in,
+     * the next time it is drawn.
+     *
+     * @param texture  A texture created from an ID returned by one of this loader's {@code loadTexture} methods.
+     * @param filename The path to the image file.
+     * @param options  The filtering and mipmap options the texture was loaded with.
+     * @return The texture.
+     */
+    public Texture setSource(Texture texture, String filename, TextureOptions options) {
+        TextureFormat format = textureFormat;
+        boolean compiled = compilesTextures();
+        resources.setReloader(texture, texture.getId(), () -> texture.setId(loadTexture(filename, compiled, format, options)));
+        return texture;
+    }
+    /**
+     * Builds the mesh of an OBJ file, ready to upload: the file is parsed and its corners are
+     * welded into one vertex per distinct position/texture coordinate/normal triple, simplified into
+     * the levels of detail of {@link Constants#LOD_RATIOS}, then reordered by {@link MeshOptimizer}
+     * for the post-transform cache, overdraw and vertex fetch. Files of at least
+     * {@link Constants#PARALLEL_PARSE_THRESHOLD} bytes are parsed in parallel chunks on the parse pool.
+     *
+     * @param data The OBJ file content.
+     * @return The mesh built from the file.
+     */
+    public MeshData compileOBJ(ByteBuffer data) {
+        MeshData mesh = new MeshWelder().weld(parseOBJ(data));
+        return MeshOptimizer.optimize(MeshSimplifier.buildLodChain(mesh, Constants.LOD_RATIOS));
+    }
+    /**
+     * Parses OBJ data, in parallel when the data is large enough and a parse pool is set.
+     *
+     * @param data The OBJ file content.
+     * @return The parsed OBJ streams.
+     */
+    private ObjData parseOBJ(ByteBuffer data) {
+        if (parsePool != null && data.remaining() >= Constants.PARALLEL_PARSE_THRESHOLD)
+            return ObjParser.parse(data, parsePool);
+        return ObjParser.parse(data);
+    }
+    /**
+     * Sets the cache compiled meshes are stored in and loaded from.
+     *
+     * @param meshCache The cache to use, or null to parse every OBJ file on load.
+     */
+    public void setMeshCache(MeshCache meshCache) {
+        this.meshCache = meshCache;
+    }
+    /**
+     * Gets the cache compiled meshes are stored in and loaded from.
+     *
+     * @return The mesh cache, or null if OBJ files are parsed on every load.
+     */
+    public MeshCache getMeshCache() {
+        return meshCache;
+    }
+    /**
+     * Gets the layout the vertices of loaded meshes are stored in.
+     *
+     * @return The vertex layout.
+     */
+    public VertexLayout getVertexLayout() {
+        return vertexLayout;
+    }
+    /**
+     * Sets the layout the vertices of meshes loaded from now on are stored in.
+     *
+     * @param vertexLayout The vertex layout.
+     */
+    public void setVertexLayout(VertexLayout vertexLayout) {
+        this.vertexLayout = vertexLayout;
+    }
+    /**
+     * Sets the cache compiled textures are stored in and loaded from.
+     *
+     * @param textureCache The cache to use, or null to compile compressed textures on every load
+     *                     and to let the driver generate the mipmaps of uncompressed ones.
+     */
+    public void setTextureCache(CompiledTextureCache textureCache) {
+        this.textureCache = textureCache;
+    }
+    /**
+     * Gets the cache compiled textures are stored in and loaded from.
+     *
+     * @return The texture cache, or null if textures are compiled on every load.
+     */
+    public CompiledTextureCache getTextureCache() {
+        return textureCache;
+    }
+    /**
+     * Gets the format textures loaded from image files are stored in.
+     *
+     * @return The texture format.
+     */
+    public TextureFormat getTextureFormat() {
+        return textureFormat;
+    }
+    /**
+     * Sets the format textures loaded from image files from now on are stored in. Images are
+     * compiled to a complete mip chain through the texture cache, or without it in a block
+     * compressed format.
+     *
+     * @param textureFormat The texture format.
+     */
+    public void setTextureFormat(TextureFormat textureFormat) {
+        this.textureFormat = textureFormat;
+    }
+    /**
+     * Checks whether textures loaded from image files are compiled rather than decoded and
+     * mipmapped by the driver.
+     *
+     * @return True if a texture cache is set or the texture format is block compressed.
+     */
+    public boolean compilesTextures() {
+        return textureCache != null || textureFormat.isCompressed();
+    }
+    /**
+     * Sets the pool used to parse large OBJ files in parallel.
+     *
+     * @param parsePool The pool to use, or null to always parse on the calling thread.
+     */
+    public void setParsePool(ForkJoinPool parsePool) {
+        this.parsePool = parsePool;
     }
     /**
      * Loads a 3D model with the provided vertex, texture coordinate, normal, and index data.
@@ -158,46 +241,295 @@ public class ObjectLoader {
      */
     public Model loadModel(float[] vertices, float[] textureCoords,
                            float[]normals,int[] indices) {
+        resources.begin();
         int id = createVAO();
         storeIndicesBuffer(indices);
         storeDataInAttribList(0, 3, vertices);
         storeDataInAttribList(1, 2, textureCoords);
         storeDataInAttribList(2, 3, normals);
+        storeInstanceAttributes();
+        unbind();
+        float[] bounds = new MeshData(vertices, textureCoords, normals, indices).computeBounds();
+        Model model = new Model(id, new int[]{0, indices.length}, bounds, BoundingSphere.compute(FloatBuffer.wrap(vertices), bounds));
+        resources.end(model);
+        return model;
+    }
+    /**
+     * Loads a 3D model from a mesh, including its levels of detail and bounds.
+     *
+     * @param mesh The mesh to upload.
+     * @return A Model object representing the loaded 3D model.
+     */
+    public Model loadModel(MeshData mesh) {
+        resources.begin();
+        float[] bounds = mesh.computeBounds();
+        Model model = createModel(uploadMesh(mesh, bounds), mesh.getLodOffsets(), bounds, mesh.computeBoundingSphere(bounds));
+        resources.end(model);
+        return model;
+    }
+    /**
+     * Loads a 3D model from its compiled form, uploading each section of the (memory-mapped)
+     * compiled file directly.
+     *
+     * @param mesh The compiled mesh.
+     * @return A Model object representing the loaded 3D model.
+     */
+    public Model loadModel(CompiledMesh mesh) {
+        resources.begin();
+        float[] bounds = mesh.getBounds();
+        int id = uploadMesh(mesh.getIndices(), mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), bounds);
+        Model model = createModel(id, mesh.getLodOffsets(), bounds, mesh.getBoundingSphere());
+        resources.end(model);
+        return model;
+    }
+    /**
+     * Uploads a mesh into a new VAO in the current vertex layout.
+     *
+     * @param mesh   The mesh to upload.
+     * @param bounds The bounding box of the positions.
+     * @return The OpenGL ID of the VAO.
+     */
+    private int uploadMesh(MeshData mesh, float[] bounds) {
+        int id = createVAO();
+        storeIndicesBuffer(mesh.getIndices());
+        if (vertexLayout == VertexLayout.QUANTIZED) {
+            storeQuantizedVertices(FloatBuffer.wrap(mesh.getPositions()), FloatBuffer.wrap(mesh.getTextureCoords()),
+                    FloatBuffer.wrap(mesh.getNormals()), bounds);
+        } else {
+            storeDataInAttribList(0, 3, mesh.getPositions());
+            storeDataInAttribList(1, 2, mesh.getTextureCoords());
+            storeDataInAttribList(2, 3, mesh.getNormals());
+        }
+        storeInstanceAttributes();
+        unbind();
+        return id;
+    }
+    /**
+     * Uploads the sections of a compiled mesh into a new VAO in the current vertex layout.
+     *
+     * @param indices       The indices as native-order ints.
+     * @param positions     The positions as native-order floats.
+     * @param textureCoords The texture coordinates as native-order floats.
+     * @param normals       The normals as native-order floats.
+     * @param bounds        The bounding box of the positions.
+     * @return The OpenGL ID of the VAO.
+     */
+    private int uploadMesh(ByteBuffer indices, ByteBuffer positions, ByteBuffer textureCoords, ByteBuffer normals, float[] bounds) {
+        int id = createVAO();
+        storeIndicesBuffer(indices);
+        if (vertexLayout == VertexLayout.QUANTIZED) {
+            storeQuantizedVertices(positions.asFloatBuffer(), textureCoords.asFloatBuffer(), normals.asFloatBuffer(), bounds);
+        } else {
+            storeDataInAttribList(0, 3, positions);
+            storeDataInAttribList(1, 2, textureCoords);
+            storeDataInAttribList(2, 3, normals);
+        }
+        storeInstanceAttributes();
         unbind();
-        return new Model(id, indices.length);
+        return id;
+    }
+    /**
+     * Creates the model of an uploaded mesh, recording the vertex layout it was stored in.
+     *
+     * @param id         The OpenGL ID of the VAO.
+     * @param lodOffsets The index offsets of the levels of detail.
+     * @param bounds     The bounding box of the positions.
+     * @param sphere     The bounding sphere of the positions.
+     * @return The model.
+     */
+    private Model createModel(int id, int[] lodOffsets, float[] bounds, float[] sphere) {
+        Model model = new Model(id, lodOffsets, bounds, sphere);
+        if (vertexLayout == VertexLayout.QUANTIZED) {
+            float[] scale = VertexQuantizer.positionScale(bounds);
+            float[] offset = VertexQuantizer.positionOffset(bounds);
+            model.setVertexLayout(vertexLayout, new Vector3f(scale[0], scale[1], scale[2]),
+                    new Vector3f(offset[0], offset[1], offset[2]));
+        }
+        return model;
     }
     /**
-     * Loads a texture from an image file.
+     * Loads a texture from an image file. When the loader compiles textures, the mip chain is
+     * built on the CPU, or read from the texture cache, and uploaded level by level; otherwise
+     * the driver generates it.
      *
      * @param filename The path to the image file.
      * @return The OpenGL texture ID for the loaded texture.
      * @throws Exception If an error occurs during texture loading.
      */
     public int loadTexture(String filename) throws Exception {
-        int width, height;
-        ByteBuffer buffer;
-        try(MemoryStack stack = MemoryStack.stackPush()) {
-            IntBuffer w = stack.mallocInt(1);
-            IntBuffer h = stack.mallocInt(1);
-            IntBuffer c = stack.mallocInt(1);
-
-            buffer = STBImage.stbi_load(filename, w, h, c, 4);
-            if(buffer == null)
-                throw new Exception("Image File " + filename + " not loaded " + STBImage.stbi_failure_reason());
-
-            width = w.get();
-            height = h.get();
+        return loadTexture(filename, compilesTextures(), textureFormat, TextureOptions.DEFAULT);
+    }
+    /**
+     * Loads a texture from an image file, either compiled to the specified format or decoded and
+     * mipmapped by the driver.
+     */
+    private int loadTexture(String filename, boolean compiled, TextureFormat format, TextureOptions options) throws Exception {
+        if (compiled)
+            return loadTexture(compileTexture(filename, format, 0, 0), options);
+        ImageData image = ImageData.decode(filename);
+        try {
+            return loadTexture(image, options);
+        } finally {
+            image.free();
         }
-
+    }
+    /**
+     * Compiles an image file, through the texture cache if one is set.
+     *
+     * @param filename The path to the image file.
+     * @param format   The format to store the texture in.
+     * @param width    The width to resample the image to, or 0 to keep its size.
+     * @param height   The height to resample the image to, or 0 to keep its size.
+     * @return The compiled texture.
+     * @throws Exception If the image cannot be decoded or the cache cannot be used.
+     */
+    public CompiledTexture compileTexture(String filename, TextureFormat format, int width, int height) throws Exception {
+        if (textureCache != null)
+            return textureCache.load(filename, format, width, height);
+        ImageData image = ImageData.decode(filename);
+        try {
+            return CompiledTexture.compile(image, format, width, height, 0);
+        } finally {
+            image.free();
+        }
+    }
+    /**
+     * Uploads the mip chain of a compiled texture into a new texture. Without mipmaps in the
+     * options, only level 0 is uploaded.
+     *
+     * @param texture The compiled texture.
+     * @param options The filtering and mipmap options.
+     * @return The OpenGL texture ID for the loaded texture.
+     */
+    public int loadTexture(CompiledTexture texture, TextureOptions options) {
+        int id = GL11.glGenTextures();
+        int levels = options.hasMipmaps() ? texture.getLevelCount() : 1;
+        TextureFormat format = texture.getFormat();
+        resources.addTexture(id, levels == 1 ? format.sizeInBytes(texture.getWidth(), texture.getHeight()) : texture.getLevelsSize());
+        GLState.bindTexture(GL11.GL_TEXTURE_2D, id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, options.getMinFilter());
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, options.getMagFilter());
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL12.GL_TEXTURE_MAX_LEVEL, levels - 1);
+        for (int level = 0; level < levels; level++) {
+            if (format.isCompressed())
+                GL13.glCompressedTexImage2D(GL11.GL_TEXTURE_2D, level, format.getInternalFormat(),
+                        texture.getLevelWidth(level), texture.getLevelHeight(level), 0, texture.getLevel(level));
+            else
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, level, GL11.GL_RGBA, texture.getLevelWidth(level), texture.getLevelHeight(level),
+                        0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, texture.getLevel(level));
+        }
+        return id;
+    }
+    /**
+     * Uploads decoded RGBA pixels into a new mipmapped texture.
+     *
+     * @param image The decoded image.
+     * @return The OpenGL texture ID for the loaded texture.
+     */
+    public int loadTexture(ImageData image) {
+        return loadTexture(image, TextureOptions.DEFAULT);
+    }
+    /**
+     * Uploads decoded RGBA pixels into a new texture.
+     *
+     * @param image   The decoded image.
+     * @param options The filtering and mipmap options.
+     * @return The OpenGL texture ID for the loaded texture.
+     */
+    public int loadTexture(ImageData image, TextureOptions options) {
         int id = GL11.glGenTextures();
-        textures.add(id);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
-        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER,GL11.GL_LINEAR);
-        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
-        GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
-        STBImage.stbi_image_free(buffer);
+        resources.addTexture(id, textureBytes(image.getWidth(), image.getHeight(), options.hasMipmaps()));
+        GLState.bindTexture(GL11.GL_TEXTURE_2D, id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, options.getMinFilter());
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, options.getMagFilter());
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, image.getWidth(), image.getHeight(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, image.getPixels());
+        if (options.hasMipmaps())
+            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
         return id;
     }
+    /**
+     * Creates a texture with uninitialized storage for its base level, to be filled with
+     * {@code glTexSubImage2D}. The texture stays bound to {@code GL_TEXTURE_2D}.
+     *
+     * @param width   The width in pixels.
+     * @param height  The height in pixels.
+     * @param options The filtering and mipmap options.
+     * @return The OpenGL texture ID.
+     */
+    public int createTexture(int width, int height, TextureOptions options) {
+        int id = GL11.glGenTextures();
+        resources.addTexture(id, textureBytes(width, height, options.hasMipmaps()));
+        GLState.bindTexture(GL11.GL_TEXTURE_2D, id);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, options.getMinFilter());
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, options.getMagFilter());
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        return id;
+    }
+    /**
+     * Creates a 2D array texture with uninitialized storage for all levels of all its layers, to
+     * be filled with {@code glCompressedTexSubImage3D} or {@code glTexSubImage3D}. The texture stays
+     * bound to {@code GL_TEXTURE_2D_ARRAY}.
+     *
+     * @param format  The format of the layers.
+     * @param width   The width of a layer in pixels.
+     * @param height  The height of a layer in pixels.
+     * @param layers  The number of layers.
+     * @param levels  The number of mip levels.
+     * @param options The filtering options.
+     * @return The OpenGL texture ID.
+     */
+    public int createTextureArray(TextureFormat format, int width, int height, int layers, int levels, TextureOptions options) {
+        int id = GL11.glGenTextures();
+        long bytes = 0;
+        for (int level = 0; level < levels; level++)
+            bytes += (long) format.sizeInBytes(Math.max(1, width >> level), Math.max(1, height >> level)) * layers;
+        resources.addTexture(id, bytes);
+        GLState.bindTexture(GL30.GL_TEXTURE_2D_ARRAY, id);
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, options.getMinFilter());
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, options.getMagFilter());
+        GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL12.GL_TEXTURE_MAX_LEVEL, levels - 1);
+        for (int level = 0; level < levels; level++) {
+            int w = Math.max(1, width >> level), h = Math.max(1, height >> level);
+            if (format.isCompressed())
+                GL13.glCompressedTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, format.getInternalFormat(), w, h, layers, 0,
+                        format.sizeInBytes(w, h) * layers, 0L);
+            else
+                GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, GL11.GL_RGBA, w, h, layers, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+        }
+        return id;
+    }
+    /**
+     * Computes the GPU memory of an RGBA8 texture, its mip chain adding a third.
+     */
+    private static long textureBytes(int width, int height, boolean mipmaps) {
+        long bytes = (long) width * height * 4;
+        return mipmaps ? bytes * 4 / 3 : bytes;
+    }
+    /**
+     * Deletes a texture created by this loader before {@link #cleanup()}.
+     *
+     * @param id The OpenGL texture ID.
+     */
+    public void deleteTexture(int id) {
+        resources.releaseTexture(id);
+    }
+    /**
+     * Deletes a texture created by this loader before {@link #cleanup()}, even if it was evicted.
+     *
+     * @param texture The texture.
+     */
+    public void deleteTexture(Texture texture) {
+        if (!resources.release(texture))
+            resources.releaseTexture(texture.getId());
+    }
+    /**
+     * Gets the manager that accounts for and evicts the GPU memory of everything this loader creates.
+     *
+     * @return The GPU resource manager.
+     */
+    public GpuResourceManager getResources() {
+        return resources;
+    }
     /**
      * Creates a new Vertex Array Object (VAO) in OpenGL.
      *
@@ -205,8 +537,8 @@ public class ObjectLoader {
      */
     private int createVAO() {
         int id = GL30.glGenVertexArrays();
-        vaos.add(id);
-        GL30.glBindVertexArray(id);
+        resources.addVertexArray(id);
+        GLState.bindVertexArray(id);
         return id;
     }
     /**
@@ -217,13 +549,74 @@ public class ObjectLoader {
      * @param data        The array of vertex data.
      */
     private void storeDataInAttribList(int attribNo, int vertexCount, float[] data){
-        int vbo = GL15.glGenBuffers();
-        vbos.add(vbo);
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
         FloatBuffer buffer = Utils.storeDataInFloatBuffer(data);
-        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+        storeDataInAttribList(attribNo, vertexCount, MemoryUtil.memByteBuffer(buffer));
+        MemoryUtil.memFree(buffer);
+    }
+    /**
+     * Stores raw float vertex data in a Vertex Buffer Object (VBO) for a specific attribute.
+     *
+     * @param attribNo    The attribute number for the VBO.
+     * @param vertexCount The number of components per vertex attribute.
+     * @param data        The vertex data as native-order floats.
+     */
+    private void storeDataInAttribList(int attribNo, int vertexCount, ByteBuffer data){
+        int vbo = GL15.glGenBuffers();
+        resources.addBuffer(vbo, data.remaining());
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, data, GL15.GL_STATIC_DRAW);
         GL20.glVertexAttribPointer(attribNo, vertexCount, GL11.GL_FLOAT, false, 0, 0);
-        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GL20.glEnableVertexAttribArray(attribNo);
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+    /**
+     * Stores vertices in one interleaved, quantized Vertex Buffer Object (VBO) and sets up the
+     * position, texture coordinate and normal attributes to read from it.
+     *
+     * @param positions     The positions, three floats per vertex.
+     * @param textureCoords The texture coordinates, two floats per vertex.
+     * @param normals       The normals, three floats per vertex.
+     * @param bounds        The bounding box the positions are quantized to.
+     */
+    private void storeQuantizedVertices(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals, float[] bounds) {
+        int stride = VertexQuantizer.BYTES_PER_VERTEX;
+        ByteBuffer buffer = MemoryUtil.memAlloc(positions.remaining() / 3 * stride);
+        try {
+            VertexQuantizer.encode(positions, textureCoords, normals, bounds, buffer);
+            buffer.flip();
+            int vbo = GL15.glGenBuffers();
+            resources.addBuffer(vbo, buffer.remaining());
+            GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+            GL20.glVertexAttribPointer(0, 3, GL11.GL_UNSIGNED_SHORT, true, stride, VertexQuantizer.POSITION_OFFSET);
+            GL20.glVertexAttribPointer(1, 2, GL30.GL_HALF_FLOAT, false, stride, VertexQuantizer.TEXTURE_COORD_OFFSET);
+            GL20.glVertexAttribPointer(2, 2, GL11.GL_SHORT, true, stride, VertexQuantizer.NORMAL_OFFSET);
+            // The enabled arrays are VAO state, so they are enabled once here rather than per draw.
+            for (int attribute = 0; attribute < 3; attribute++)
+                GL20.glEnableVertexAttribArray(attribute);
+            GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+    /**
+     * Enables the per-instance transform attribute of the bound VAO and sets its divisor, which
+     * are VAO state, so the instanced path only points it at its instance buffer per draw. Until
+     * then it reads one shared zero, so that no enabled array is left without a buffer; the
+     * per-entity shader does not declare it.
+     */
+    private void storeInstanceAttributes() {
+        if (instanceDefaults == 0) {
+            instanceDefaults = GL15.glGenBuffers();
+            GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, instanceDefaults);
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, new int[]{0}, GL15.GL_STATIC_DRAW);
+        } else {
+            GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, instanceDefaults);
+        }
+        GL30.glVertexAttribIPointer(INSTANCE_TRANSFORM_LOCATION, 1, GL11.GL_INT, 0, 0);
+        GL20.glEnableVertexAttribArray(INSTANCE_TRANSFORM_LOCATION);
+        GL33.glVertexAttribDivisor(INSTANCE_TRANSFORM_LOCATION, 1);
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
     /**
      * Stores index data in an Element Array Buffer (EBO).
@@ -231,27 +624,33 @@ public class ObjectLoader {
      * @param indices The array of vertex indices.
      */
     private void storeIndicesBuffer(int[] indices) {
-        int vbo = GL15.glGenBuffers();
-        vbos.add(vbo);
-        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
         IntBuffer buffer = Utils.storeDataInIntBuffer(indices);
-        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+        storeIndicesBuffer(MemoryUtil.memByteBuffer(buffer));
+        MemoryUtil.memFree(buffer);
+    }
+    /**
+     * Stores raw index data in an Element Array Buffer (EBO).
+     *
+     * @param indices The vertex indices as native-order ints.
+     */
+    private void storeIndicesBuffer(ByteBuffer indices) {
+        int vbo = GL15.glGenBuffers();
+        resources.addBuffer(vbo, indices.remaining());
+        GLState.bindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
     }
     /**
      * Unbinds the current VAO in OpenGL.
      */
     private void unbind() {
-        GL30.glBindVertexArray(0);
+        GLState.bindVertexArray(0);
     }
     /**
      * Cleans up resources by deleting VAOs, VBOs, and textures.
      */
     public void cleanup(){
-        for(int vao : vaos)
-            GL30.glDeleteVertexArrays(vao);
-        for(int vbo : vbos)
-            GL30.glDeleteBuffers(vbo);
-        for(int texture: textures)
-            GL11.glDeleteTextures(texture);
+        resources.cleanup();
+        if (instanceDefaults != 0)
+            GLState.deleteBuffer(instanceDefaults);
     }
 }
\ No newline at end of file
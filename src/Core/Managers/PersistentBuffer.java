@@ -0,0 +1,133 @@
+package Core.Managers;
+
+import Core.Utils.Constants;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The PersistentBuffer class is a buffer the CPU writes every frame through a mapping that stays
+ * valid for the buffer's lifetime. It is created with {@code glBufferStorage} and mapped once,
+ * persistent and coherent, so writes reach the GPU without any map, unmap or upload call.
+ * <p>
+ * The storage is split into regions, one per frame in flight. Each frame writes the next region,
+ * and a fence placed after the frame's draws protects it: a region is only written again once
+ * the GPU has finished reading it, which it normally has, since it was last used
+ * {@link Constants#PERSISTENT_BUFFER_REGIONS} frames ago.
+ */
+public class PersistentBuffer {
+
+    /** The alignment of region sizes, a multiple of every offset alignment a binding requires. */
+    private static final int ALIGNMENT = 256;
+    private static final int FLAGS = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+
+    private final int target;
+    private final long[] fences;
+    private int buffer;
+    private long regionSize;
+    private ByteBuffer mapping;
+    private int region = -1;
+
+    /**
+     * Constructs a new PersistentBuffer with {@link Constants#PERSISTENT_BUFFER_REGIONS} regions.
+     *
+     * @param target     The binding target the buffer is created on.
+     * @param regionSize The initial number of bytes in each region.
+     */
+    public PersistentBuffer(int target, long regionSize) {
+        this.target = target;
+        this.fences = new long[Constants.PERSISTENT_BUFFER_REGIONS];
+        allocate(regionSize);
+    }
+
+    private void allocate(long size) {
+        regionSize = (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        long bytes = regionSize * fences.length;
+        buffer = GL15.glGenBuffers();
+        GLState.bindBuffer(target, buffer);
+        GL44.glBufferStorage(target, bytes, FLAGS);
+        mapping = GL30.glMapBufferRange(target, 0, bytes, FLAGS);
+        GLState.bindBuffer(target, 0);
+    }
+
+    /**
+     * Moves on to the next region, waiting for the GPU to finish the frame that used it last,
+     * and grows the buffer if the region is too small.
+     *
+     * @param bytes The number of bytes the frame writes.
+     * @return The region's memory, from position 0 to {@code bytes}.
+     */
+    public ByteBuffer next(long bytes) {
+        region = (region + 1) % fences.length;
+        if (bytes > regionSize) {
+            // Every region may still be read, and the storage is immutable, so replace it.
+            for (int i = 0; i < fences.length; i++)
+                waitFor(i);
+            GLState.bindBuffer(target, buffer);
+            GL15.glUnmapBuffer(target);
+            GLState.bindBuffer(target, 0);
+            GLState.deleteBuffer(buffer);
+            allocate(Math.max(bytes, regionSize * 2));
+        } else {
+            waitFor(region);
+        }
+        return MemoryUtil.memByteBuffer(MemoryUtil.memAddress(mapping) + getOffset(), (int) bytes);
+    }
+
+    private void waitFor(int region) {
+        if (fences[region] == 0)
+            return;
+        int status;
+        do {
+            status = GL32.glClientWaitSync(fences[region], GL32.GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000L);
+        } while (status == GL32.GL_TIMEOUT_EXPIRED);
+        GL32.glDeleteSync(fences[region]);
+        fences[region] = 0;
+    }
+
+    /**
+     * Places a fence after the commands reading the current region. Must be called once the
+     * frame's draws have been issued.
+     */
+    public void fence() {
+        if (region >= 0 && fences[region] == 0)
+            fences[region] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    /**
+     * Gets the OpenGL ID of the buffer. It changes when the buffer grows.
+     *
+     * @return The buffer ID.
+     */
+    public int getId() {
+        return buffer;
+    }
+
+    /**
+     * Gets the offset of the current region in the buffer.
+     *
+     * @return The offset in bytes.
+     */
+    public long getOffset() {
+        return Math.max(region, 0) * regionSize;
+    }
+
+    /**
+     * Deletes the buffer and its fences.
+     */
+    public void cleanup() {
+        for (int i = 0; i < fences.length; i++) {
+            if (fences[i] != 0)
+                GL32.glDeleteSync(fences[i]);
+            fences[i] = 0;
+        }
+        GLState.bindBuffer(target, buffer);
+        GL15.glUnmapBuffer(target);
+        GLState.bindBuffer(target, 0);
+        GLState.deleteBuffer(buffer);
+    }
+}
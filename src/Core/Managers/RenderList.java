@@ -0,0 +1,146 @@
+package Core.Managers;
+
+import Core.Culling.FrustumCuller;
+import Core.Entities.Entity;
+import Core.Utils.IntArray;
+import Core.Utils.Transformation;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * The RenderList class holds the entities a renderer keeps from one frame to the next, with the
+ * model matrix of each. Every entity has a slot, stable until the entity is removed, and the
+ * slots are dense: removing an entity moves the entity of the last slot into its slot, so the
+ * matrices and bounding spheres stay in arrays without holes.
+ * <p>
+ * Each frame, {@link #update} compares the transform version of every entity with the version
+ * its matrix was computed from, and recomputes the matrix and bounding sphere only of the
+ * entities that moved, recording their slots as dirty for the GPU copy of the matrices.
+ */
+public class RenderList {
+
+    private static final int UNKNOWN = -1;
+
+    private Entity[] entities = new Entity[1024];
+    private float[] matrices = new float[1024 * 16];
+    private int[] versions = new int[1024];
+    private final IntArray dirty = new IntArray();
+    private final Matrix4f matrix = new Matrix4f();
+    private int size;
+
+    /**
+     * Adds an entity at the end of the list. Adding an entity already in the list does nothing.
+     *
+     * @param entity The entity to keep.
+     * @return The slot of the entity.
+     */
+    public int add(Entity entity) {
+        if (entity.getRenderSlot() >= 0)
+            return entity.getRenderSlot();
+        if (size == entities.length) {
+            int capacity = size * 2;
+            entities = Arrays.copyOf(entities, capacity);
+            matrices = Arrays.copyOf(matrices, capacity * 16);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        entities[size] = entity;
+        versions[size] = UNKNOWN;
+        entity.setRenderSlot(size);
+        return size++;
+    }
+
+    /**
+     * Removes an entity, moving the entity of the last slot into its slot. The moved entity is
+     * updated by the next {@link #update}, like an entity that moved.
+     *
+     * @param entity The entity to drop.
+     * @return True if the entity was in the list.
+     */
+    public boolean remove(Entity entity) {
+        int slot = entity.getRenderSlot();
+        if (slot < 0 || slot >= size || entities[slot] != entity)
+            return false;
+        int last = --size;
+        if (slot != last) {
+            entities[slot] = entities[last];
+            entities[slot].setRenderSlot(slot);
+            versions[slot] = UNKNOWN;
+        }
+        entities[last] = null;
+        entity.setRenderSlot(UNKNOWN);
+        return true;
+    }
+
+    /**
+     * Brings the matrices and the bounding spheres up to date. The culler holds one sphere per
+     * slot at the start of its arrays; they keep their values between frames, so only those of
+     * entities that moved, were added or changed slot are written.
+     *
+     * @param culler The culler keeping the bounding spheres, resized to the list.
+     * @return The number of slots updated.
+     */
+    public int update(FrustumCuller culler) {
+        dirty.clear();
+        culler.setSize(size);
+        for (int slot = 0; slot < size; slot++) {
+            Entity entity = entities[slot];
+            int version = entity.getTransformVersion();
+            if (versions[slot] == version)
+                continue;
+            versions[slot] = version;
+            Transformation.createTransformationMatrix(entity, matrix).get(matrices, slot * 16);
+            Vector3f center = entity.getWorldCenter();
+            culler.set(slot, center.x, center.y, center.z, entity.getWorldRadius());
+            dirty.add(slot);
+        }
+        return dirty.size();
+    }
+
+    /**
+     * Forgets every computed matrix, so that the next {@link #update} recomputes all slots and
+     * reports them dirty.
+     */
+    public void invalidate() {
+        Arrays.fill(versions, 0, size, UNKNOWN);
+    }
+
+    /**
+     * Gets the number of entities in the list.
+     *
+     * @return The entity count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the entity in a slot.
+     *
+     * @param slot The slot.
+     * @return The entity.
+     */
+    public Entity get(int slot) {
+        return entities[slot];
+    }
+
+    /**
+     * Gets the matrices of all slots, 16 values in column-major order per slot. Valid after
+     * {@link #update}.
+     *
+     * @return The backing array of the matrices.
+     */
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    /**
+     * Gets the slots updated by the last {@link #update}, in increasing order.
+     *
+     * @return The dirty slots.
+     */
+    public IntArray getDirty() {
+        return dirty;
+    }
+}
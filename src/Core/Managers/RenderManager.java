@@ -1,22 +1,40 @@
 //
 package Core.Managers;
 
+import Core.Culling.FrustumCuller;
+import Core.Culling.Occluder;
+import Core.Culling.OcclusionCuller;
 import Core.Entities.Entity;
 import Core.Entities.Model;
+import Core.Entities.Texture;
 import Core.Lightning.DirectionalLight;
 import Core.Lightning.PointLight;
 import Core.Lightning.SpotLight;
+import Core.Materials.Material;
+import Core.Meshes.VertexLayout;
 import Core.Utils.Constants;
+import Core.Utils.IntArray;
 import Core.Utils.Transformation;
-import Core.Utils.Utils;
+import Core.Utils.ResourceBuffer;
 import Launcher.Main;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.system.MemoryUtil;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 /**
@@ -24,14 +42,90 @@ import java.util.Map;
  * binding models, preparing entities, rendering lights, and rendering entities.
  */
 public class RenderManager {
+    /** The first of the four attribute locations holding the columns of an instance's model matrix. */
+    private static final int MATRIX_BYTES = 16 * Float.BYTES;
+    /** The size of a DrawElementsIndirectCommand: count, instance count, first index, base vertex, base instance. */
+    private static final int COMMAND_BYTES = 5 * Integer.BYTES;
+    /** The size of a Draw record in vertex_indirect.vs. */
+    private static final int DRAW_BYTES = 48;
+    /** The size of a Material record in fragment.fs. */
+    private static final int MATERIAL_BYTES = 64;
+
     private final WindowManager window;
     private ShaderManager shader;
-    private Map<Model, List<Entity>> entities = new HashMap<>();
+    private ShaderManager entityShader;
+    private ShaderManager instancedShader;
+    private ShaderManager indirectShader;
+    /** The uniform handles, the same in every program, returned when the programs create the uniforms. */
+    private int textureSampler, textureArraySampler, transformationMatrix, positionScale, positionOffset, octNormals;
+    private int transformSampler, dynamicTransformSampler;
+    private ShaderManager.MaterialUniform materialUniform;
+    private boolean instancing = true;
+    private boolean indirect;
+    private PersistentBuffer commandBuffer;
+    private PersistentBuffer drawBuffer;
+    private PersistentBuffer materialBuffer;
+    /** The model matrices of the entities processed in the frame, read by the indirect path. */
+    private PersistentBuffer dynamicTransformBuffer;
+    /** The model matrices of the retained entities, one per slot, read by the indirect and instanced paths. */
+    private int transformBuffer;
+    private int transformCapacity;
+    /** Whether the transform buffer holds the matrix of every retained slot. */
+    private boolean transformsCurrent;
+    private int transformsUpdated;
+    private FrameUniforms frameUniforms;
+    private final Map<VertexLayout, MeshArena> arenas = new EnumMap<>(VertexLayout.class);
+    /** The batches of indirect draws: first command, vertex layout and end command of each. */
+    private final IntArray batches = new IntArray();
+    /** The 2D texture and texture array bound for each batch, or null. */
+    private final List<Texture> batchTextures = new ArrayList<>();
+    /** Where the model matrix of each instance drawn by the instanced path is, one int each. */
+    private int instanceBuffer;
+    private IntBuffer instanceTransforms;
+    /** The model matrices of the entities processed in the frame, read by the instanced path. */
+    private int dynamicInstanceBuffer;
+    /** The buffer textures the instanced path reads the retained and processed matrices through. */
+    private int transformTexture;
+    private int dynamicTransformTexture;
+    private FloatBuffer instanceData;
+    private final List<Model> drawModels = new ArrayList<>();
+    private final IntArray drawData = new IntArray();
+    private final Matrix4f instanceMatrix = new Matrix4f();
+    private int drawCalls;
+    private final List<Entity> submitted = new ArrayList<>();
+    private final RenderList retained = new RenderList();
+    private final RenderQueue queue = new RenderQueue();
+    private int trianglesDrawn;
+    private int textureBinds;
+    private GpuResourceManager resources;
+    /** Frees the arena copies of the models the resource manager evicts. */
+    private final GpuResourceManager.EvictionListener arenaReleaser = owner -> {
+        if (owner instanceof Model model) {
+            for (MeshArena arena : arenas.values())
+                arena.release(model);
+        }
+    };
+    private final FrustumCuller culler = new FrustumCuller();
+    private final OcclusionCuller occlusion = new OcclusionCuller();
+    private final List<Entity> occluderEntities = new ArrayList<>();
+    private final List<Occluder> occluders = new ArrayList<>();
+    private boolean occlusionCulling = true;
+    private boolean occluding;
+    private int entitiesOccluded;
+    private final Matrix4f projectionView = new Matrix4f();
     /**
      * Constructs a new RenderManager instance with a reference to the WindowManager.
      */
     public RenderManager() {
-        window = Main.getWindow();
+        this(Main.getWindow());
+    }
+    /**
+     * Constructs a new RenderManager instance drawing into the specified window.
+     *
+     * @param window The window whose size sets the projection.
+     */
+    public RenderManager(WindowManager window) {
+        this.window = window;
     }
     /**
      * Initializes the RenderManager by creating and linking shaders, and setting up uniforms.
@@ -39,85 +133,168 @@ public class RenderManager {
      * @throws Exception If an error occurs during initialization.
      */
     public void init() throws Exception {
-        shader = new ShaderManager();
-        shader.createVertexShader(Utils.loadResource("/shaders/vertex.vs"));
-        shader.createFragmentShader(Utils.loadResource("/shaders/fragment.fs"));
+        frameUniforms = new FrameUniforms();
+        entityShader = createShader("/shaders/vertex.vs", false);
+        instancedShader = createShader("/shaders/vertex_instanced.vs", true);
+        shader = entityShader;
+        instanceBuffer = GL15.glGenBuffers();
+        instanceTransforms = MemoryUtil.memAllocInt(1024);
+        instanceData = MemoryUtil.memAllocFloat(1024 * 16);
+        transformBuffer = GL15.glGenBuffers();
+        dynamicInstanceBuffer = GL15.glGenBuffers();
+        transformTexture = createBufferTexture(transformBuffer);
+        dynamicTransformTexture = createBufferTexture(dynamicInstanceBuffer);
+        if (GL.getCapabilities().OpenGL46) {
+            indirectShader = createIndirectShader();
+            commandBuffer = new PersistentBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 1024L * COMMAND_BYTES);
+            drawBuffer = new PersistentBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 1024L * DRAW_BYTES);
+            materialBuffer = new PersistentBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 256L * MATERIAL_BYTES);
+            dynamicTransformBuffer = new PersistentBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 1024L * MATRIX_BYTES);
+            indirect = true;
+        }
+    }
+    /**
+     * Creates a buffer texture reading a buffer of model matrices as four RGBA32F texels each,
+     * giving the buffer an empty data store first, so that it exists when attached.
+     *
+     * @param buffer The OpenGL ID of the buffer.
+     * @return The OpenGL ID of the texture.
+     */
+    private static int createBufferTexture(int buffer) {
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, MATRIX_BYTES, GL15.GL_DYNAMIC_DRAW);
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+        int texture = GL11.glGenTextures();
+        GLState.bindTexture(GL31.GL_TEXTURE_BUFFER, texture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, GL30.GL_RGBA32F, buffer);
+        GLState.bindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+        return texture;
+    }
+    /**
+     * Creates a shader program from a vertex shader and the fragment shader, with its uniforms.
+     *
+     * @param vertexShader The resource name of the vertex shader.
+     * @param instanced    True if the vertex shader reads the model matrix from buffer textures,
+     *                     where an instance attribute says.
+     * @return The linked shader program.
+     * @throws Exception If the shaders cannot be compiled or linked, or a uniform is missing.
+     */
+    private ShaderManager createShader(String vertexShader, boolean instanced) throws Exception {
+        ShaderManager shader = new ShaderManager();
+        try (ResourceBuffer vertexSource = ResourceBuffer.open(vertexShader);
+             ResourceBuffer fragmentSource = ResourceBuffer.open("/shaders/fragment.fs")) {
+            shader.createVertexShader(vertexSource.getBuffer());
+            shader.createFragmentShader(fragmentSource.getBuffer());
+        }
         shader.link();
-        shader.createUniform("textureSampler");
-        shader.createUniform("transformationMatrix");
-        shader.createUniform("projectionMatrix");
-        shader.createUniform("viewMatrix");
-        shader.createUniform("ambientLight");
-        shader.createMaterialUniform("material");
-        shader.createUniform("specularPower");
-        shader.createDirectionalLightUniform("directionalLight");
-        shader.createPointLightListUniform("pointLights", 5);
-        shader.createSpotLightListUniform("spotLights", 5);
+        if (instanced) {
+            transformSampler = shader.createUniform("transforms");
+            dynamicTransformSampler = shader.createUniform("dynamicTransforms");
+        } else {
+            transformationMatrix = shader.createUniform("transformationMatrix");
+        }
+        positionScale = shader.createUniform("positionScale");
+        positionOffset = shader.createUniform("positionOffset");
+        octNormals = shader.createUniform("octNormals");
+        materialUniform = shader.createMaterialUniform("material");
+        createFrameUniforms(shader);
+        return shader;
     }
     /**
-     * Binds the specified model, enabling vertex attribute arrays and setting material and texture.
+     * Creates the shader program of indirect rendering, which reads transforms and materials
+     * from storage buffers. The fragment shader is compiled as GLSL 4.60 with INDIRECT defined.
+     *
+     * @return The linked shader program.
+     * @throws Exception If the shaders cannot be compiled or linked, or a uniform is missing.
+     */
+    private ShaderManager createIndirectShader() throws Exception {
+        ShaderManager shader = new ShaderManager();
+        try (ResourceBuffer vertexSource = ResourceBuffer.open("/shaders/vertex_indirect.vs");
+             ResourceBuffer fragmentSource = ResourceBuffer.open("/shaders/fragment.fs")) {
+            shader.createVertexShader(vertexSource.getBuffer());
+            shader.createFragmentShader(MemoryUtil.memUTF8(fragmentSource.getBuffer())
+                    .replace("#version 400 core", "#version 460 core\n#define INDIRECT"));
+        }
+        shader.link();
+        createFrameUniforms(shader);
+        return shader;
+    }
+    /**
+     * Creates the sampler uniforms and connects the camera and light blocks, shared by every
+     * shader program.
+     *
+     * @param shader The linked shader program.
+     * @throws Exception If a uniform or uniform block is missing.
+     */
+    private void createFrameUniforms(ShaderManager shader) throws Exception {
+        textureSampler = shader.createUniform("textureSampler");
+        textureArraySampler = shader.createUniform("textureArraySampler");
+        frameUniforms.bind(shader);
+    }
+    /**
+     * Binds the specified model, setting material and texture. The vertex attribute arrays are
+     * enabled in the model's VAO when it is created.
      *
      * @param model The Model to bind.
      */
     public void bind(Model model) {
-        GL30.glBindVertexArray(model.getId());
-        GL20.glEnableVertexAttribArray(0);
-        GL20.glEnableVertexAttribArray(1);
-        GL20.glEnableVertexAttribArray(2);
-        shader.setUniform("material", model.getMaterial());
-
-        GL13.glActiveTexture(GL13.GL_TEXTURE0);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getId());
+        GLState.bindVertexArray(model.getId());
+        shader.setUniform(materialUniform, model.getMaterial());
+        shader.setUniform(positionScale, model.getPositionScale());
+        shader.setUniform(positionOffset, model.getPositionOffset());
+        shader.setUniform(octNormals, model.getVertexLayout() == VertexLayout.QUANTIZED ? 1 : 0);
 
+        if (model.getTexture() != null)
+            bindTexture(model.getTexture());
     }
     /**
-     * Unbinds the currently bound model, disabling vertex attribute arrays.
+     * Binds a texture unless it is already bound. Plain textures use unit 0 and array layers
+     * unit 1, so models sharing an array texture need no bind at all between them.
+     *
+     * @param texture The texture to bind.
+     */
+    private void bindTexture(Texture texture) {
+        boolean bound = texture.isArrayLayer()
+                ? GLState.bindTexture(GL13.GL_TEXTURE1, GL30.GL_TEXTURE_2D_ARRAY, texture.getId())
+                : GLState.bindTexture(GL13.GL_TEXTURE0, GL11.GL_TEXTURE_2D, texture.getId());
+        if (bound)
+            textureBinds++;
+    }
+    /**
+     * Unbinds the currently bound model.
      */
     public void unbind() {
-        GL20.glDisableVertexAttribArray(0);
-        GL20.glDisableVertexAttribArray(1);
-        GL20.glDisableVertexAttribArray(2);
-        GL30.glBindVertexArray(0);
+        GLState.bindVertexArray(0);
     }
     /**
-     * Prepares an entity for rendering by setting transformation and view matrices.
+     * Prepares an entity for rendering by setting its transformation matrix. The view matrix is
+     * part of the camera block, written once per frame.
      *
      * @param entity The Entity to prepare.
-     * @param camera The Camera used for rendering.
      */
-    public void prepare(Entity entity, Camera camera) {
-        shader.setUniform("textureSampler", 0);
-        shader.setUniform("transformationMatrix", Transformation.createTransformationMatrix(entity));
-        shader.setUniform("viewMatrix", Transformation.getViewMatrix(camera));
-
+    public void prepare(Entity entity) {
+        shader.setUniform(transformationMatrix, Transformation.createTransformationMatrix(entity, instanceMatrix));
     }
     /**
-     * Renders lights, including ambient light, point lights, spot lights, and directional light.
+     * Renders lights, including ambient light, point lights, spot lights, and directional light,
+     * by writing the lights block all shader programs share. Up to
+     * {@link Constants#MAX_POINT_LIGHTS} point and {@link Constants#MAX_SPOT_LIGHTS} spot lights are used.
      *
-     * @param camera           The Camera used for rendering.
      * @param pointLights      An array of PointLight objects.
      * @param spotLights       An array of SpotLight objects.
      * @param directionalLight The DirectionalLight object.
      */
-    public void renderLights(Camera camera, PointLight[] pointLights,
+    public void renderLights(PointLight[] pointLights,
                              SpotLight[] spotLights,
                              DirectionalLight directionalLight) {
-        shader.setUniform("ambientLight", Constants.AMBIENT_LIGHT);
-        shader.setUniform("specularPower", Constants.SPECULAR_POWER);
-        int numLights = spotLights != null ? spotLights.length : 0;
-        for (int i = 0; i < numLights; i++) {
-            shader.setUniform("spotLights", spotLights[i], i);
-        }
-        numLights = spotLights != null ? pointLights.length : 0;
-        for (int i = 0; i < numLights; i++) {
-            shader.setUniform("pointLights", pointLights[i], i);
-        }
-        shader.setUniform("directionalLight", directionalLight);
-
+        frameUniforms.setLights(Constants.AMBIENT_LIGHT, Constants.SPECULAR_POWER, directionalLight, pointLights, spotLights);
     }
 
     /**
-     * Renders entities with specified lights and camera.
+     * Renders entities with specified lights and camera: the retained entities and those
+     * processed since the last frame. Entities whose world-space bounding sphere lies outside
+     * the view frustum are culled before anything is bound for them, and so are entities the
+     * occluders hide, when occlusion culling is on.
      *
      * @param camera           The Camera used for rendering.
      * @param directionalLight The DirectionalLight object.
@@ -129,36 +306,654 @@ public class RenderManager {
                        PointLight[] pointLights,
                        SpotLight[] spotLights) {
         clear();
+        trianglesDrawn = 0;
+        textureBinds = 0;
+        drawCalls = 0;
+        shader = indirect ? indirectShader : instancing ? instancedShader : entityShader;
         shader.bind();
-        shader.setUniform("projectionMatrix", window.updateProjectionMatrix());
-        renderLights(camera, pointLights, spotLights, directionalLight);
-        for (Model model : entities.keySet()) {
+        shader.resetUniformCounters();
+        shader.setUniform(textureSampler, 0);
+        shader.setUniform(textureArraySampler, 1);
+        if (shader == instancedShader) {
+            shader.setUniform(transformSampler, 2);
+            shader.setUniform(dynamicTransformSampler, 3);
+        }
+        Matrix4f projection = window.updateProjectionMatrix();
+        Matrix4f view = Transformation.getViewMatrix(camera);
+        frameUniforms.setCamera(projection, view);
+        renderLights(pointLights, spotLights, directionalLight);
+
+        // The retained spheres stay in the culler's first slots; only those of moved entities
+        // are rewritten, and the processed entities follow them.
+        transformsUpdated = retained.update(culler);
+        if (!indirect && !instancing && transformsUpdated > 0)
+            transformsCurrent = false;
+        for (int i = 0; i < submitted.size(); i++) {
+            Entity entity = submitted.get(i);
+            Vector3f center = entity.getWorldCenter();
+            culler.add(center.x, center.y, center.z, entity.getWorldRadius());
+        }
+        culler.setFrustum(projectionView.set(projection).mul(view));
+        culler.cull();
+        rasterizeOccluders();
+        buildQueue(camera);
+
+        if (indirect) {
+            renderIndirect();
+        } else if (instancing) {
+            renderInstanced();
+        } else {
+            renderEntities();
+        }
+        submitted.clear();
+        queue.clear();
+        // The program stays current; binding it again next frame costs nothing.
+        if (resources != null)
+            resources.endFrame();
+        GLState.endFrame();
+    }
+    /**
+     * Rasterizes the occluders into the occlusion culler's depth buffer on its thread pool, if
+     * occlusion culling is on and there are any.
+     */
+    private void rasterizeOccluders() {
+        entitiesOccluded = 0;
+        occluding = occlusionCulling && !occluders.isEmpty();
+        if (!occluding)
+            return;
+        occlusion.begin(projectionView);
+        for (int i = 0; i < occluders.size(); i++)
+            occlusion.addOccluder(occluders.get(i), Transformation.createTransformationMatrix(occluderEntities.get(i), instanceMatrix));
+        occlusion.rasterize();
+    }
+    /**
+     * Fills the render queue with the visible entities and sorts it. Each is keyed by the state
+     * drawing it needs, shader, vertex layout, texture, mesh and level of detail, then by its
+     * distance to the camera, so the paths below find the entities sharing state next to each
+     * other and draw opaque geometry front to back. Each keeps its index in the culler, which
+     * is its slot for a retained entity.
+     */
+    private void buildQueue(Camera camera) {
+        queue.clear();
+        int shaderIndex = indirect ? 2 : instancing ? 1 : 0;
+        int retainedCount = retained.size();
+        for (int i = 0; i < culler.size(); i++) {
+            if (!culler.isVisible(i))
+                continue;
+            Entity entity = i < retainedCount ? retained.get(i) : submitted.get(i - retainedCount);
+            if (occluding && !occlusion.isVisible(entity.getWorldMin(), entity.getWorldMax())) {
+                entitiesOccluded++;
+                continue;
+            }
+            Model model = entity.getModel();
+            Texture texture = model.getTexture();
+            int lod = selectLod(entity, camera);
+            float depth = entity.getWorldCenter().distance(camera.getPosition());
+            queue.add(RenderQueue.key(0, shaderIndex, model.getVertexLayout().ordinal(),
+                    texture != null ? texture.getId() : 0, model.getId(), lod, depth, Constants.Z_FAR), entity, i);
+        }
+        queue.sort();
+    }
+    /**
+     * Finds the end of the run of queued entities sharing the model of the entity at start.
+     *
+     * @param start The position of the run's first entity in the queue.
+     * @param byLod True to also end the run where the level of detail changes.
+     * @return The position after the run's last entity.
+     */
+    private int runEnd(int start, boolean byLod) {
+        Entity first = queue.get(start);
+        int end = start + 1;
+        while (end < queue.size()) {
+            Entity entity = queue.get(end);
+            if (entity.getModel() != first.getModel() || (byLod && entity.getLod() != first.getLod()))
+                break;
+            end++;
+        }
+        return end;
+    }
+    /**
+     * Draws every visible entity with its own transformation uniform and draw call.
+     */
+    private void renderEntities() {
+        for (int start = 0, end; start < queue.size(); start = end) {
+            Model model = queue.get(start).getModel();
+            end = runEnd(start, false);
+            if (!isResident(model))
+                continue;
             bind(model);
-            List<Entity> entityList = entities.get(model);
-            for (Entity entity: entityList){
-                prepare(entity,camera);
-                GL11.glDrawElements(GL11.GL_TRIANGLES, entity.getModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
+            for (int i = start; i < end; i++) {
+                Entity entity = queue.get(i);
+                shader.setUniform(transformationMatrix, transformation(entity, queue.getIndex(i)));
+                int lod = entity.getLod();
+                int count = model.getLodIndexCount(lod);
+                GL11.glDrawElements(GL11.GL_TRIANGLES, count, GL11.GL_UNSIGNED_INT,
+                        (long) model.getLodIndexOffset(lod) * Integer.BYTES);
+                trianglesDrawn += count / 3;
+                drawCalls++;
+            }
+        }
+        unbind();
+    }
+    /**
+     * Draws the visible entities of each model and level of detail with one instanced draw call.
+     * The model matrices are kept on the GPU as on the indirect path and read through buffer
+     * textures: those of retained entities from the per-slot transform buffer, of which only the
+     * slots updated this frame are uploaded, and those of processed entities from a buffer
+     * refilled every frame. Only an int per instance, saying where its matrix is, is streamed
+     * into the instance buffer, orphaned every frame, and each draw points the instance
+     * attribute, enabled with its divisor when the model was loaded, at its own range.
+     */
+    private void renderInstanced() {
+        uploadTransforms();
+        drawModels.clear();
+        drawData.clear();
+        instanceTransforms.clear();
+        instanceData.clear();
+        int retainedCount = retained.size(), instances = 0, dynamic = 0;
+        for (int start = 0, end; start < queue.size(); start = end) {
+            Model model = queue.get(start).getModel();
+            end = runEnd(start, true);
+            if (!isResident(model))
+                continue;
+            for (int i = start; i < end; i++) {
+                if (!instanceTransforms.hasRemaining())
+                    instanceTransforms = MemoryUtil.memRealloc(instanceTransforms, instanceTransforms.capacity() * 2);
+                int transform = queue.getIndex(i);
+                if (transform >= retainedCount) {
+                    if (instanceData.remaining() < 16)
+                        instanceData = MemoryUtil.memRealloc(instanceData, instanceData.capacity() * 2);
+                    Transformation.createTransformationMatrix(queue.get(i), instanceMatrix).get(instanceData.position(), instanceData);
+                    instanceData.position(instanceData.position() + 16);
+                    transform = ~dynamic++;
+                }
+                instanceTransforms.put(transform);
+            }
+            drawModels.add(model);
+            drawData.add(queue.get(start).getLod());
+            drawData.add(instances);
+            drawData.add(end - start);
+            instances += end - start;
+        }
+        if (drawModels.isEmpty())
+            return;
 
+        instanceTransforms.flip();
+        instanceData.flip();
+        // Orphan last frame's storage rather than wait for the draws still reading it.
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, dynamicInstanceBuffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, (long) Math.max(1, dynamic) * MATRIX_BYTES, GL15.GL_STREAM_DRAW);
+        if (dynamic > 0)
+            GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, 0, instanceData);
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+        GLState.bindTexture(GL13.GL_TEXTURE2, GL31.GL_TEXTURE_BUFFER, transformTexture);
+        GLState.bindTexture(GL13.GL_TEXTURE3, GL31.GL_TEXTURE_BUFFER, dynamicTransformTexture);
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) instanceTransforms.remaining() * Integer.BYTES, GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceTransforms);
+        Model bound = null;
+        for (int draw = 0; draw < drawModels.size(); draw++) {
+            Model model = drawModels.get(draw);
+            int lod = drawData.get(draw * 3), firstInstance = drawData.get(draw * 3 + 1), count = drawData.get(draw * 3 + 2);
+            if (model != bound) {
+                bind(model);
+                bound = model;
             }
-            unbind();
+            GL30.glVertexAttribIPointer(ObjectLoader.INSTANCE_TRANSFORM_LOCATION, 1, GL11.GL_INT, 0,
+                    (long) firstInstance * Integer.BYTES);
+            int indices = model.getLodIndexCount(lod);
+            GL31.glDrawElementsInstanced(GL11.GL_TRIANGLES, indices, GL11.GL_UNSIGNED_INT,
+                    (long) model.getLodIndexOffset(lod) * Integer.BYTES, count);
+            trianglesDrawn += indices / 3 * count;
+            drawCalls++;
         }
-        entities.clear();
-        shader.unbind();
+        unbind();
+        GLState.bindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
     /**
-     * Processes an entity for rendering by adding it to the list of entities for its model.
+     * Draws every visible entity with a few multi-draw-indirect calls. Meshes are copied into one
+     * {@link MeshArena} per vertex layout, so draws differ only in their index range; each model
+     * and level of detail becomes one DrawElementsIndirectCommand, each entity one record of
+     * transform and material index, and each model one material record, all written straight
+     * into persistently mapped buffers. The render queue is sorted by vertex layout and texture,
+     * so models sharing the arena and the texture bindings are next to each other and form one
+     * batch, submitted with a single glMultiDrawElementsIndirect; models without a texture, or on
+     * a texture array, join any batch.
+     */
+    private void renderIndirect() {
+        uploadTransforms();
+        // One entry per run of a model and level of detail, each becoming one command.
+        drawModels.clear();
+        drawData.clear();
+        int draws = 0, materials = 0;
+        Model previous = null;
+        for (int start = 0, end; start < queue.size(); start = end) {
+            Model model = queue.get(start).getModel();
+            end = runEnd(start, true);
+            if (!isResident(model))
+                continue;
+            drawModels.add(model);
+            drawData.add(start);
+            drawData.add(end);
+            draws += end - start;
+            if (model != previous)
+                materials++;
+            previous = model;
+        }
+        if (drawModels.isEmpty())
+            return;
+
+        ByteBuffer commandBytes = commandBuffer.next((long) drawModels.size() * COMMAND_BYTES);
+        ByteBuffer drawBytes = drawBuffer.next((long) draws * DRAW_BYTES);
+        ByteBuffer materialBytes = materialBuffer.next((long) materials * MATERIAL_BYTES);
+        // Sized for every processed entity, visible or not, and never empty, so it can be bound.
+        ByteBuffer dynamicBytes = dynamicTransformBuffer.next((long) Math.max(1, submitted.size()) * MATRIX_BYTES);
+        int retainedCount = retained.size(), dynamic = 0;
+        batches.clear();
+        batchTextures.clear();
+        int draw = 0, material = -1;
+        Texture batchTexture = null, batchTextureArray = null;
+        VertexLayout batchLayout = null;
+        MeshArena.Entry entry = null;
+        previous = null;
+        for (int command = 0; command < drawModels.size(); command++) {
+            Model model = drawModels.get(command);
+            if (model != previous) {
+                previous = model;
+                Texture texture = model.getTexture();
+                boolean array = texture != null && texture.isArrayLayer();
+                Texture bound = array ? batchTextureArray : batchTexture;
+                if (model.getVertexLayout() != batchLayout || (texture != null && bound != null && bound.getId() != texture.getId())) {
+                    endBatch(command, batchTexture, batchTextureArray);
+                    batches.add(command);
+                    batches.add(model.getVertexLayout().ordinal());
+                    batchLayout = model.getVertexLayout();
+                    batchTexture = null;
+                    batchTextureArray = null;
+                }
+                if (array)
+                    batchTextureArray = texture;
+                else if (texture != null)
+                    batchTexture = texture;
+                entry = arenas.computeIfAbsent(model.getVertexLayout(), layout -> new MeshArena(layout, resources)).get(model);
+                putMaterial(materialBytes, ++material * MATERIAL_BYTES, model.getMaterial());
+            }
+
+            int start = drawData.get(command * 2), end = drawData.get(command * 2 + 1);
+            int baseInstance = draw;
+            for (int i = start; i < end; i++) {
+                int transform = queue.getIndex(i);
+                if (transform >= retainedCount) {
+                    Transformation.createTransformationMatrix(queue.get(i), instanceMatrix).get(dynamic * MATRIX_BYTES, dynamicBytes);
+                    transform = ~dynamic++;
+                }
+                putDraw(drawBytes, draw++ * DRAW_BYTES, model, material, transform);
+            }
+            int lod = queue.get(start).getLod();
+            int indices = model.getLodIndexCount(lod);
+            int at = command * COMMAND_BYTES;
+            commandBytes.putInt(at, indices);
+            commandBytes.putInt(at + 4, end - start);
+            commandBytes.putInt(at + 8, entry.getFirstIndex() + model.getLodIndexOffset(lod));
+            commandBytes.putInt(at + 12, entry.getBaseVertex());
+            commandBytes.putInt(at + 16, baseInstance);
+            trianglesDrawn += indices / 3 * (end - start);
+        }
+        endBatch(drawModels.size(), batchTexture, batchTextureArray);
+
+        GLState.bindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer.getId());
+        GLState.bindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, 0, drawBuffer.getId(), drawBuffer.getOffset(), drawBytes.capacity());
+        GLState.bindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, 1, materialBuffer.getId(), materialBuffer.getOffset(), materialBytes.capacity());
+        GLState.bindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, 2, transformBuffer);
+        GLState.bindBufferRange(GL43.GL_SHADER_STORAGE_BUFFER, 3, dynamicTransformBuffer.getId(), dynamicTransformBuffer.getOffset(), dynamicBytes.capacity());
+        for (int batch = 0; batch < batches.size() / 3; batch++) {
+            int firstCommand = batches.get(batch * 3), count = batches.get(batch * 3 + 2) - firstCommand;
+            arenas.get(VertexLayout.values()[batches.get(batch * 3 + 1)]).bind();
+            for (int t = batch * 2; t < batch * 2 + 2; t++) {
+                if (batchTextures.get(t) != null)
+                    bindTexture(batchTextures.get(t));
+            }
+            GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT,
+                    commandBuffer.getOffset() + (long) firstCommand * COMMAND_BYTES, count, 0);
+            drawCalls++;
+        }
+        GLState.bindVertexArray(0);
+        GLState.bindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+        commandBuffer.fence();
+        drawBuffer.fence();
+        materialBuffer.fence();
+        dynamicTransformBuffer.fence();
+    }
+    /**
+     * Brings the retained model matrices on the GPU up to date, uploading only the runs of slots
+     * updated this frame, or every slot after the buffer grew or frames drawn per entity left it
+     * behind. The buffer is written with glBufferSubData rather than mapped, so the driver orders
+     * the writes after the draws of earlier frames still reading it.
+     */
+    private void uploadTransforms() {
+        int count = retained.size();
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, transformBuffer);
+        if (count > transformCapacity || transformCapacity == 0) {
+            transformCapacity = Math.max(Math.max(count, 1024), transformCapacity * 2);
+            GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, (long) transformCapacity * MATRIX_BYTES, GL15.GL_DYNAMIC_DRAW);
+            transformsCurrent = false;
+        }
+        if (!transformsCurrent) {
+            uploadTransforms(0, count);
+            transformsCurrent = true;
+        } else {
+            IntArray dirty = retained.getDirty();
+            for (int i = 0, end; i < dirty.size(); i = end) {
+                end = i + 1;
+                while (end < dirty.size() && dirty.get(end) == dirty.get(end - 1) + 1)
+                    end++;
+                uploadTransforms(dirty.get(i), end - i);
+            }
+        }
+        GLState.bindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+    /**
+     * Uploads the matrices of consecutive retained slots through the instance staging buffer.
+     */
+    private void uploadTransforms(int first, int count) {
+        if (count == 0)
+            return;
+        if (instanceData.capacity() < count * 16)
+            instanceData = MemoryUtil.memRealloc(instanceData, count * 16);
+        instanceData.clear();
+        instanceData.put(retained.getMatrices(), first * 16, count * 16).flip();
+        GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, (long) first * MATRIX_BYTES, instanceData);
+    }
+    /**
+     * Gets the model matrix of a queued entity: the kept matrix of its slot for a retained
+     * entity, computed for an entity processed this frame.
+     *
+     * @param entity The entity.
+     * @param index  The index of the entity in the culler.
+     * @return The model matrix, valid until the next call.
+     */
+    private Matrix4f transformation(Entity entity, int index) {
+        if (index < retained.size())
+            return instanceMatrix.set(retained.getMatrices(), index * 16);
+        return Transformation.createTransformationMatrix(entity, instanceMatrix);
+    }
+    /**
+     * Closes the batch being encoded, if any, by recording its end and its textures.
+     */
+    private void endBatch(int command, Texture texture, Texture textureArray) {
+        if (batches.size() % 3 != 2)
+            return;
+        batches.add(command);
+        batchTextures.add(texture);
+        batchTextures.add(textureArray);
+    }
+    /**
+     * Writes the Draw record of an entity: the position dequantization of its model, the index
+     * of its model's material record and where its model matrix is, a retained slot or the
+     * complement of its index in the frame's dynamic matrices.
+     */
+    private void putDraw(ByteBuffer data, int at, Model model, int material, int transform) {
+        model.getPositionScale().get(at, data);
+        data.putInt(at + 12, material);
+        model.getPositionOffset().get(at + 16, data);
+        data.putInt(at + 28, model.getVertexLayout() == VertexLayout.QUANTIZED ? 1 : 0);
+        data.putInt(at + 32, transform);
+    }
+    /**
+     * Writes a Material record, laid out as the Material struct of the fragment shader.
+     */
+    private static void putMaterial(ByteBuffer data, int at, Material material) {
+        material.getAmbientColor().get(at, data);
+        material.getDiffuseColor().get(at + 16, data);
+        material.getSpecularColor().get(at + 32, data);
+        data.putInt(at + 48, material.hasTexture() ? 1 : 0);
+        data.putFloat(at + 52, material.getReflectance());
+        data.putInt(at + 56, material.getTextureLayer());
+    }
+    /**
+     * Checks whether a model's mesh and texture are on the GPU. Touching reloads an evicted mesh
+     * or texture; a model whose assets cannot be reloaded is skipped.
+     */
+    private boolean isResident(Model model) {
+        return resources == null || (resources.touch(model) && resources.touch(model.getTexture()));
+    }
+    /**
+     * Selects the level of detail of an entity from the projected size of its bounding sphere.
+     * A boundary only moves the entity to a coarser level once the size drops
+     * {@link Constants#LOD_HYSTERESIS} below it, and back to the finer level once the size rises
+     * the same amount above it, so entities near a boundary do not flicker between levels.
+     *
+     * @param entity The Entity to draw.
+     * @param camera The Camera used for rendering.
+     * @return The level of detail to draw, also stored on the entity.
+     */
+    public int selectLod(Entity entity, Camera camera) {
+        Model model = entity.getModel();
+        int maxLod = model.getLodCount() - 1;
+        if (maxLod == 0)
+            return 0;
+
+        float radius = entity.getWorldRadius();
+        float distance = entity.getWorldCenter().distance(camera.getPosition());
+        float size = distance <= radius ? Float.MAX_VALUE : radius / (distance * (float) Math.tan(Constants.FOV / 2));
+
+        int current = entity.getLod();
+        int lod = 0;
+        for (int i = 0; i < Constants.LOD_SCREEN_SIZES.length && lod < maxLod; i++) {
+            float hysteresis = current > i ? 1 + Constants.LOD_HYSTERESIS : 1 - Constants.LOD_HYSTERESIS;
+            if (size < Constants.LOD_SCREEN_SIZES[i] * hysteresis)
+                lod = i + 1;
+        }
+        entity.setLod(lod);
+        return lod;
+    }
+    /**
+     * Gets the number of triangles drawn by the last call to render.
+     *
+     * @return The triangle count of the last frame.
+     */
+    public int getTrianglesDrawn() {
+        return trianglesDrawn;
+    }
+    /**
+     * Sets the manager told which meshes and textures each frame draws, so that it evicts the
+     * least recently drawn ones when over its GPU memory budget and reloads them when drawn again.
+     *
+     * The mesh arenas of the indirect path count against its budget, so they are emptied and
+     * filled again as models are drawn.
+     *
+     * @param resources The GPU resource manager of the loader the models come from, or null.
+     */
+    public void setResources(GpuResourceManager resources) {
+        if (this.resources != null)
+            this.resources.removeEvictionListener(arenaReleaser);
+        cleanupArenas();
+        this.resources = resources;
+        if (resources != null)
+            resources.addEvictionListener(arenaReleaser);
+    }
+    /**
+     * Gets the number of entities inside the view frustum in the last call to render.
+     *
+     * @return The visible entity count of the last frame.
+     */
+    public int getEntitiesVisible() {
+        return culler.getVisibleCount();
+    }
+    /**
+     * Gets the number of entities outside the view frustum, and not drawn, in the last call to render.
+     *
+     * @return The culled entity count of the last frame.
+     */
+    public int getEntitiesCulled() {
+        return culler.getCulledCount();
+    }
+    /**
+     * Gets the number of entities inside the view frustum but hidden by occluders, and not
+     * drawn, in the last call to render.
+     *
+     * @return The occluded entity count of the last frame.
+     */
+    public int getEntitiesOccluded() {
+        return entitiesOccluded;
+    }
+    /**
+     * Adds an occluder, a low-poly mesh that moves with an entity and hides the entities behind
+     * it from the next frames. The mesh must lie within the entity's surface. The entity itself
+     * is still drawn, through {@link #add} or {@link #processEntity}.
+     *
+     * @param entity   The Entity the occluder belongs to.
+     * @param occluder The occluder mesh, in the entity's model space.
+     */
+    public void addOccluder(Entity entity, Occluder occluder) {
+        occluderEntities.add(entity);
+        occluders.add(occluder);
+    }
+    /**
+     * Removes the occluders of an entity.
+     *
+     * @param entity The Entity whose occluders to remove.
+     */
+    public void removeOccluders(Entity entity) {
+        for (int i = occluderEntities.size() - 1; i >= 0; i--) {
+            if (occluderEntities.get(i) == entity) {
+                occluderEntities.remove(i);
+                occluders.remove(i);
+            }
+        }
+    }
+    /**
+     * Sets whether entities hidden by the occluders are culled. The occluders are rasterized on
+     * the CPU each frame, which only pays off in scenes where they hide a lot.
+     *
+     * @param occlusionCulling True to cull occluded entities.
+     */
+    public void setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+    }
+    /**
+     * Checks whether entities hidden by the occluders are culled.
+     *
+     * @return True if occluded entities are culled.
+     */
+    public boolean isOcclusionCulling() {
+        return occlusionCulling;
+    }
+    /**
+     * Gets the number of draw calls issued by the last call to render.
+     *
+     * @return The draw call count of the last frame.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+    /**
+     * Gets the number of uniform values sent to the driver by the last call to render.
+     *
+     * @return The issued uniform count of the last frame.
+     */
+    public int getUniformsIssued() {
+        return shader != null ? shader.getUniformsIssued() : 0;
+    }
+    /**
+     * Gets the number of uniform values the last call to render did not send, because the
+     * program already held them.
+     *
+     * @return The skipped uniform count of the last frame.
+     */
+    public int getUniformsSkipped() {
+        return shader != null ? shader.getUniformsSkipped() : 0;
+    }
+    /**
+     * Sets whether entities sharing a model are drawn with one instanced draw call per level of
+     * detail, or each with its own draw call.
+     *
+     * @param instancing True to draw instanced.
+     */
+    public void setInstancing(boolean instancing) {
+        this.instancing = instancing;
+    }
+    /**
+     * Checks whether entities sharing a model are drawn instanced.
+     *
+     * @return True if entities are drawn instanced.
+     */
+    public boolean isInstancing() {
+        return instancing;
+    }
+    /**
+     * Sets whether visible entities are drawn with multi-draw-indirect calls, which takes
+     * precedence over instancing. Requires OpenGL 4.6, for the base instance in the vertex
+     * shader; ignored otherwise. On by default where available.
+     *
+     * @param indirect True to draw indirect.
+     */
+    public void setIndirect(boolean indirect) {
+        this.indirect = indirect && indirectShader != null;
+    }
+    /**
+     * Checks whether visible entities are drawn with multi-draw-indirect calls.
+     *
+     * @return True if entities are drawn indirect.
+     */
+    public boolean isIndirect() {
+        return indirect;
+    }
+    /**
+     * Gets the number of textures bound by the last call to render.
+     *
+     * @return The texture bind count of the last frame.
+     */
+    public int getTextureBinds() {
+        return textureBinds;
+    }
+    /**
+     * Processes an entity for rendering by adding it to the entities of the next frame only. The
+     * frame sorts them into its render queue once culled. Suits short-lived or dynamic content;
+     * entities drawn frame after frame are cheaper to {@link #add}. An entity must not be both
+     * retained and processed, or it is drawn twice.
      *
      * @param entity The Entity to process.
      */
     public void processEntity(Entity entity){
-        List<Entity>entityList=entities.get(entity.getModel());
-        if(entityList!=null){
-            entityList.add(entity);
-        }else{
-            List<Entity> newEntityList=new ArrayList<>();
-            newEntityList.add(entity);
-            entities.put(entity.getModel(),newEntityList);
-        }
+        submitted.add(entity);
+    }
+    /**
+     * Adds an entity to the retained render list, drawing it every frame until it is removed.
+     * Its model matrix and bounding sphere are kept and recomputed only after its transform
+     * changes through its setters or {@link Entity#invalidateBounds()}.
+     *
+     * @param entity The Entity to keep.
+     */
+    public void add(Entity entity) {
+        retained.add(entity);
+    }
+    /**
+     * Removes an entity from the retained render list. The entity of the last slot moves into
+     * its slot and has its matrix uploaded again.
+     *
+     * @param entity The Entity to drop.
+     * @return True if the entity was retained.
+     */
+    public boolean remove(Entity entity) {
+        return retained.remove(entity);
+    }
+    /**
+     * Gets the number of entities in the retained render list.
+     *
+     * @return The retained entity count.
+     */
+    public int getEntitiesRetained() {
+        return retained.size();
+    }
+    /**
+     * Gets the number of retained entities whose model matrix the last call to render
+     * recomputed, the ones added or moved since the frame before.
+     *
+     * @return The updated transform count of the last frame.
+     */
+    public int getTransformsUpdated() {
+        return transformsUpdated;
     }
     /**
      * Clears the color and depth buffers for rendering.
@@ -170,6 +965,31 @@ public class RenderManager {
      * Cleans up resources, including shader cleanup.
      */
     public void cleanup() {
-        shader.cleanup();
+        entityShader.cleanup();
+        instancedShader.cleanup();
+        GLState.deleteBuffer(instanceBuffer);
+        MemoryUtil.memFree(instanceTransforms);
+        MemoryUtil.memFree(instanceData);
+        GLState.deleteTexture(transformTexture);
+        GLState.deleteTexture(dynamicTransformTexture);
+        GLState.deleteBuffer(transformBuffer);
+        GLState.deleteBuffer(dynamicInstanceBuffer);
+        if (indirectShader != null) {
+            indirectShader.cleanup();
+            commandBuffer.cleanup();
+            drawBuffer.cleanup();
+            materialBuffer.cleanup();
+            dynamicTransformBuffer.cleanup();
+        }
+        cleanupArenas();
+        frameUniforms.cleanup();
+    }
+    /**
+     * Deletes the mesh arenas, which are created again as models are drawn indirect.
+     */
+    private void cleanupArenas() {
+        for (MeshArena arena : arenas.values())
+            arena.cleanup();
+        arenas.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package Core.Managers;
+
+import Core.Entities.Entity;
+
+import java.util.Arrays;
+
+/**
+ * The RenderQueue class holds the entities to draw in a frame, each with a 64-bit sort key, and
+ * puts them in key order with a least-significant-digit radix sort. The key packs, from the most
+ * significant bits down, everything whose change costs GL state, so that sorting by it both
+ * groups draws sharing state and orders each group front to back:
+ * <pre>
+ *   63-62 pass   61-60 shader   59-58 vertex layout   57-42 texture   41-26 mesh   25-22 LOD   21-0 depth
+ * </pre>
+ * Keys and the entities they belong to live in arrays that only grow, so a frame allocates
+ * nothing once the queue has reached the frame's size.
+ * <p>
+ * The sort makes one pass per byte of the key, skipping bytes that are the same in every key,
+ * which are common: the pass and shader rarely differ within a frame.
+ */
+public class RenderQueue {
+
+    /** The largest quantized depth; depths are a fraction of the far plane distance. */
+    private static final int MAX_DEPTH = (1 << 22) - 1;
+
+    private long[] keys = new long[1024];
+    private long[] sortedKeys = new long[1024];
+    private int[] order = new int[1024];
+    private int[] sortedOrder = new int[1024];
+    private Entity[] entities = new Entity[1024];
+    private int[] indices = new int[1024];
+    private final int[] counts = new int[8 * 256];
+    private int size;
+
+    /**
+     * Packs the fields of a sort key. Fields wider than their bits are truncated, which only
+     * weakens the grouping.
+     *
+     * @param pass     The render pass; 0 for opaque geometry.
+     * @param shader   The shader program.
+     * @param layout   The vertex layout ordinal.
+     * @param texture  The OpenGL ID of the texture, or 0.
+     * @param mesh     The OpenGL ID of the mesh's vertex array.
+     * @param lod      The level of detail.
+     * @param depth    The distance to the camera.
+     * @param farPlane The distance of the far plane, mapped to the largest depth.
+     * @return The sort key.
+     */
+    public static long key(int pass, int shader, int layout, int texture, int mesh, int lod, float depth, float farPlane) {
+        int quantized = (int) Math.min(MAX_DEPTH, Math.max(0, depth / farPlane * MAX_DEPTH));
+        return (long) (pass & 3) << 62
+                | (long) (shader & 3) << 60
+                | (long) (layout & 3) << 58
+                | (long) (texture & 0xFFFF) << 42
+                | (long) (mesh & 0xFFFF) << 26
+                | (long) (lod & 0xF) << 22
+                | quantized;
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Adds an entity to draw.
+     *
+     * @param key    The sort key, from {@link #key}.
+     * @param entity The entity.
+     * @param index  The index of the entity in the frame's entities, kept for the renderer.
+     */
+    public void add(long key, Entity entity, int index) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            sortedKeys = new long[capacity];
+            order = Arrays.copyOf(order, capacity);
+            sortedOrder = new int[capacity];
+            entities = Arrays.copyOf(entities, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+        }
+        keys[size] = key;
+        order[size] = size;
+        entities[size] = entity;
+        indices[size] = index;
+        size++;
+    }
+
+    /**
+     * Sorts the entities by key. Entities with equal keys keep the order they were added in.
+     */
+    public void sort() {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int digit = 0; digit < 8; digit++)
+                counts[digit * 256 + (int) (key >>> (digit * 8) & 0xFF)]++;
+        }
+        for (int digit = 0; digit < 8; digit++) {
+            int base = digit * 256;
+            int shift = digit * 8;
+            if (counts[base + (int) (keys[0] >>> shift & 0xFF)] == size)
+                continue; // Every key has this byte, so the pass would not move anything.
+            int offset = 0;
+            for (int i = base; i < base + 256; i++) {
+                int count = counts[i];
+                counts[i] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = keys[i];
+                int at = counts[base + (int) (key >>> shift & 0xFF)]++;
+                sortedKeys[at] = key;
+                sortedOrder[at] = order[i];
+            }
+            long[] swapKeys = keys;
+            keys = sortedKeys;
+            sortedKeys = swapKeys;
+            int[] swapOrder = order;
+            order = sortedOrder;
+            sortedOrder = swapOrder;
+        }
+    }
+
+    /**
+     * Gets the number of entities in the queue.
+     *
+     * @return The entity count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets an entity in sorted order, once {@link #sort()} has been called.
+     *
+     * @param index The position in the queue.
+     * @return The entity.
+     */
+    public Entity get(int index) {
+        return entities[order[index]];
+    }
+
+    /**
+     * Gets the index an entity was added with, in sorted order.
+     *
+     * @param index The position in the queue.
+     * @return The index of the entity in the frame's entities.
+     */
+    public int getIndex(int index) {
+        return indices[order[index]];
+    }
+
+    /**
+     * Gets the sort key of an entity in sorted order.
+     *
+     * @param index The position in the queue.
+     * @return The sort key.
+     */
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Gets the level of detail packed into a sort key.
+     *
+     * @param key The sort key.
+     * @return The level of detail.
+     */
+    public static int getLod(long key) {
+        return (int) (key >>> 22) & 0xF;
+    }
+}
@@ -1,26 +1,63 @@
 package Core.Managers;
 
-import Core.Lightning.DirectionalLight;
-import Core.Lightning.PointLight;
-import Core.Lightning.SpotLight;
 import Core.Materials.Material;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 import org.joml.Matrix4f;
+import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 /**
  * The ShaderManager class is responsible for managing shaders in OpenGL, including
  * creating, compiling, and linking shaders, setting uniform variables, and cleaning up resources.
+ * <p>
+ * Uniforms are addressed by handles: small integers assigned by {@link #createUniform(String)}
+ * the first time any program creates a uniform of that name, shared by every program, which each
+ * program maps to its own location through an array. Each program also keeps a shadow copy of the
+ * last value sent for every uniform, and a value equal to it is not sent again, since the program
+ * keeps it anyway. The overloads taking names look the handle up on every call and remain for
+ * convenience; a name no program created is ignored.
  */
 public class ShaderManager {
 
+    /** The number of ints of shadow copy per uniform, enough for a 4x4 matrix. */
+    private static final int SHADOW_SIZE = 16;
+    private static final Map<String, Integer> HANDLES = new ConcurrentHashMap<>();
+
+    /**
+     * The handles of the members of a Material struct uniform, resolved once.
+     */
+    public static class MaterialUniform {
+        private final int ambient, diffuse, specular, hasTexture, reflectance, layer;
+
+        private MaterialUniform(int ambient, int diffuse, int specular, int hasTexture, int reflectance, int layer) {
+            this.ambient = ambient;
+            this.diffuse = diffuse;
+            this.specular = specular;
+            this.hasTexture = hasTexture;
+            this.reflectance = reflectance;
+            this.layer = layer;
+        }
+    }
+
     private final int programID;
     private int vertexShaderID, fragmentShaderID;
-    private final Map<String, Integer> uniforms;
+    private int[] locations = new int[0];
+    private int[] shadow = new int[0];
+    private boolean[] known = new boolean[0];
+    private final float[] matrix = new float[16];
+    private final int[] bits = new int[16];
+    private int uniformsIssued;
+    private int uniformsSkipped;
     /**
      * Constructs a new ShaderManager instance, creating an OpenGL program and initializing data structures.
      *
@@ -30,111 +67,219 @@ public class ShaderManager {
         programID = GL20.glCreateProgram();
         if (programID == 0)
             throw new Exception("Could not create the shader!");
+    }
 
-        uniforms = new HashMap<>();
+    /**
+     * Gets the handle of a uniform name, the same in every program. Looking a name up takes no
+     * lock and never adds it.
+     *
+     * @param uniformName The name of the uniform.
+     * @return The handle, or -1 if no program has created a uniform of that name.
+     */
+    public static int getHandle(String uniformName) {
+        return HANDLES.getOrDefault(uniformName, -1);
     }
 
-    public void createUniform(String uniformName) throws Exception {
+    /**
+     * Gets the handle of a uniform name, assigning the next one if the name is new.
+     */
+    private static synchronized int createHandle(String uniformName) {
+        Integer handle = HANDLES.get(uniformName);
+        if (handle == null) {
+            handle = HANDLES.size();
+            HANDLES.put(uniformName, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Looks up the location of a uniform in the linked program.
+     *
+     * @param uniformName The name of the uniform.
+     * @return The handle of the uniform.
+     * @throws Exception If the program has no active uniform of that name.
+     */
+    public int createUniform(String uniformName) throws Exception {
         int uniformLocation = GL20.glGetUniformLocation(programID, uniformName);
         if (uniformLocation < 0)
             throw new Exception("Could not find uniform " + uniformName);
-        uniforms.put(uniformName, uniformLocation);
+        int handle = createHandle(uniformName);
+        if (handle >= locations.length) {
+            int size = Math.max(handle + 1, locations.length * 2);
+            int old = locations.length;
+            locations = Arrays.copyOf(locations, size);
+            Arrays.fill(locations, old, size, -1);
+            shadow = Arrays.copyOf(shadow, size * SHADOW_SIZE);
+            known = Arrays.copyOf(known, size);
+        }
+        locations[handle] = uniformLocation;
+        known[handle] = false;
+        return handle;
+    }
+    /**
+     * Connects a uniform block of the program to a uniform buffer binding point.
+     *
+     * @param blockName The name of the uniform block.
+     * @param binding   The binding point the block reads its buffer from.
+     * @throws Exception If the program has no active block of that name.
+     */
+    public void bindUniformBlock(String blockName, int binding) throws Exception {
+        int blockIndex = GL31.glGetUniformBlockIndex(programID, blockName);
+        if (blockIndex == GL31.GL_INVALID_INDEX)
+            throw new Exception("Could not find uniform block " + blockName);
+        GL31.glUniformBlockBinding(programID, blockIndex, binding);
     }
     /**
      * Creates a set of material-related uniform variables based on the given uniform name.
      *
      * @param uniformName The base name for the material-related uniforms.
+     * @return The handles of the material's members.
      * @throws Exception If any of the material-related uniforms cannot be created.
      */
-    public void createMaterialUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".ambient");
-        createUniform(uniformName + ".diffuse");
-        createUniform(uniformName + ".specular");
-        createUniform(uniformName + ".hasTexture");
-        createUniform(uniformName + ".reflectance");
+    public MaterialUniform createMaterialUniform(String uniformName) throws Exception {
+        return new MaterialUniform(createUniform(uniformName + ".ambient"), createUniform(uniformName + ".diffuse"),
+                createUniform(uniformName + ".specular"), createUniform(uniformName + ".hasTexture"),
+                createUniform(uniformName + ".reflectance"), createUniform(uniformName + ".layer"));
     }
 
-    public void setUniform(String uniformName, Matrix4f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            GL20.glUniformMatrix4fv(uniforms.get(uniformName), false,
-                    value.get(stack.mallocFloat(16)));
+    /**
+     * Checks a value against the shadow copy of a uniform, updating the copy and the counters.
+     *
+     * @param handle The handle of the uniform.
+     * @param count  The number of ints the value takes, written to {@code values} as float bits.
+     * @return The location to send the value to, or -1 if it is unchanged or the uniform was not created.
+     */
+    private int changed(int handle, int[] values, int count) {
+        if (handle < 0 || handle >= locations.length || locations[handle] < 0)
+            return -1;
+        int at = handle * SHADOW_SIZE;
+        if (known[handle] && Arrays.equals(shadow, at, at + count, values, 0, count)) {
+            uniformsSkipped++;
+            return -1;
         }
+        System.arraycopy(values, 0, shadow, at, count);
+        known[handle] = true;
+        uniformsIssued++;
+        return locations[handle];
     }
 
-    public void setUniform(String uniformName, Vector3f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            GL20.glUniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
-        }
+    private int changed(int handle, float x) {
+        bits[0] = Float.floatToRawIntBits(x);
+        return changed(handle, bits, 1);
     }
 
-    public void setUniform(String uniformName, Vector4f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            GL20.glUniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
-        }
+    private int changed(int handle, float x, float y, float z, float w, int count) {
+        bits[0] = Float.floatToRawIntBits(x);
+        bits[1] = Float.floatToRawIntBits(y);
+        bits[2] = Float.floatToRawIntBits(z);
+        bits[3] = Float.floatToRawIntBits(w);
+        return changed(handle, bits, count);
     }
+
     /**
-     * Creates directional light-related uniform variables based on the given uniform name.
+     * Sets a matrix uniform by handle, unless the program already holds the value.
      *
-     * @param uniformName The base name for the directional light-related uniforms.
-     * @throws Exception If any of the directional light-related uniforms cannot be created.
+     * @param handle The handle returned by {@link #createUniform(String)} or {@link #getHandle(String)};
+     *               -1 is ignored.
+     * @param value  The value.
      */
-    public void createDirectionalLightUniform(String uniformName)throws Exception{
-        createUniform(uniformName+".color");;
-        createUniform(uniformName+".direction");;
-        createUniform(uniformName+".intensity");;
-
-    }
-    public void setUniform(String uniformName, Material material) {
-        setUniform(uniformName + ".ambient", material.getAmbientColor());
-        setUniform(uniformName + ".diffuse", material.getDiffuseColor());
-        setUniform(uniformName + ".specular", material.getSpecularColor());
-        setUniform(uniformName + ".hasTexture", material.hasTexture() ? 1 : 0);
-        setUniform(uniformName + ".reflectance", material.getReflectance());
-    }
-    public void creatPointLightUniform(String uniformName)throws Exception{
-        createUniform(uniformName+".color");
-        createUniform(uniformName+".position");
-        createUniform(uniformName+".intensity");
-        createUniform(uniformName+".constant");
-        createUniform(uniformName+".linear");
-        createUniform(uniformName+".exponent");
-    }
-    public void createSpotLightUniform(String uniformName)throws Exception{
-        creatPointLightUniform(uniformName+".pl");
-        createUniform(uniformName+".coneDir");
-        createUniform(uniformName+".cutOff");
-    }
-    public void createPointLightListUniform(String uniformName,int size)throws Exception{
-        for(int i=0;i<size;i++){
-            creatPointLightUniform(uniformName+"["+i+"]");
-        }
+    public void setUniform(int handle, Matrix4f value) {
+        value.get(matrix);
+        for (int i = 0; i < 16; i++)
+            bits[i] = Float.floatToRawIntBits(matrix[i]);
+        int location = changed(handle, bits, 16);
+        if (location >= 0)
+            GL20.glUniformMatrix4fv(location, false, matrix);
     }
-    public void createSpotLightListUniform(String uniformName,int size)throws Exception{
-        for(int i=0;i<size;i++){
-            createSpotLightUniform(uniformName+"["+i+"]");
-        }
+
+    public void setUniform(int handle, Vector3f value) {
+        int location = changed(handle, value.x, value.y, value.z, 0, 3);
+        if (location >= 0)
+            GL20.glUniform3f(location, value.x, value.y, value.z);
+    }
+
+    public void setUniform(int handle, Vector4f value) {
+        int location = changed(handle, value.x, value.y, value.z, value.w, 4);
+        if (location >= 0)
+            GL20.glUniform4f(location, value.x, value.y, value.z, value.w);
+    }
+
+    public void setUniform(int handle, int value) {
+        bits[0] = value;
+        int location = changed(handle, bits, 1);
+        if (location >= 0)
+            GL20.glUniform1i(location, value);
+    }
+
+    public void setUniform(int handle, float value) {
+        int location = changed(handle, value);
+        if (location >= 0)
+            GL20.glUniform1f(location, value);
+    }
+
+    public void setUniform(MaterialUniform uniform, Material material) {
+        setUniform(uniform.ambient, material.getAmbientColor());
+        setUniform(uniform.diffuse, material.getDiffuseColor());
+        setUniform(uniform.specular, material.getSpecularColor());
+        setUniform(uniform.hasTexture, material.hasTexture() ? 1 : 0);
+        setUniform(uniform.reflectance, material.getReflectance());
+        setUniform(uniform.layer, material.getTextureLayer());
+    }
+
+    public void setUniform(String uniformName, Matrix4f value) {
+        setUniform(getHandle(uniformName), value);
+    }
+
+    public void setUniform(String uniformName, Vector3f value) {
+        setUniform(getHandle(uniformName), value);
+    }
+
+    public void setUniform(String uniformName, Vector4f value) {
+        setUniform(getHandle(uniformName), value);
     }
 
     public void setUniform(String uniformName, boolean value) {
         float res = 0;
         if (value)
             res = 1;
-        GL20.glUniform1f(uniforms.get(uniformName), res);
+        setUniform(getHandle(uniformName), res);
     }
 
     public void setUniform(String uniformName, int value) {
-        GL20.glUniform1i(uniforms.get(uniformName), value);
+        setUniform(getHandle(uniformName), value);
     }
 
     public void setUniform(String uniformName, float value) {
-        GL20.glUniform1f(uniforms.get(uniformName), value);
+        setUniform(getHandle(uniformName), value);
+    }
+
+    /**
+     * Gets the number of uniform values sent to the driver since the counters were last reset.
+     *
+     * @return The issued uniform count.
+     */
+    public int getUniformsIssued() {
+        return uniformsIssued;
     }
 
-    public void setUniform(String uniformName, SpotLight spotLight){
-        setUniform(uniformName+".pl",spotLight.getPointLight());
-        setUniform(uniformName+".coneDir",spotLight.getConeDirection());
-        setUniform(uniformName+".cutOff",spotLight.getCutOff());
+    /**
+     * Gets the number of uniform values not sent because the program already held them, since
+     * the counters were last reset.
+     *
+     * @return The skipped uniform count.
+     */
+    public int getUniformsSkipped() {
+        return uniformsSkipped;
     }
+
+    /**
+     * Resets the issued and skipped uniform counters, typically at the start of a frame.
+     */
+    public void resetUniformCounters() {
+        uniformsIssued = 0;
+        uniformsSkipped = 0;
+    }
+
     /**
      * Creates a vertex shader with the provided shader code.
      *
@@ -144,39 +289,14 @@ public class ShaderManager {
     public void createVertexShader(String shaderCode) throws Exception {
         vertexShaderID = createShader(shaderCode, GL20.GL_VERTEX_SHADER);
     }
-    public void setUniform(String uniformName, DirectionalLight directionalLight){
-        setUniform(uniformName+".color",directionalLight.getColor());
-        setUniform(uniformName+".direction",directionalLight.getDirection());
-        setUniform(uniformName+".intensity",directionalLight.getIntensity());
-
-    }
-    public void setUniform(String uniformName, PointLight pointLight){
-        setUniform(uniformName+".color",pointLight.getColor());
-        setUniform(uniformName+".position",pointLight.getPosition());
-        setUniform(uniformName+".intensity",pointLight.getIntensity());
-        setUniform(uniformName+".constant",pointLight.getConstant());
-        setUniform(uniformName+".linear",pointLight.getLinear());
-        setUniform(uniformName+".exponent",pointLight.getExponent());
-    }
-    public void setUniform(String uniformName,PointLight[] pointLights){
-        int numLights=pointLights!=null? pointLights.length : 0;
-        for(int i =0;i<numLights;i++){
-            setUniform(uniformName,pointLights[i],i);
-        }
-    }
-    public void setUniform(String uniformName,SpotLight[] spotLights){
-        int numLights=spotLights!=null? spotLights.length : 0;
-        for(int i =0;i<numLights;i++){
-            setUniform(uniformName,spotLights[i],i);
-        }
-    }
-
-    public void setUniform(String uniformName, SpotLight spotLight, int pos) {
-        setUniform(uniformName+"["+pos+"]",spotLight);
-    }
-
-    public void setUniform(String uniformName, PointLight pointLight, int pos) {
-        setUniform(uniformName+"["+pos+"]",pointLight);
+    /**
+     * Creates a vertex shader from UTF-8 source bytes, without decoding them into a String.
+     *
+     * @param shaderCode A direct buffer holding the source code for the vertex shader.
+     * @throws Exception If an error occurs during vertex shader creation.
+     */
+    public void createVertexShader(ByteBuffer shaderCode) throws Exception {
+        vertexShaderID = createShader(shaderCode, GL20.GL_VERTEX_SHADER);
     }
     /**
      * Creates a fragment shader with the provided shader code.
@@ -187,6 +307,15 @@ public class ShaderManager {
     public void createFragmentShader(String shaderCode) throws Exception {
         fragmentShaderID = createShader(shaderCode, GL20.GL_FRAGMENT_SHADER);
     }
+    /**
+     * Creates a fragment shader from UTF-8 source bytes, without decoding them into a String.
+     *
+     * @param shaderCode A direct buffer holding the source code for the fragment shader.
+     * @throws Exception If an error occurs during fragment shader creation.
+     */
+    public void createFragmentShader(ByteBuffer shaderCode) throws Exception {
+        fragmentShaderID = createShader(shaderCode, GL20.GL_FRAGMENT_SHADER);
+    }
     /**
      * Creates a shader of the specified type with the provided shader code.
      *
@@ -201,6 +330,38 @@ public class ShaderManager {
             throw new Exception("Error creating shader, type : " + shaderType);
 
         GL20.glShaderSource(shaderID, shaderCode);
+        return compileShader(shaderID, shaderType);
+    }
+    /**
+     * Creates a shader of the specified type from source bytes, passing the buffer's memory
+     * to the driver directly.
+     *
+     * @param shaderCode A direct buffer holding the source code, from its position to its limit.
+     * @param shaderType The type of the shader (GL_VERTEX_SHADER or GL_FRAGMENT_SHADER).
+     * @return The ID of the created shader.
+     * @throws Exception If an error occurs during shader creation.
+     */
+    public int createShader(ByteBuffer shaderCode, int shaderType) throws Exception {
+        int shaderID = GL20.glCreateShader(shaderType);
+        if (shaderID == 0)
+            throw new Exception("Error creating shader, type : " + shaderType);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer strings = stack.pointers(MemoryUtil.memAddress(shaderCode));
+            IntBuffer lengths = stack.ints(shaderCode.remaining());
+            GL20.glShaderSource(shaderID, strings, lengths);
+        }
+        return compileShader(shaderID, shaderType);
+    }
+    /**
+     * Compiles a shader whose source has been set and attaches it to the program.
+     *
+     * @param shaderID   The ID of the shader.
+     * @param shaderType The type of the shader, used in error messages.
+     * @return The ID of the compiled shader.
+     * @throws Exception If the shader does not compile.
+     */
+    private int compileShader(int shaderID, int shaderType) throws Exception {
         GL20.glCompileShader(shaderID);
 
         if (GL20.glGetShaderi(shaderID, GL20.GL_COMPILE_STATUS) == 0)
@@ -240,13 +401,13 @@ public class ShaderManager {
      * Binds the shader program for use.
      */
     public void bind() {
-        GL20.glUseProgram(programID);
+        GLState.useProgram(programID);
     }
     /**
      * Unbinds the currently bound shader program.
      */
     public void unbind() {
-        GL20.glUseProgram(0);
+        GLState.useProgram(0);
     }
     /**
      * Cleans up resources by unbinding the shader program and deleting it.
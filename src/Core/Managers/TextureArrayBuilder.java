@@ -0,0 +1,185 @@
+package Core.Managers;
+
+import Core.Entities.Texture;
+import Core.Textures.CompiledTexture;
+import Core.Textures.ImageData;
+import Core.Textures.TextureFormat;
+import Core.Textures.TextureOptions;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL30;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TextureArrayBuilder class packs textures into the layers of one {@code GL_TEXTURE_2D_ARRAY}.
+ * All models whose materials use a layer of the same array can be drawn while that one texture
+ * stays bound; the fragment shader picks the layer from the material. The builder's size is the
+ * largest a layer may have: larger images are resampled down to it, which keeps their texture
+ * coordinates valid without remapping them, while smaller ones keep their size and go into an
+ * array of their own, one per distinct size. Layers are compiled with their complete mip chains,
+ * through the loader's texture cache when it has one, so no mipmaps are generated on the driver.
+ * <p>
+ * Image files are only compiled by {@link #compile()}, which makes no OpenGL calls and can run on
+ * a worker thread, as {@link AssetLoader#loadTextureArray(TextureArrayBuilder)} does.
+ */
+public class TextureArrayBuilder {
+
+    private final ObjectLoader loader;
+    private final int width;
+    private final int height;
+    private final TextureFormat format;
+    private final TextureOptions options;
+    private final List<String> filenames = new ArrayList<>();
+    private final List<CompiledTexture> layers = new ArrayList<>();
+
+    /**
+     * Constructs a new TextureArrayBuilder for uncompressed layers.
+     *
+     * @param loader  The loader that owns the array texture.
+     * @param width   The largest width of a layer in pixels.
+     * @param height  The largest height of a layer in pixels.
+     * @param options The filtering and mipmap options of the array.
+     */
+    public TextureArrayBuilder(ObjectLoader loader, int width, int height, TextureOptions options) {
+        this(loader, width, height, TextureFormat.RGBA8, options);
+    }
+
+    /**
+     * Constructs a new TextureArrayBuilder.
+     *
+     * @param loader  The loader that owns the array texture.
+     * @param width   The largest width of a layer in pixels.
+     * @param height  The largest height of a layer in pixels.
+     * @param format  The format of the layers.
+     * @param options The filtering and mipmap options of the array.
+     */
+    public TextureArrayBuilder(ObjectLoader loader, int width, int height, TextureFormat format, TextureOptions options) {
+        this.loader = loader;
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.options = options;
+    }
+
+    /**
+     * Adds an image file as the next layer; it is compiled by {@link #compile()}.
+     *
+     * @param filename The path to the image file.
+     * @return The index of the layer's texture in the array returned by {@link #build()}.
+     */
+    public int add(String filename) {
+        filenames.add(filename);
+        layers.add(null);
+        return layers.size() - 1;
+    }
+
+    /**
+     * Compiles an image and adds it as the next layer. The builder takes ownership of the image
+     * and frees it.
+     *
+     * @param image The image to add.
+     * @return The index of the layer's texture in the array returned by {@link #build()}.
+     * @throws Exception If the image cannot be resampled.
+     */
+    public int add(ImageData image) throws Exception {
+        try {
+            boolean larger = image.getWidth() > width || image.getHeight() > height;
+            layers.add(CompiledTexture.compile(image, format, larger ? Math.min(image.getWidth(), width) : 0,
+                    larger ? Math.min(image.getHeight(), height) : 0, 0));
+        } finally {
+            image.free();
+        }
+        filenames.add(null);
+        return layers.size() - 1;
+    }
+
+    /**
+     * Compiles the image files added since the last call, through the loader's texture cache if it
+     * has one. Makes no OpenGL calls, so it may run on a worker thread.
+     *
+     * @throws Exception If an image cannot be decoded or resampled.
+     */
+    public void compile() throws Exception {
+        for (int layer = 0; layer < layers.size(); layer++) {
+            if (layers.get(layer) != null)
+                continue;
+            String filename = filenames.get(layer);
+            int[] size = ImageData.getSize(filename);
+            boolean larger = size[0] > width || size[1] > height;
+            layers.set(layer, loader.compileTexture(filename, format, larger ? Math.min(size[0], width) : 0,
+                    larger ? Math.min(size[1], height) : 0));
+        }
+    }
+
+    /**
+     * Gets the number of bytes {@link #build()} uploads, once the layers are compiled.
+     *
+     * @return The size of the compiled mip chains.
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (CompiledTexture layer : layers) {
+            if (layer != null)
+                bytes += layer.getLevelsSize();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of layers added so far.
+     *
+     * @return The layer count.
+     */
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * Uploads the mip chains of the added layers into new array textures, one per distinct layer
+     * size, compiling the layers that are not compiled yet first. Must be called on the render thread.
+     *
+     * @return One texture per added image, in the order they were added; textures of the same size
+     * share an array's ID.
+     * @throws Exception If an image cannot be compiled, or an array has more layers than the driver supports.
+     */
+    public Texture[] build() throws Exception {
+        compile();
+        Texture[] textures = new Texture[layers.size()];
+        int maxLayers = layers.isEmpty() ? 0 : GL11.glGetInteger(GL30.GL_MAX_ARRAY_TEXTURE_LAYERS);
+        for (int first = 0; first < layers.size(); first++) {
+            if (textures[first] != null)
+                continue;
+            CompiledTexture size = layers.get(first);
+            List<Integer> group = new ArrayList<>();
+            for (int layer = first; layer < layers.size(); layer++) {
+                CompiledTexture texture = layers.get(layer);
+                if (textures[layer] == null && texture.getWidth() == size.getWidth() && texture.getHeight() == size.getHeight())
+                    group.add(layer);
+            }
+            if (group.size() > maxLayers)
+                throw new Exception("Texture array of " + group.size() + " layers exceeds the limit of " + maxLayers);
+
+            int levels = options.hasMipmaps() ? size.getLevelCount() : 1;
+            int id = loader.createTextureArray(format, size.getWidth(), size.getHeight(), group.size(), levels, options);
+            for (int layer = 0; layer < group.size(); layer++) {
+                CompiledTexture texture = layers.get(group.get(layer));
+                for (int level = 0; level < levels; level++) {
+                    int w = texture.getLevelWidth(level), h = texture.getLevelHeight(level);
+                    if (format.isCompressed())
+                        GL13.glCompressedTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, 0, 0, layer, w, h, 1,
+                                format.getInternalFormat(), texture.getLevel(level));
+                    else
+                        GL12.glTexSubImage3D(GL30.GL_TEXTURE_2D_ARRAY, level, 0, 0, layer, w, h, 1,
+                                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, texture.getLevel(level));
+                }
+                textures[group.get(layer)] = new Texture(id, layer);
+            }
+        }
+        filenames.clear();
+        layers.clear();
+        return textures;
+    }
+}
@@ -0,0 +1,187 @@
+package Core.Managers;
+
+import Core.Entities.Texture;
+import Core.Textures.ImageData;
+import Core.Textures.TextureOptions;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The TextureCache class shares textures between all users of the same image file and options.
+ * Each {@link #acquire} of a texture must be matched by one {@link #release}; when the last user
+ * releases a texture, its GPU memory is freed. A texture that is still loading is shared too, so
+ * requesting the same image twice in a row decodes and uploads it only once.
+ * <p>
+ * The cache is not thread-safe and must be used from the render thread, where the futures of
+ * the texture source complete.
+ */
+public class TextureCache {
+
+    private final ObjectLoader loader;
+    private final TextureSource source;
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final Map<Texture, Key> keysByTexture = new IdentityHashMap<>();
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    /**
+     * The identity of a texture: the image file and the options it was loaded with.
+     */
+    private static class Key {
+        private final String path;
+        private final TextureOptions options;
+
+        private Key(String path, TextureOptions options) {
+            this.path = path;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && path.equals(other.path) && options.equals(other.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, options);
+        }
+    }
+
+    /**
+     * A shared texture and the number of users holding it.
+     */
+    private static class Entry {
+        private final CompletableFuture<Texture> texture;
+        private int references;
+
+        private Entry(CompletableFuture<Texture> texture) {
+            this.texture = texture;
+        }
+    }
+
+    /**
+     * Constructs a new TextureCache.
+     *
+     * @param loader The loader that deletes the textures, and uploads them when no source is set.
+     * @param source The source to load textures in the background with, such as an
+     *               {@link AssetLoader} or a {@link TextureStreamer}, or null to load them
+     *               synchronously on acquire.
+     */
+    public TextureCache(ObjectLoader loader, TextureSource source) {
+        this.loader = loader;
+        this.source = source;
+    }
+
+    /**
+     * Acquires the texture of an image file with the default options.
+     *
+     * @param path The path to the image file.
+     * @return A future completed with the shared texture.
+     */
+    public CompletableFuture<Texture> acquire(String path) {
+        return acquire(path, TextureOptions.DEFAULT);
+    }
+
+    /**
+     * Acquires the texture of an image file, loading it if no user holds it yet.
+     *
+     * @param path    The path to the image file.
+     * @param options The filtering and mipmap options.
+     * @return A future completed with the shared texture; already completed when the texture was cached
+     *         or no source is set.
+     */
+    public CompletableFuture<Texture> acquire(String path, TextureOptions options) {
+        Key key = new Key(path, options);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            entry.references++;
+            return entry.texture;
+        }
+
+        misses++;
+        entry = new Entry(source != null ? source.loadTexture(path, options) : loadNow(path, options));
+        entry.references = 1;
+        entries.put(key, entry);
+        Entry loading = entry;
+        entry.texture.whenComplete((texture, e) -> {
+            if (e != null)
+                entries.remove(key, loading); // Let the next acquire try again.
+            else
+                keysByTexture.put(texture, key);
+        });
+        return entry.texture;
+    }
+
+    private CompletableFuture<Texture> loadNow(String path, TextureOptions options) {
+        try {
+            ImageData image = ImageData.decode(path);
+            try {
+                return CompletableFuture.completedFuture(loader.setSource(new Texture(loader.loadTexture(image, options)), path, options));
+            } finally {
+                image.free();
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Releases one use of a texture, deleting it when no user is left.
+     *
+     * @param texture The texture returned by {@link #acquire}.
+     */
+    public void release(Texture texture) {
+        Key key = keysByTexture.get(texture);
+        if (key == null)
+            return;
+        Entry entry = entries.get(key);
+        if (--entry.references > 0)
+            return;
+        entries.remove(key);
+        keysByTexture.remove(texture);
+        loader.deleteTexture(texture);
+        evictions++;
+    }
+
+    /**
+     * Gets the number of textures currently held by at least one user.
+     *
+     * @return The cached texture count.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of acquires served by an already loaded or loading texture.
+     *
+     * @return The hit count.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of acquires that had to load a texture.
+     *
+     * @return The miss count.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of textures deleted because their last user released them.
+     *
+     * @return The eviction count.
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+}
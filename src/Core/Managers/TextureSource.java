@@ -0,0 +1,22 @@
+package Core.Managers;
+
+import Core.Entities.Texture;
+import Core.Textures.TextureOptions;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The TextureSource interface is implemented by the loaders that turn image files into textures
+ * in the background, so a {@link TextureCache} can share the textures of any of them.
+ */
+public interface TextureSource {
+
+    /**
+     * Starts loading a texture from an image file.
+     *
+     * @param filename The path to the image file.
+     * @param options  The filtering and mipmap options.
+     * @return A future completed on the render thread with the texture once it is on the GPU.
+     */
+    CompletableFuture<Texture> loadTexture(String filename, TextureOptions options);
+}
@@ -0,0 +1,236 @@
+package Core.Managers;
+
+import Core.Entities.Texture;
+import Core.Textures.ImageData;
+import Core.Textures.TextureOptions;
+import Core.Utils.Constants;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The TextureStreamer class loads textures without stalling the render thread. Images are decoded
+ * by a pool of worker threads into native buffers. Once per frame, {@link #update()} copies decoded
+ * images into a ring of pixel buffer objects and starts {@code glTexSubImage2D} from them, which
+ * returns as soon as the transfer is queued instead of waiting for the driver to copy the pixels.
+ * Each ring slot is protected by a fence, and a slot whose previous transfer has not finished
+ * yet is skipped until a later frame rather than waited for.
+ */
+public class TextureStreamer implements TextureSource {
+
+    private final ObjectLoader loader;
+    private final ExecutorService decoders;
+    private final Queue<Decoded> decoded = new ConcurrentLinkedQueue<>();
+    private final int[] pixelBuffers;
+    private final long[] pixelBufferSizes;
+    private final long[] fences;
+    private int nextSlot;
+    private long frameBudgetBytes = Constants.UPLOAD_BUDGET_BYTES;
+    private int pending;
+    private int lastFrameUploads;
+
+    /**
+     * A decoded image waiting for a pixel buffer, or the error decoding it, and the future of its texture.
+     */
+    private static class Decoded {
+        private final ImageData image;
+        private final Throwable error;
+        private final TextureOptions options;
+        private final CompletableFuture<Texture> texture;
+
+        private Decoded(ImageData image, Throwable error, TextureOptions options, CompletableFuture<Texture> texture) {
+            this.image = image;
+            this.error = error;
+            this.options = options;
+            this.texture = texture;
+        }
+    }
+
+    /**
+     * Constructs a new TextureStreamer with {@link Constants#TEXTURE_DECODE_THREADS} decoder
+     * threads and {@link Constants#PIXEL_BUFFER_RING_SIZE} pixel buffers. Must be called on the
+     * render thread.
+     *
+     * @param loader The loader that owns the created textures.
+     */
+    public TextureStreamer(ObjectLoader loader) {
+        this(loader, Constants.TEXTURE_DECODE_THREADS, Constants.PIXEL_BUFFER_RING_SIZE);
+    }
+
+    /**
+     * Constructs a new TextureStreamer. Must be called on the render thread.
+     *
+     * @param loader        The loader that owns the created textures.
+     * @param decodeThreads The number of decoder threads.
+     * @param ringSize      The number of pixel buffers uploads rotate through.
+     */
+    public TextureStreamer(ObjectLoader loader, int decodeThreads, int ringSize) {
+        this.loader = loader;
+        this.decoders = Executors.newFixedThreadPool(decodeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "texture-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pixelBuffers = new int[ringSize];
+        this.pixelBufferSizes = new long[ringSize];
+        this.fences = new long[ringSize];
+        for (int i = 0; i < ringSize; i++)
+            pixelBuffers[i] = GL15.glGenBuffers();
+    }
+
+    /**
+     * Starts decoding an image file on the decoder pool.
+     *
+     * @param filename The path to the image file.
+     * @param options  The filtering and mipmap options.
+     * @return A future completed on the render thread once the upload of the texture has been issued.
+     */
+    @Override
+    public CompletableFuture<Texture> loadTexture(String filename, TextureOptions options) {
+        CompletableFuture<Texture> texture = new CompletableFuture<>();
+        pending++;
+        decoders.execute(() -> {
+            try {
+                decoded.add(new Decoded(ImageData.decode(filename), null, options, texture));
+            } catch (Throwable e) {
+                decoded.add(new Decoded(null, e, options, texture));
+            }
+        });
+        return texture;
+    }
+
+    /**
+     * Issues the uploads of decoded images while a pixel buffer is free and the frame's byte
+     * budget is not spent. At least one upload is issued if a buffer is free, so images larger
+     * than the budget still get through. Must be called once per frame on the render thread.
+     */
+    public void update() {
+        long bytes = 0;
+        int uploads = 0;
+        Decoded next;
+        while ((next = decoded.peek()) != null) {
+            if (next.error != null) {
+                decoded.poll();
+                pending--;
+                next.texture.completeExceptionally(next.error);
+                continue;
+            }
+            long size = (long) next.image.getWidth() * next.image.getHeight() * 4;
+            if (uploads > 0 && bytes + size > frameBudgetBytes)
+                break;
+            int slot = nextSlot;
+            if (!isFree(slot))
+                break;
+            decoded.poll();
+            pending--;
+            try {
+                next.texture.complete(upload(slot, next));
+            } catch (Throwable e) {
+                next.texture.completeExceptionally(e);
+            } finally {
+                next.image.free();
+            }
+            nextSlot = (slot + 1) % pixelBuffers.length;
+            bytes += size;
+            uploads++;
+        }
+        lastFrameUploads = uploads;
+    }
+
+    /**
+     * Checks without blocking whether the GPU has finished reading a ring slot.
+     */
+    private boolean isFree(int slot) {
+        if (fences[slot] == 0)
+            return true;
+        int status = GL32.glClientWaitSync(fences[slot], 0, 0);
+        if (status == GL32.GL_TIMEOUT_EXPIRED)
+            return false;
+        GL32.glDeleteSync(fences[slot]);
+        fences[slot] = 0;
+        return true;
+    }
+
+    private Texture upload(int slot, Decoded item) {
+        ImageData image = item.image;
+        long size = (long) image.getWidth() * image.getHeight() * 4;
+        // Allocate the storage before binding the pixel buffer, where a null pointer would mean offset 0.
+        int id = loader.createTexture(image.getWidth(), image.getHeight(), item.options);
+        GLState.bindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pixelBuffers[slot]);
+        if (pixelBufferSizes[slot] < size) {
+            GL15.glBufferData(GL21.GL_PIXEL_UNPACK_BUFFER, size, GL15.GL_STREAM_DRAW);
+            pixelBufferSizes[slot] = size;
+        }
+        ByteBuffer mapped = GL30.glMapBufferRange(GL21.GL_PIXEL_UNPACK_BUFFER, 0, size,
+                GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (mapped == null) {
+            GLState.bindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+            throw new IllegalStateException("Could not map pixel buffer " + slot);
+        }
+        MemoryUtil.memCopy(MemoryUtil.memAddress(image.getPixels()), MemoryUtil.memAddress(mapped), size);
+        GL15.glUnmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+
+        GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, image.getWidth(), image.getHeight(),
+                GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0L);
+        if (item.options.hasMipmaps())
+            GL30.glGenerateMipmap(GL11.GL_TEXTURE_2D);
+        fences[slot] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        GLState.bindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+        return new Texture(id);
+    }
+
+    /**
+     * Sets the number of bytes {@link #update()} may upload per frame.
+     *
+     * @param bytes The byte budget.
+     */
+    public void setFrameBudget(long bytes) {
+        this.frameBudgetBytes = bytes;
+    }
+
+    /**
+     * Gets the number of textures requested but not uploaded yet.
+     *
+     * @return The pending texture count.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Gets the number of uploads the last call to {@link #update()} issued.
+     *
+     * @return The upload count of the last frame.
+     */
+    public int getLastFrameUploads() {
+        return lastFrameUploads;
+    }
+
+    /**
+     * Stops the decoders and deletes the pixel buffers and their fences.
+     */
+    public void cleanup() {
+        decoders.shutdownNow();
+        Decoded item;
+        while ((item = decoded.poll()) != null) {
+            if (item.image != null)
+                item.image.free();
+            item.texture.cancel(false);
+        }
+        for (int i = 0; i < pixelBuffers.length; i++) {
+            if (fences[i] != 0)
+                GL32.glDeleteSync(fences[i]);
+            GLState.deleteBuffer(pixelBuffers[i]);
+        }
+    }
+}
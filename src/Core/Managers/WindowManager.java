@@ -97,10 +97,10 @@ public class WindowManager {
         GL.createCapabilities();
 
         GL11.glClearColor(0.5f, 0.5f, 0.5f, 0.0f);
-        GL11.glEnable(GL11.GL_DEPTH_TEST);
-        GL11.glEnable(GL11.GL_STENCIL_TEST);
-        GL11.glEnable(GL11.GL_CULL_FACE);
-        GL11.glEnable(GL11.GL_BACK);
+        GLState.enable(GL11.GL_DEPTH_TEST);
+        GLState.enable(GL11.GL_STENCIL_TEST);
+        GLState.enable(GL11.GL_CULL_FACE);
+        GL11.glCullFace(GL11.GL_BACK);
     }
     /**
      * Swaps the front and back buffers, and polls for events.
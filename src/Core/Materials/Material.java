@@ -115,4 +115,12 @@ public class Material {
     public boolean hasTexture(){
         return texture!=null;
     }
+    /**
+     * Gets the layer of the array texture the material samples.
+     *
+     * @return The layer index, or -1 if the material has no texture or a plain 2D texture.
+     */
+    public int getTextureLayer(){
+        return texture!=null ? texture.getLayer() : -1;
+    }
 }
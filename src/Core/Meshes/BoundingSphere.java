@@ -0,0 +1,84 @@
+package Core.Meshes;
+
+import java.nio.FloatBuffer;
+
+/**
+ * The BoundingSphere class computes a bounding sphere of a point set with Ritter's algorithm:
+ * a first sphere spans two points far apart, found in two linear passes, and grows just enough
+ * to take in every point outside it in a third. The result is within a few percent of the
+ * minimal sphere for typical meshes. The sphere around the center of the bounding box is
+ * computed as well, and the smaller of the two is kept, since Ritter's sphere can be the larger
+ * one for box-like meshes.
+ */
+public class BoundingSphere {
+
+    private BoundingSphere() {
+    }
+
+    /**
+     * Computes a bounding sphere of a mesh's positions.
+     *
+     * @param positions The positions, three floats per vertex, from the buffer's position to its limit.
+     * @param bounds    The bounding box of the positions: minimum x, y, z followed by maximum x, y, z.
+     * @return The center x, y, z followed by the radius; all zero for no positions.
+     */
+    public static float[] compute(FloatBuffer positions, float[] bounds) {
+        int base = positions.position();
+        int count = positions.remaining() / 3;
+        if (count == 0)
+            return new float[4];
+
+        // Ritter: the point farthest from the first point, then the point farthest from that one.
+        int a = farthest(positions, base, count, positions.get(base), positions.get(base + 1), positions.get(base + 2));
+        int b = farthest(positions, base, count, positions.get(base + a * 3), positions.get(base + a * 3 + 1), positions.get(base + a * 3 + 2));
+        double cx = (positions.get(base + a * 3) + positions.get(base + b * 3)) / 2.0;
+        double cy = (positions.get(base + a * 3 + 1) + positions.get(base + b * 3 + 1)) / 2.0;
+        double cz = (positions.get(base + a * 3 + 2) + positions.get(base + b * 3 + 2)) / 2.0;
+        double radius = Math.sqrt(distanceSquared(positions, base + a * 3, cx, cy, cz));
+        for (int i = 0; i < count; i++) {
+            double d = Math.sqrt(distanceSquared(positions, base + i * 3, cx, cy, cz));
+            if (d <= radius)
+                continue;
+            // Move the center towards the outside point so the new sphere touches both it and
+            // the far side of the old sphere.
+            double grown = (radius + d) / 2;
+            double shift = (grown - radius) / d;
+            cx += (positions.get(base + i * 3) - cx) * shift;
+            cy += (positions.get(base + i * 3 + 1) - cy) * shift;
+            cz += (positions.get(base + i * 3 + 2) - cz) * shift;
+            radius = grown;
+        }
+
+        double bx = (bounds[0] + bounds[3]) / 2.0, by = (bounds[1] + bounds[4]) / 2.0, bz = (bounds[2] + bounds[5]) / 2.0;
+        double boxRadius = 0;
+        for (int i = 0; i < count; i++)
+            boxRadius = Math.max(boxRadius, distanceSquared(positions, base + i * 3, bx, by, bz));
+        boxRadius = Math.sqrt(boxRadius);
+        if (boxRadius < radius) {
+            cx = bx;
+            cy = by;
+            cz = bz;
+            radius = boxRadius;
+        }
+        // Widen by one ulp so that rounding to float never leaves a point outside.
+        return new float[]{(float) cx, (float) cy, (float) cz, (float) radius + Math.ulp((float) radius)};
+    }
+
+    private static int farthest(FloatBuffer positions, int base, int count, float x, float y, float z) {
+        int farthest = 0;
+        double max = -1;
+        for (int i = 0; i < count; i++) {
+            double d = distanceSquared(positions, base + i * 3, x, y, z);
+            if (d > max) {
+                max = d;
+                farthest = i;
+            }
+        }
+        return farthest;
+    }
+
+    private static double distanceSquared(FloatBuffer positions, int at, double x, double y, double z) {
+        double dx = positions.get(at) - x, dy = positions.get(at + 1) - y, dz = positions.get(at + 2) - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,219 @@
+package Core.Meshes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The CompiledMesh class is a view over a compiled mesh file. The file starts with a versioned
+ * header followed by the position, texture coordinate, normal and index arrays in native byte
+ * order, so every section can be handed to {@code glBufferData} as it is.
+ * <pre>
+ *   int  magic          'E3DM'
+ *   int  version        {@link #VERSION}
+ *   long source hash    XXH64 of the source file
+ *   int  vertex count
+ *   int  index count    of all levels of detail
+ *   int  level count
+ *   int  reserved
+ *   float[6]               bounding box minimum and maximum
+ *   float[4]               bounding sphere center and radius
+ *   int[levelCount + 1]    index offset of every level, followed by the index count
+ *   float[vertexCount * 3] positions
+ *   float[vertexCount * 2] texture coordinates
+ *   float[vertexCount * 3] normals
+ *   int[indexCount]        indices
+ * </pre>
+ */
+public class CompiledMesh {
+
+    /** The magic number at the start of every compiled mesh file. */
+    public static final int MAGIC = 0x4D443345;
+
+    /** The current version of the compiled mesh format. Files of any other version are recompiled. */
+    public static final int VERSION = 5;
+
+    /** The size of the header in bytes. */
+    public static final int HEADER_SIZE = 32;
+
+    private final ByteBuffer data;
+    private final long sourceHash;
+    private final int vertexCount;
+    private final int indexCount;
+    private final int lodCount;
+    private final int dataOffset;
+
+    private CompiledMesh(ByteBuffer data) {
+        this.data = data;
+        this.sourceHash = data.getLong(8);
+        this.vertexCount = data.getInt(16);
+        this.indexCount = data.getInt(20);
+        this.lodCount = data.getInt(24);
+        this.dataOffset = dataOffset(lodCount);
+    }
+
+    private static int dataOffset(int lodCount) {
+        return HEADER_SIZE + (6 + 4) * Float.BYTES + (lodCount + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Wraps compiled mesh data, checking the header.
+     *
+     * @param data The content of a compiled mesh file.
+     * @param expectedHash The hash of the source the mesh must have been compiled from.
+     * @return The compiled mesh, or null if the data is stale, truncated or of another version.
+     */
+    public static CompiledMesh wrap(ByteBuffer data, long expectedHash) {
+        data = data.duplicate().order(ByteOrder.nativeOrder());
+        if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                || data.getLong(8) != expectedHash || data.getInt(24) < 1)
+            return null;
+        CompiledMesh mesh = new CompiledMesh(data);
+        if (data.remaining() != mesh.sizeInBytes())
+            return null;
+        return mesh;
+    }
+
+    /**
+     * Computes the size of the compiled form of a mesh.
+     *
+     * @param vertexCount The number of vertices.
+     * @param indexCount  The number of indices of all levels.
+     * @param lodCount    The number of levels of detail.
+     * @return The size of the file in bytes.
+     */
+    public static int sizeInBytes(int vertexCount, int indexCount, int lodCount) {
+        return dataOffset(lodCount) + vertexCount * (3 + 2 + 3) * Float.BYTES + indexCount * Integer.BYTES;
+    }
+
+    /**
+     * Writes the compiled form of a mesh.
+     *
+     * @param mesh       The mesh to compile.
+     * @param sourceHash The hash of the source the mesh was built from.
+     * @param out        The buffer to write to, with at least {@link #sizeInBytes(int, int, int)} bytes remaining.
+     */
+    public static void write(MeshData mesh, long sourceHash, ByteBuffer out) {
+        out.order(ByteOrder.nativeOrder());
+        out.putInt(MAGIC).putInt(VERSION).putLong(sourceHash)
+                .putInt(mesh.getVertexCount()).putInt(mesh.getIndices().length).putInt(mesh.getLodCount()).putInt(0);
+        float[] bounds = mesh.computeBounds();
+        for (float bound : bounds)
+            out.putFloat(bound);
+        for (float bound : mesh.computeBoundingSphere(bounds))
+            out.putFloat(bound);
+        for (int offset : mesh.getLodOffsets())
+            out.putInt(offset);
+        out.asFloatBuffer().put(mesh.getPositions()).put(mesh.getTextureCoords()).put(mesh.getNormals());
+        out.position(out.position() + mesh.getVertexCount() * (3 + 2 + 3) * Float.BYTES);
+        out.asIntBuffer().put(mesh.getIndices());
+        out.position(out.position() + mesh.getIndices().length * Integer.BYTES);
+    }
+
+    private int sizeInBytes() {
+        return sizeInBytes(vertexCount, indexCount, lodCount);
+    }
+
+    private ByteBuffer section(int offset, int length) {
+        return data.slice(data.position() + offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Gets the positions, three floats per vertex.
+     *
+     * @return A view of the position section.
+     */
+    public ByteBuffer getPositions() {
+        return section(dataOffset, vertexCount * 3 * Float.BYTES);
+    }
+
+    /**
+     * Gets the texture coordinates, two floats per vertex.
+     *
+     * @return A view of the texture coordinate section.
+     */
+    public ByteBuffer getTextureCoords() {
+        return section(dataOffset + vertexCount * 3 * Float.BYTES, vertexCount * 2 * Float.BYTES);
+    }
+
+    /**
+     * Gets the normals, three floats per vertex.
+     *
+     * @return A view of the normal section.
+     */
+    public ByteBuffer getNormals() {
+        return section(dataOffset + vertexCount * 5 * Float.BYTES, vertexCount * 3 * Float.BYTES);
+    }
+
+    /**
+     * Gets the triangle indices.
+     *
+     * @return A view of the index section.
+     */
+    public ByteBuffer getIndices() {
+        return section(dataOffset + vertexCount * 8 * Float.BYTES, indexCount * Integer.BYTES);
+    }
+
+    /**
+     * Gets the axis-aligned bounding box of the positions.
+     *
+     * @return The minimum x, y, z followed by the maximum x, y, z.
+     */
+    public float[] getBounds() {
+        float[] bounds = new float[6];
+        for (int i = 0; i < 6; i++)
+            bounds[i] = data.getFloat(data.position() + HEADER_SIZE + i * Float.BYTES);
+        return bounds;
+    }
+
+    /**
+     * Gets the bounding sphere of the positions, computed when the mesh was compiled.
+     *
+     * @return The center x, y, z followed by the radius.
+     */
+    public float[] getBoundingSphere() {
+        float[] sphere = new float[4];
+        for (int i = 0; i < 4; i++)
+            sphere[i] = data.getFloat(data.position() + HEADER_SIZE + (6 + i) * Float.BYTES);
+        return sphere;
+    }
+
+    /**
+     * Gets the offsets of the levels of detail in the index section.
+     *
+     * @return The index offset of every level, followed by the total index count.
+     */
+    public int[] getLodOffsets() {
+        int[] offsets = new int[lodCount + 1];
+        int base = data.position() + HEADER_SIZE + 6 * Float.BYTES;
+        for (int i = 0; i <= lodCount; i++)
+            offsets[i] = data.getInt(base + i * Integer.BYTES);
+        return offsets;
+    }
+
+    /**
+     * Gets the hash of the source file the mesh was compiled from.
+     *
+     * @return The XXH64 hash of the source.
+     */
+    public long getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Gets the number of vertices.
+     *
+     * @return The vertex count.
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Gets the number of indices of all levels of detail.
+     *
+     * @return The index count.
+     */
+    public int getIndexCount() {
+        return indexCount;
+    }
+}
@@ -0,0 +1,108 @@
+package Core.Meshes;
+
+import Core.Utils.ResourceBuffer;
+import org.lwjgl.util.xxhash.XXHash;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The MeshCache class keeps compiled meshes in a directory on disk, keyed by the XXH64 hash of
+ * their source file. A cache hit memory-maps the compiled file, so the mesh can be uploaded
+ * without parsing; a miss compiles the source once and writes the result for the next launch.
+ * The cache may be used from several threads at once.
+ */
+public class MeshCache {
+
+    private final Path directory;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Constructs a new MeshCache that stores compiled meshes in the specified directory.
+     *
+     * @param directory The cache directory. It is created on the first miss.
+     */
+    public MeshCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the compiled form of a mesh, compiling and caching it first if needed.
+     *
+     * @param filename The classpath resource name or file path of the source.
+     * @param compiler Builds the mesh from the source bytes on a cache miss.
+     * @return The compiled mesh, backed by a memory-mapped cache file.
+     * @throws Exception If the source or the cache file cannot be read or written.
+     */
+    public CompiledMesh load(String filename, Function<ByteBuffer, MeshData> compiler) throws Exception {
+        try (ResourceBuffer source = ResourceBuffer.open(filename)) {
+            long hash = XXHash.XXH64(source.getBuffer(), 0);
+            Path file = directory.resolve(String.format("%016x.mesh", hash));
+
+            // Mapped buffers need no close(); the mapping lives as long as the CompiledMesh.
+            if (Files.isRegularFile(file)) {
+                CompiledMesh mesh = CompiledMesh.wrap(ResourceBuffer.map(file).getBuffer(), hash);
+                if (mesh != null) {
+                    hits.incrementAndGet();
+                    return mesh;
+                }
+            }
+
+            misses.incrementAndGet();
+            write(file, compiler.apply(source.getBuffer()), hash);
+            return CompiledMesh.wrap(ResourceBuffer.map(file).getBuffer(), hash);
+        }
+    }
+
+    /**
+     * Writes a compiled mesh through a temporary file, so a crash never leaves a truncated entry.
+     */
+    private void write(Path file, MeshData mesh, long hash) throws Exception {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "mesh", ".tmp");
+        try {
+            int size = CompiledMesh.sizeInBytes(mesh.getVertexCount(), mesh.getIndices().length, mesh.getLodCount());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                CompiledMesh.write(mesh, hash, out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gets the directory the compiled meshes are stored in.
+     *
+     * @return The cache directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the number of meshes loaded from the cache without compiling.
+     *
+     * @return The hit count.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of meshes that had to be compiled.
+     *
+     * @return The miss count.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+}
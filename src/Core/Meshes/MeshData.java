@@ -0,0 +1,158 @@
+package Core.Meshes;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * The MeshData class holds the CPU-side arrays of a mesh, laid out the way
+ * {@link Core.Managers.ObjectLoader#loadModel(float[], float[], float[], int[])} uploads them.
+ * The index array may hold several levels of detail back to back, all referencing the same
+ * vertices; level {@code i} spans the indices from {@code getLodOffset(i)} to {@code getLodOffset(i + 1)}.
+ */
+public class MeshData {
+
+    private final float[] positions;
+    private final float[] textureCoords;
+    private final float[] normals;
+    private final int[] indices;
+    private final int[] lodOffsets;
+
+    /**
+     * Constructs a new MeshData from the specified arrays.
+     *
+     * @param positions     The vertex positions, three floats per vertex.
+     * @param textureCoords The texture coordinates, two floats per vertex.
+     * @param normals       The normal vectors, three floats per vertex.
+     * @param indices       The triangle indices, three per triangle.
+     */
+    public MeshData(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        this(positions, textureCoords, normals, indices, new int[]{0, indices.length});
+    }
+
+    /**
+     * Constructs a new MeshData with several levels of detail in its index array.
+     *
+     * @param positions     The vertex positions, three floats per vertex.
+     * @param textureCoords The texture coordinates, two floats per vertex.
+     * @param normals       The normal vectors, three floats per vertex.
+     * @param indices       The triangle indices of all levels, finest first.
+     * @param lodOffsets    The index offset of every level, followed by the total index count.
+     */
+    public MeshData(float[] positions, float[] textureCoords, float[] normals, int[] indices, int[] lodOffsets) {
+        this.positions = positions;
+        this.textureCoords = textureCoords;
+        this.normals = normals;
+        this.indices = indices;
+        this.lodOffsets = lodOffsets;
+    }
+
+    /**
+     * Gets the vertex positions.
+     *
+     * @return The positions, three floats per vertex.
+     */
+    public float[] getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets the texture coordinates.
+     *
+     * @return The texture coordinates, two floats per vertex.
+     */
+    public float[] getTextureCoords() {
+        return textureCoords;
+    }
+
+    /**
+     * Gets the normal vectors.
+     *
+     * @return The normals, three floats per vertex.
+     */
+    public float[] getNormals() {
+        return normals;
+    }
+
+    /**
+     * Gets the triangle indices.
+     *
+     * @return The indices, three per triangle.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Gets the number of vertices in the mesh.
+     *
+     * @return The vertex count.
+     */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /**
+     * Gets the number of triangles of the full-detail level.
+     *
+     * @return The triangle count.
+     */
+    public int getTriangleCount() {
+        return (lodOffsets[1] - lodOffsets[0]) / 3;
+    }
+
+    /**
+     * Gets the number of levels of detail in the index array.
+     *
+     * @return The level count, at least 1.
+     */
+    public int getLodCount() {
+        return lodOffsets.length - 1;
+    }
+
+    /**
+     * Gets the offsets of the levels of detail in the index array.
+     *
+     * @return The index offset of every level, followed by the total index count.
+     */
+    public int[] getLodOffsets() {
+        return lodOffsets;
+    }
+
+    /**
+     * Gets the triangle indices of one level of detail.
+     *
+     * @param level The level, 0 being the full mesh.
+     * @return A copy of the indices of the level.
+     */
+    public int[] getLodIndices(int level) {
+        return Arrays.copyOfRange(indices, lodOffsets[level], lodOffsets[level + 1]);
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of the vertex positions.
+     *
+     * @return The minimum x, y, z followed by the maximum x, y, z.
+     */
+    public float[] computeBounds() {
+        float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        if (positions.length == 0)
+            return new float[6];
+        for (int i = 0; i < positions.length; i += 3) {
+            for (int k = 0; k < 3; k++) {
+                bounds[k] = Math.min(bounds[k], positions[i + k]);
+                bounds[k + 3] = Math.max(bounds[k + 3], positions[i + k]);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Computes a bounding sphere of the vertex positions with {@link BoundingSphere}.
+     *
+     * @param bounds The bounding box returned by {@link #computeBounds()}.
+     * @return The center x, y, z followed by the radius.
+     */
+    public float[] computeBoundingSphere(float[] bounds) {
+        return BoundingSphere.compute(FloatBuffer.wrap(positions), bounds);
+    }
+}
@@ -0,0 +1,395 @@
+package Core.Meshes;
+
+import Core.Utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * The MeshOptimizer class reorders an indexed triangle mesh for the GPU without changing its shape:
+ * triangles are reordered for post-transform vertex cache reuse (Tom Forsyth's linear-speed
+ * algorithm), clusters of that order are sorted so outward-facing parts are drawn first to reduce
+ * overdraw, and finally vertices are reordered in the order the triangles first use them, so
+ * vertex fetches walk through memory sequentially. It also computes the cache statistics used to judge
+ * the result on the CPU: ACMR (transformed vertices per triangle) and ATVR (transformed vertices
+ * per unique vertex), both for a FIFO cache of {@link #ANALYSIS_CACHE_SIZE} entries.
+ */
+public class MeshOptimizer {
+
+    /** The FIFO size used by {@link #acmr(int[], int)} and {@link #atvr(int[], int)}. */
+    public static final int ANALYSIS_CACHE_SIZE = 16;
+
+    /** How much worse than the cache-optimized order the ACMR may get to make room for overdraw sorting. */
+    public static final float OVERDRAW_THRESHOLD = 1.05f;
+
+    private static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int MAX_SCORED_VALENCE = 64;
+
+    private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_SCORED_VALENCE];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (i < 3) {
+                // The vertices of the last triangle get a fixed score, so the next triangle
+                // is not forced to share an edge with it.
+                CACHE_SCORES[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaled = 1.0f - (i - 3) / (float) (CACHE_SIZE - 3);
+                CACHE_SCORES[i] = (float) Math.pow(scaled, CACHE_DECAY_POWER);
+            }
+        }
+        for (int i = 1; i < MAX_SCORED_VALENCE; i++)
+            VALENCE_SCORES[i] = VALENCE_BOOST_SCALE * (float) Math.pow(i, -VALENCE_BOOST_POWER);
+    }
+
+    /**
+     * Applies vertex cache reordering and overdraw sorting to every level of detail, then vertex
+     * fetch reordering to the whole mesh. The finest level is first in the index array, so its
+     * first-use order decides the vertex order and coarser levels read a subset of it.
+     *
+     * @param mesh The mesh to optimize.
+     * @return A new mesh with reordered triangles and vertices.
+     */
+    public static MeshData optimize(MeshData mesh) {
+        int[] offsets = mesh.getLodOffsets();
+        int[] indices = new int[mesh.getIndices().length];
+        for (int level = 0; level < mesh.getLodCount(); level++) {
+            int[] optimized = optimizeVertexCache(mesh.getLodIndices(level), mesh.getVertexCount());
+            optimized = optimizeOverdraw(optimized, mesh.getPositions(), OVERDRAW_THRESHOLD);
+            System.arraycopy(optimized, 0, indices, offsets[level], optimized.length);
+        }
+        return optimizeVertexFetch(new MeshData(mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(), indices, offsets));
+    }
+
+    /**
+     * Reorders triangles to maximize post-transform vertex cache hits. Each step emits the
+     * highest-scoring triangle among those touching the simulated cache; a vertex scores higher
+     * the more recently it was used and the fewer unemitted triangles it has left.
+     *
+     * @param indices     The triangle indices.
+     * @param vertexCount The number of vertices the indices refer to.
+     * @return The reordered triangle indices.
+     */
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        int[] result = new int[triangleCount * 3];
+        if (triangleCount == 0)
+            return result;
+
+        // Vertex -> triangle adjacency; the first 'valence[v]' entries of each list are the unemitted triangles.
+        int[] valence = new int[vertexCount];
+        for (int index : indices)
+            valence[index]++;
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++)
+            offsets[v + 1] = offsets[v] + valence[v];
+        int[] adjacency = new int[indices.length];
+        int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < indices.length; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++)
+            vertexScore[v] = vertexScore(-1, valence[v]);
+        float[] triangleScore = new float[triangleCount];
+        boolean[] emitted = new boolean[triangleCount];
+        for (int t = 0; t < triangleCount; t++)
+            triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int best = 0;
+        for (int t = 1; t < triangleCount; t++)
+            if (triangleScore[t] > triangleScore[best])
+                best = t;
+        int scanCursor = 0;
+
+        for (int written = 0; written < triangleCount; written++) {
+            if (best < 0) {
+                // Nothing in the cache has triangles left: continue with the next unemitted triangle.
+                while (emitted[scanCursor])
+                    scanCursor++;
+                best = scanCursor;
+            }
+            emitted[best] = true;
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[best * 3 + k];
+                result[written * 3 + k] = v;
+                newCache[newCount++] = v;
+
+                // Remove the triangle from the vertex's unemitted list.
+                int start = offsets[v];
+                int last = start + --valence[v];
+                for (int a = start; a <= last; a++) {
+                    if (adjacency[a] == best) {
+                        adjacency[a] = adjacency[last];
+                        adjacency[last] = best;
+                        break;
+                    }
+                }
+            }
+            for (int c = 0; c < cacheCount; c++) {
+                int v = cache[c];
+                if (v != newCache[0] && v != newCache[1] && v != newCache[2])
+                    newCache[newCount++] = v;
+            }
+
+            // Vertices pushed out of the cache lose their cache score.
+            for (int c = CACHE_SIZE; c < newCount; c++) {
+                int v = newCache[c];
+                cachePosition[v] = -1;
+                vertexScore[v] = vertexScore(-1, valence[v]);
+            }
+            cacheCount = Math.min(newCount, CACHE_SIZE);
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+
+            for (int c = 0; c < cacheCount; c++) {
+                int v = cache[c];
+                cachePosition[v] = c;
+                vertexScore[v] = vertexScore(c, valence[v]);
+            }
+
+            best = -1;
+            float bestScore = -1;
+            for (int c = 0; c < cacheCount; c++) {
+                int v = cache[c];
+                for (int a = offsets[v], end = offsets[v] + valence[v]; a < end; a++) {
+                    int t = adjacency[a];
+                    float score = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+                    triangleScore[t] = score;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static float vertexScore(int cachePosition, int valence) {
+        if (valence == 0)
+            return -1;
+        float score = cachePosition >= 0 ? CACHE_SCORES[cachePosition] : 0;
+        return score + VALENCE_SCORES[Math.min(valence, MAX_SCORED_VALENCE - 1)];
+    }
+
+    /**
+     * Reorders clusters of a cache-optimized index buffer so clusters facing away from the mesh
+     * center are drawn first; they tend to occlude the rest of the mesh, so later fragments fail
+     * the depth test. The triangle order is split wherever the simulated cache starts over, and
+     * longer runs are split further as soon as their ACMR gets within {@code threshold} of the
+     * whole run, so the cache efficiency is kept within that factor.
+     *
+     * @param indices   The cache-optimized triangle indices.
+     * @param positions The vertex positions, three floats per vertex.
+     * @param threshold The allowed ACMR factor, e.g. 1.05.
+     * @return The reordered triangle indices.
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] positions, float threshold) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount < 2)
+            return indices.clone();
+        int[] timestamps = new int[positions.length / 3];
+
+        // Hard boundaries: triangles whose three vertices all miss the cache.
+        IntArray hard = new IntArray(64);
+        int time = ANALYSIS_CACHE_SIZE + 1;
+        for (int t = 0; t < triangleCount; t++) {
+            int misses = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                if (time - timestamps[v] > ANALYSIS_CACHE_SIZE) {
+                    timestamps[v] = time++;
+                    misses++;
+                }
+            }
+            if (misses == 3 || t == 0)
+                hard.add(t);
+        }
+        hard.add(triangleCount);
+
+        // Soft boundaries: split each run once a fresh cache has amortized below the run's ACMR.
+        IntArray clusters = new IntArray(hard.size() * 2);
+        for (int h = 0; h + 1 < hard.size(); h++) {
+            int start = hard.get(h);
+            int end = hard.get(h + 1);
+            time += ANALYSIS_CACHE_SIZE + 1;
+            int runMisses = countMisses(indices, start, end, timestamps, time);
+            time += runMisses;
+            float limit = runMisses / (float) (end - start) * threshold;
+
+            clusters.add(start);
+            time += ANALYSIS_CACHE_SIZE + 1;
+            int misses = 0;
+            int clusterStart = start;
+            for (int t = start; t < end; t++) {
+                int added = countMisses(indices, t, t + 1, timestamps, time);
+                time += added;
+                misses += added;
+                if (t + 1 < end && misses / (float) (t + 1 - clusterStart) <= limit) {
+                    clusters.add(t + 1);
+                    clusterStart = t + 1;
+                    misses = 0;
+                    time += ANALYSIS_CACHE_SIZE + 1;
+                }
+            }
+        }
+        int clusterCount = clusters.size();
+        clusters.add(triangleCount);
+
+        float[] meshCentroid = new float[3];
+        int vertexCount = positions.length / 3;
+        for (int v = 0; v < vertexCount; v++)
+            for (int k = 0; k < 3; k++)
+                meshCentroid[k] += positions[v * 3 + k] / vertexCount;
+
+        // Sort key: how far the area-weighted cluster centroid lies along the cluster's average normal.
+        float[] keys = new float[clusterCount];
+        Integer[] order = new Integer[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            float cx = 0, cy = 0, cz = 0, nx = 0, ny = 0, nz = 0, area = 0;
+            for (int t = clusters.get(c); t < clusters.get(c + 1); t++) {
+                int a = indices[t * 3] * 3, b = indices[t * 3 + 1] * 3, d = indices[t * 3 + 2] * 3;
+                float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1], e1z = positions[b + 2] - positions[a + 2];
+                float e2x = positions[d] - positions[a], e2y = positions[d + 1] - positions[a + 1], e2z = positions[d + 2] - positions[a + 2];
+                float fx = e1y * e2z - e1z * e2y, fy = e1z * e2x - e1x * e2z, fz = e1x * e2y - e1y * e2x;
+                float w = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+                cx += (positions[a] + positions[b] + positions[d]) / 3 * w;
+                cy += (positions[a + 1] + positions[b + 1] + positions[d + 1]) / 3 * w;
+                cz += (positions[a + 2] + positions[b + 2] + positions[d + 2]) / 3 * w;
+                nx += fx;
+                ny += fy;
+                nz += fz;
+                area += w;
+            }
+            float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (area > 0 && length > 0)
+                keys[c] = ((cx / area - meshCentroid[0]) * nx + (cy / area - meshCentroid[1]) * ny
+                        + (cz / area - meshCentroid[2]) * nz) / length;
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(keys[b], keys[a]));
+
+        int[] result = new int[triangleCount * 3];
+        int written = 0;
+        for (int c : order) {
+            int start = clusters.get(c) * 3;
+            int length = clusters.get(c + 1) * 3 - start;
+            System.arraycopy(indices, start, result, written, length);
+            written += length;
+        }
+        return result;
+    }
+
+    /**
+     * Runs triangles through the FIFO simulation at the given time and returns the number of misses.
+     */
+    private static int countMisses(int[] indices, int start, int end, int[] timestamps, int time) {
+        int misses = 0;
+        for (int i = start * 3; i < end * 3; i++) {
+            int v = indices[i];
+            if (time - timestamps[v] > ANALYSIS_CACHE_SIZE) {
+                timestamps[v] = time++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Reorders vertices in the order the index buffer first references them and drops unused vertices.
+     *
+     * @param mesh The mesh to reorder.
+     * @return A new mesh whose vertices are stored in first-use order.
+     */
+    public static MeshData optimizeVertexFetch(MeshData mesh) {
+        int[] indices = mesh.getIndices();
+        int[] remap = new int[mesh.getVertexCount()];
+        Arrays.fill(remap, -1);
+        int[] newIndices = new int[indices.length];
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            if (remap[v] < 0)
+                remap[v] = next++;
+            newIndices[i] = remap[v];
+        }
+
+        float[] positions = new float[next * 3];
+        float[] textureCoords = new float[next * 2];
+        float[] normals = new float[next * 3];
+        for (int v = 0; v < remap.length; v++) {
+            int n = remap[v];
+            if (n < 0)
+                continue;
+            System.arraycopy(mesh.getPositions(), v * 3, positions, n * 3, 3);
+            System.arraycopy(mesh.getTextureCoords(), v * 2, textureCoords, n * 2, 2);
+            System.arraycopy(mesh.getNormals(), v * 3, normals, n * 3, 3);
+        }
+        return new MeshData(positions, textureCoords, normals, newIndices, mesh.getLodOffsets());
+    }
+
+    /**
+     * Counts the vertex shader invocations of an index buffer on a simulated FIFO post-transform cache.
+     *
+     * @param indices     The triangle indices.
+     * @param vertexCount The number of vertices the indices refer to.
+     * @return The number of cache misses.
+     */
+    public static int countTransformedVertices(int[] indices, int vertexCount) {
+        int[] timestamps = new int[vertexCount];
+        int time = ANALYSIS_CACHE_SIZE + 1;
+        int misses = 0;
+        for (int index : indices) {
+            // A vertex is in the FIFO if fewer than ANALYSIS_CACHE_SIZE misses happened since it was loaded.
+            if (time - timestamps[index] > ANALYSIS_CACHE_SIZE) {
+                timestamps[index] = time++;
+                misses++;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Computes the average cache miss ratio: transformed vertices per triangle. 3 means no reuse,
+     * 0.5 is the practical optimum for large regular meshes.
+     *
+     * @param indices     The triangle indices.
+     * @param vertexCount The number of vertices the indices refer to.
+     * @return The ACMR.
+     */
+    public static float acmr(int[] indices, int vertexCount) {
+        return indices.length == 0 ? 0 : countTransformedVertices(indices, vertexCount) / (indices.length / 3f);
+    }
+
+    /**
+     * Computes the average transform to vertex ratio: transformed vertices per referenced vertex.
+     * 1 means every vertex is transformed exactly once.
+     *
+     * @param indices     The triangle indices.
+     * @param vertexCount The number of vertices the indices refer to.
+     * @return The ATVR.
+     */
+    public static float atvr(int[] indices, int vertexCount) {
+        boolean[] used = new boolean[vertexCount];
+        int unique = 0;
+        for (int index : indices) {
+            if (!used[index]) {
+                used[index] = true;
+                unique++;
+            }
+        }
+        return unique == 0 ? 0 : countTransformedVertices(indices, vertexCount) / (float) unique;
+    }
+}
@@ -0,0 +1,305 @@
+package Core.Meshes;
+
+import Core.Utils.IntArray;
+import Core.Utils.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The MeshSimplifier class reduces the triangle count of an indexed mesh by edge collapses ordered
+ * by quadric error (Garland and Heckbert). Every collapse moves one vertex onto a neighbouring
+ * vertex instead of a new optimal position, so simplified index buffers keep referencing the
+ * original vertex buffer and all levels of detail of a mesh can share one set of vertex arrays.
+ * <p>
+ * Vertices on open borders and on attribute seams (positions shared by several vertices, such as
+ * UV seams and hard edges) are never removed, so the outline and the texture mapping of the mesh
+ * do not tear. Collapses that would flip a triangle are rejected.
+ */
+public class MeshSimplifier {
+
+    private final float[] positions;
+    private final int vertexCount;
+    private final boolean[] locked;
+    private final double[] baseQuadrics;
+
+    /**
+     * Constructs a new MeshSimplifier for the specified mesh, classifying its vertices and
+     * accumulating their quadrics once for all target levels.
+     *
+     * @param mesh The full-detail mesh.
+     */
+    public MeshSimplifier(MeshData mesh) {
+        this.positions = mesh.getPositions();
+        this.vertexCount = mesh.getVertexCount();
+        this.locked = new boolean[vertexCount];
+        this.baseQuadrics = new double[vertexCount * 10];
+        lockSeams();
+        lockBorders(mesh.getIndices());
+        int[] indices = mesh.getIndices();
+        for (int t = 0; t < indices.length / 3; t++)
+            addTriangleQuadric(baseQuadrics, indices[t * 3], indices[t * 3 + 1], indices[t * 3 + 2]);
+    }
+
+    /**
+     * Builds a level of detail chain: one index buffer per ratio, each simplified from the full
+     * mesh to about {@code ratio} of its triangles, concatenated into the index array of the
+     * returned mesh with the level offsets set.
+     *
+     * @param mesh   The full-detail mesh.
+     * @param ratios The triangle ratio of every level, starting with 1 for the full mesh.
+     * @return The mesh with all levels in its index array.
+     */
+    public static MeshData buildLodChain(MeshData mesh, float[] ratios) {
+        MeshSimplifier simplifier = new MeshSimplifier(mesh);
+        IntArray indices = new IntArray(mesh.getIndices().length * 2);
+        IntArray offsets = new IntArray(ratios.length + 1);
+        int[] previous = null;
+        for (float ratio : ratios) {
+            int target = Math.max(1, (int) (mesh.getTriangleCount() * ratio)) * 3;
+            int[] level = simplifier.simplify(mesh.getIndices(), target);
+            // A level that could not be reduced further would only duplicate the one before it.
+            if (previous != null && level.length >= previous.length)
+                break;
+            offsets.add(indices.size());
+            indices.addAll(level, level.length);
+            previous = level;
+        }
+        offsets.add(indices.size());
+        return new MeshData(mesh.getPositions(), mesh.getTextureCoords(), mesh.getNormals(),
+                indices.toArray(), offsets.toArray());
+    }
+
+    /**
+     * Simplifies an index buffer until it has at most {@code targetIndexCount} indices or no
+     * further collapse is allowed.
+     *
+     * @param indices          The triangle indices of the full mesh.
+     * @param targetIndexCount The index count to reach.
+     * @return The simplified triangle indices, referencing the same vertices.
+     */
+    public int[] simplify(int[] indices, int targetIndexCount) {
+        int[] current = indices.clone();
+        int indexCount = current.length;
+        double[] quadrics = baseQuadrics.clone();
+        int[] remap = new int[vertexCount];
+        boolean[] touched = new boolean[vertexCount];
+        int[] offsets = new int[vertexCount + 1];
+        int[] adjacency = new int[indexCount];
+
+        while (indexCount > targetIndexCount) {
+            buildAdjacency(current, indexCount, offsets, adjacency);
+
+            // Collect one candidate per edge, collapsing in the cheaper allowed direction.
+            int triangleCount = indexCount / 3;
+            int[] from = new int[indexCount];
+            int[] to = new int[indexCount];
+            float[] costs = new float[indexCount];
+            int candidates = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int a = current[t * 3 + k];
+                    int b = current[t * 3 + (k + 1) % 3];
+                    if (a > b)
+                        continue; // Interior edges are seen twice; keep the a < b occurrence.
+                    float ab = locked[a] ? Float.MAX_VALUE : collapseError(quadrics, a, b);
+                    float ba = locked[b] ? Float.MAX_VALUE : collapseError(quadrics, b, a);
+                    if (ab == Float.MAX_VALUE && ba == Float.MAX_VALUE)
+                        continue;
+                    from[candidates] = ab <= ba ? a : b;
+                    to[candidates] = ab <= ba ? b : a;
+                    costs[candidates] = Math.min(ab, ba);
+                    candidates++;
+                }
+            }
+            if (candidates == 0)
+                break;
+            Integer[] order = new Integer[candidates];
+            for (int i = 0; i < candidates; i++)
+                order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> costs[i]));
+
+            // Collapse the cheapest edges whose neighbourhoods do not overlap within this pass.
+            for (int v = 0; v < vertexCount; v++)
+                remap[v] = v;
+            Arrays.fill(touched, false);
+            int removed = 0;
+            int needed = indexCount - targetIndexCount;
+            for (int i = 0; i < candidates && removed < needed; i++) {
+                int c = order[i];
+                int v0 = from[c];
+                int v1 = to[c];
+                if (touched[v0] || touched[v1] || flips(current, offsets, adjacency, v0, v1))
+                    continue;
+                remap[v0] = v1;
+                for (int a = offsets[v0]; a < offsets[v0 + 1]; a++) {
+                    int t = adjacency[a];
+                    touched[current[t * 3]] = touched[current[t * 3 + 1]] = touched[current[t * 3 + 2]] = true;
+                    if (current[t * 3] == v1 || current[t * 3 + 1] == v1 || current[t * 3 + 2] == v1)
+                        removed += 3;
+                }
+                for (int q = 0; q < 10; q++)
+                    quadrics[v1 * 10 + q] += quadrics[v0 * 10 + q];
+            }
+            if (removed == 0)
+                break;
+
+            // Apply the pass and drop the triangles that became degenerate.
+            int write = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                int a = remap[current[t * 3]];
+                int b = remap[current[t * 3 + 1]];
+                int d = remap[current[t * 3 + 2]];
+                if (a == b || b == d || d == a)
+                    continue;
+                current[write++] = a;
+                current[write++] = b;
+                current[write++] = d;
+            }
+            indexCount = write;
+        }
+        return Arrays.copyOf(current, indexCount);
+    }
+
+    /**
+     * Checks whether moving v0 onto v1 turns any triangle around v0 that does not also contain v1
+     * upside down.
+     */
+    private boolean flips(int[] indices, int[] offsets, int[] adjacency, int v0, int v1) {
+        for (int a = offsets[v0]; a < offsets[v0 + 1]; a++) {
+            int t = adjacency[a];
+            int i0 = indices[t * 3], i1 = indices[t * 3 + 1], i2 = indices[t * 3 + 2];
+            if (i0 == v1 || i1 == v1 || i2 == v1)
+                continue;
+            float[] before = normal(i0, i1, i2, -1, -1);
+            float[] after = normal(i0, i1, i2, v0, v1);
+            if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0)
+                return true;
+        }
+        return false;
+    }
+
+    private float[] normal(int i0, int i1, int i2, int replace, int with) {
+        int a = (i0 == replace ? with : i0) * 3;
+        int b = (i1 == replace ? with : i1) * 3;
+        int c = (i2 == replace ? with : i2) * 3;
+        float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1], e1z = positions[b + 2] - positions[a + 2];
+        float e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1], e2z = positions[c + 2] - positions[a + 2];
+        return new float[]{e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x};
+    }
+
+    private void buildAdjacency(int[] indices, int indexCount, int[] offsets, int[] adjacency) {
+        Arrays.fill(offsets, 0);
+        for (int i = 0; i < indexCount; i++)
+            offsets[indices[i] + 1]++;
+        for (int v = 0; v < vertexCount; v++)
+            offsets[v + 1] += offsets[v];
+        int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < indexCount; i++)
+            adjacency[fill[indices[i]]++] = i / 3;
+    }
+
+    /**
+     * Evaluates the combined quadric of both vertices at the position of the vertex kept.
+     * Quadrics are stored as the 10 unique entries of the symmetric 4x4 matrix:
+     * a2, ab, ac, ad, b2, bc, bd, c2, cd, d2.
+     */
+    private float collapseError(double[] quadrics, int v0, int v1) {
+        double x = positions[v1 * 3], y = positions[v1 * 3 + 1], z = positions[v1 * 3 + 2];
+        double error = quadricError(quadrics, v0 * 10, x, y, z) + quadricError(quadrics, v1 * 10, x, y, z);
+        return (float) Math.abs(error);
+    }
+
+    private static double quadricError(double[] q, int o, double x, double y, double z) {
+        return q[o] * x * x + 2 * q[o + 1] * x * y + 2 * q[o + 2] * x * z + 2 * q[o + 3] * x
+                + q[o + 4] * y * y + 2 * q[o + 5] * y * z + 2 * q[o + 6] * y
+                + q[o + 7] * z * z + 2 * q[o + 8] * z
+                + q[o + 9];
+    }
+
+    /**
+     * Adds the plane quadric of a triangle, weighted by its area, to its three vertices.
+     */
+    private void addTriangleQuadric(double[] quadrics, int i0, int i1, int i2) {
+        double ax = positions[i0 * 3], ay = positions[i0 * 3 + 1], az = positions[i0 * 3 + 2];
+        double e1x = positions[i1 * 3] - ax, e1y = positions[i1 * 3 + 1] - ay, e1z = positions[i1 * 3 + 2] - az;
+        double e2x = positions[i2 * 3] - ax, e2y = positions[i2 * 3 + 1] - ay, e2z = positions[i2 * 3 + 2] - az;
+        double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0)
+            return;
+        double area = length * 0.5;
+        nx /= length;
+        ny /= length;
+        nz /= length;
+        double d = -(nx * ax + ny * ay + nz * az);
+        double[] plane = {nx * nx, nx * ny, nx * nz, nx * d, ny * ny, ny * nz, ny * d, nz * nz, nz * d, d * d};
+        for (int v : new int[]{i0, i1, i2})
+            for (int q = 0; q < 10; q++)
+                quadrics[v * 10 + q] += plane[q] * area;
+    }
+
+    /**
+     * Locks every vertex whose position is shared with another vertex.
+     */
+    private void lockSeams() {
+        Integer[] order = new Integer[vertexCount];
+        for (int v = 0; v < vertexCount; v++)
+            order[v] = v;
+        Comparator<Integer> byPosition = (a, b) -> {
+            for (int k = 0; k < 3; k++) {
+                int c = Float.compare(positions[a * 3 + k], positions[b * 3 + k]);
+                if (c != 0)
+                    return c;
+            }
+            return 0;
+        };
+        Arrays.sort(order, byPosition);
+        for (int i = 1; i < vertexCount; i++) {
+            if (byPosition.compare(order[i - 1], order[i]) == 0) {
+                locked[order[i - 1]] = true;
+                locked[order[i]] = true;
+            }
+        }
+    }
+
+    /**
+     * Locks the vertices of edges that belong to a single triangle.
+     */
+    private void lockBorders(int[] indices) {
+        LongIntHashMap edges = new LongIntHashMap(indices.length, 0);
+        for (int t = 0; t < indices.length / 3; t++) {
+            for (int k = 0; k < 3; k++) {
+                long key = edgeKey(indices[t * 3 + k], indices[t * 3 + (k + 1) % 3]);
+                edges.put(key, edges.get(key) + 1);
+            }
+        }
+        for (int t = 0; t < indices.length / 3; t++) {
+            for (int k = 0; k < 3; k++) {
+                int a = indices[t * 3 + k];
+                int b = indices[t * 3 + (k + 1) % 3];
+                if (edges.get(edgeKey(a, b)) == 1) {
+                    locked[a] = true;
+                    locked[b] = true;
+                }
+            }
+        }
+    }
+
+    private static long edgeKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    /**
+     * Gets the number of vertices that may not be removed because they lie on a border or a seam.
+     *
+     * @return The locked vertex count.
+     */
+    public int getLockedVertexCount() {
+        int count = 0;
+        for (boolean l : locked)
+            if (l)
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+package Core.Meshes;
+
+import Core.Utils.IntArray;
+import Core.Utils.LongIntHashMap;
+
+/**
+ * The MeshWelder class turns the face corners of an OBJ file into an indexed mesh with one
+ * vertex per distinct position/texture coordinate/normal triple. Corners that share all three
+ * indices share a vertex, while a position used with different texture coordinates or normals
+ * (a UV seam or a hard edge) gets one vertex per combination, so no attribute is overwritten.
+ * <p>
+ * The triples are looked up in two primitive {@link LongIntHashMap}s: the first interns the
+ * (texture coordinate, normal) pair into a dense id, the second maps (position, pair id) to
+ * the vertex index. This keeps the keys exact for any number of records.
+ */
+public class MeshWelder {
+
+    private int cornerCount;
+    private int positionCount;
+    private int vertexCount;
+    private int splitPositionCount;
+
+    /**
+     * Welds the corners of an OBJ file into an indexed mesh. Texture coordinates are flipped
+     * vertically for OpenGL, and missing texture coordinates or normals are written as zeros.
+     *
+     * @param obj The parsed OBJ streams.
+     * @return The welded mesh.
+     */
+    public MeshData weld(ObjData obj) {
+        int[] corners = obj.getCorners().elements();
+        float[] positions = obj.getPositions().elements();
+        float[] texts = obj.getTextureCoords().elements();
+        float[] norms = obj.getNormals().elements();
+
+        cornerCount = obj.getCorners().size() / 3;
+        positionCount = obj.getPositions().size() / 3;
+
+        LongIntHashMap attributePairs = new LongIntHashMap(64, -1);
+        LongIntHashMap vertices = new LongIntHashMap(Math.max(positionCount, cornerCount / 4), -1);
+        IntArray sources = new IntArray(Math.max(positionCount, 4) * 3);
+        int[] indices = new int[cornerCount];
+
+        for (int i = 0; i < cornerCount; i++) {
+            int pos = corners[i * 3];
+            int textCoord = corners[i * 3 + 1];
+            int normal = corners[i * 3 + 2];
+
+            long pairKey = ((long) (textCoord + 1) << 32) | ((normal + 1) & 0xffffffffL);
+            int pairId = attributePairs.putIfAbsent(pairKey, attributePairs.size());
+
+            long vertexKey = ((long) pos << 32) | (pairId & 0xffffffffL);
+            int next = sources.size() / 3;
+            int vertex = vertices.putIfAbsent(vertexKey, next);
+            if (vertex == next) {
+                sources.add(pos);
+                sources.add(textCoord);
+                sources.add(normal);
+            }
+            indices[i] = vertex;
+        }
+
+        vertexCount = sources.size() / 3;
+        float[] positionArr = new float[vertexCount * 3];
+        float[] textCoordArr = new float[vertexCount * 2];
+        float[] normalArr = new float[vertexCount * 3];
+        int[] s = sources.elements();
+        for (int v = 0; v < vertexCount; v++) {
+            int pos = s[v * 3];
+            int textCoord = s[v * 3 + 1];
+            int normal = s[v * 3 + 2];
+            System.arraycopy(positions, pos * 3, positionArr, v * 3, 3);
+            if (textCoord >= 0) {
+                textCoordArr[v * 2] = texts[textCoord * 2];
+                textCoordArr[v * 2 + 1] = 1 - texts[textCoord * 2 + 1];
+            }
+            if (normal >= 0)
+                System.arraycopy(norms, normal * 3, normalArr, v * 3, 3);
+        }
+        splitPositionCount = countSplitPositions(s, vertexCount, positionCount);
+        return new MeshData(positionArr, textCoordArr, normalArr, indices);
+    }
+
+    /**
+     * Counts the positions that ended up in more than one vertex.
+     */
+    private static int countSplitPositions(int[] sources, int vertexCount, int positionCount) {
+        byte[] uses = new byte[positionCount];
+        int split = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            int pos = sources[v * 3];
+            if (uses[pos] < 2 && ++uses[pos] == 2)
+                split++;
+        }
+        return split;
+    }
+
+    /**
+     * Gets the number of face corners of the last welded mesh, i.e. its vertex count without indexing.
+     *
+     * @return The corner count.
+     */
+    public int getCornerCount() {
+        return cornerCount;
+    }
+
+    /**
+     * Gets the number of {@code v} records of the last welded mesh, i.e. its vertex count when indexed by position.
+     *
+     * @return The position count.
+     */
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    /**
+     * Gets the number of unique vertices of the last welded mesh.
+     *
+     * @return The welded vertex count.
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Gets the number of positions that are used with more than one texture coordinate/normal combination,
+     * whose attributes a position-indexed mesh would have overwritten.
+     *
+     * @return The number of split positions.
+     */
+    public int getSplitPositionCount() {
+        return splitPositionCount;
+    }
+}
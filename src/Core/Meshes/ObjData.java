@@ -0,0 +1,82 @@
+package Core.Meshes;
+
+import Core.Utils.FloatArray;
+import Core.Utils.IntArray;
+
+/**
+ * The ObjData class holds the raw streams of a Wavefront OBJ file as primitive arrays:
+ * the {@code v}, {@code vt} and {@code vn} records and the triangulated face corners.
+ * Every corner is stored as three 0-based indices (position, texture coordinate, normal),
+ * with -1 marking a missing texture coordinate or normal.
+ */
+public class ObjData {
+
+    private final FloatArray positions;
+    private final FloatArray textureCoords;
+    private final FloatArray normals;
+    private final IntArray corners;
+
+    /**
+     * Constructs a new, empty ObjData sized for a file of the given length.
+     *
+     * @param sizeHint The size of the source file in bytes, used to pre-size the arrays.
+     */
+    public ObjData(int sizeHint) {
+        int records = Math.max(sizeHint / 32, 64);
+        positions = new FloatArray(records);
+        textureCoords = new FloatArray(records / 2);
+        normals = new FloatArray(records);
+        corners = new IntArray(records * 2);
+    }
+
+    /**
+     * Constructs a new, empty ObjData with exact capacities, used when parsing chunks in parallel.
+     *
+     * @param positionFloats    The number of position floats.
+     * @param textCoordFloats   The number of texture coordinate floats.
+     * @param normalFloats      The number of normal floats.
+     * @param cornerInts        The number of corner indices.
+     */
+    ObjData(int positionFloats, int textCoordFloats, int normalFloats, int cornerInts) {
+        positions = new FloatArray(positionFloats);
+        textureCoords = new FloatArray(textCoordFloats);
+        normals = new FloatArray(normalFloats);
+        corners = new IntArray(cornerInts);
+    }
+
+    /**
+     * Gets the positions, three floats per {@code v} record.
+     *
+     * @return The position stream.
+     */
+    public FloatArray getPositions() {
+        return positions;
+    }
+
+    /**
+     * Gets the texture coordinates, two floats per {@code vt} record.
+     *
+     * @return The texture coordinate stream.
+     */
+    public FloatArray getTextureCoords() {
+        return textureCoords;
+    }
+
+    /**
+     * Gets the normals, three floats per {@code vn} record.
+     *
+     * @return The normal stream.
+     */
+    public FloatArray getNormals() {
+        return normals;
+    }
+
+    /**
+     * Gets the face corners, three indices per corner and three corners per triangle.
+     *
+     * @return The corner stream.
+     */
+    public IntArray getCorners() {
+        return corners;
+    }
+}
@@ -0,0 +1,440 @@
+package Core.Meshes;
+
+import Core.Utils.FloatArray;
+import Core.Utils.IntArray;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * The ObjParser class reads Wavefront OBJ data straight from bytes into primitive arrays.
+ * It scans the buffer with a hand-written number tokenizer, so no String, token array or
+ * vector object is created per line or per vertex. Polygons with more than three corners
+ * are triangulated as a fan.
+ */
+public class ObjParser {
+
+    /**
+     * The smallest chunk handed to a worker by {@link #parse(ByteBuffer, ForkJoinPool)}.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final ByteBuffer data;
+    /** The streams written to, or null when only counting. */
+    private final ObjData out;
+    /** Whether the streams may grow; the exact-sized streams of a parallel parse may not. */
+    private final boolean growable;
+    private float[] positions;
+    private float[] textureCoords;
+    private float[] normals;
+    private int[] corners;
+    private int positionSize;
+    private int textureCoordSize;
+    private int normalSize;
+    private int cornerSize;
+    private int pos;
+    private int end;
+
+    /**
+     * Constructs a parser that appends to the streams of {@code out}, growing them as needed,
+     * or that only counts the records when {@code out} is null.
+     */
+    private ObjParser(ByteBuffer data, ObjData out) {
+        this.data = data;
+        this.out = out;
+        this.growable = true;
+        if (out != null)
+            attach();
+    }
+
+    /**
+     * Constructs a parser that writes into exact-sized streams shared with other parsers,
+     * starting at the given offsets.
+     */
+    private ObjParser(ByteBuffer data, ObjData out, int[] offsets) {
+        this.data = data;
+        this.out = out;
+        this.growable = false;
+        attach();
+        positionSize = offsets[0];
+        textureCoordSize = offsets[1];
+        normalSize = offsets[2];
+        cornerSize = offsets[3];
+    }
+
+    private void attach() {
+        positions = out.getPositions().elements();
+        textureCoords = out.getTextureCoords().elements();
+        normals = out.getNormals().elements();
+        corners = out.getCorners().elements();
+    }
+
+    /**
+     * Parses OBJ data between the buffer's position and limit. The buffer's position is not modified.
+     *
+     * @param data The OBJ file content.
+     * @return The parsed streams.
+     */
+    public static ObjData parse(ByteBuffer data) {
+        ObjData out = new ObjData(data.remaining());
+        ObjParser parser = new ObjParser(data, out);
+        parser.parseRange(data.position(), data.limit());
+        out.getPositions().setSize(parser.positionSize);
+        out.getTextureCoords().setSize(parser.textureCoordSize);
+        out.getNormals().setSize(parser.normalSize);
+        out.getCorners().setSize(parser.cornerSize);
+        return out;
+    }
+
+    /**
+     * Parses OBJ data on a fork/join pool. The buffer is split into chunks at newline boundaries
+     * and parsed in two parallel passes: the first only counts the records of every chunk, which
+     * gives each chunk its offsets in the streams; the second parses every chunk straight into
+     * streams allocated once at their exact size. No per-chunk copy is ever held, so the heap
+     * holds no more than the result. Since every chunk knows how many records precede it,
+     * relative OBJ indices resolve as they do in a sequential parse.
+     *
+     * @param data The OBJ file content.
+     * @param pool The pool that parses the chunks.
+     * @return The parsed streams, identical to those of {@link #parse(ByteBuffer)}.
+     */
+    public static ObjData parse(ByteBuffer data, ForkJoinPool pool) {
+        int start = data.position();
+        int limit = data.limit();
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * 4, (limit - start) / MIN_CHUNK_SIZE));
+        if (chunkCount == 1)
+            return parse(data);
+
+        int[] bounds = new int[chunkCount + 1];
+        bounds[0] = start;
+        bounds[chunkCount] = limit;
+        long chunkSize = (limit - start) / chunkCount;
+        for (int i = 1; i < chunkCount; i++) {
+            int split = (int) Math.max(bounds[i - 1], start + chunkSize * i);
+            while (split < limit && data.get(split) != '\n')
+                split++;
+            bounds[i] = Math.min(split + 1, limit);
+        }
+
+        // offsets[i] holds the position, texture coordinate, normal and corner sizes before chunk i.
+        int[][] offsets = new int[chunkCount + 1][4];
+        run(pool, chunkCount, chunk -> {
+            ObjParser counter = new ObjParser(data, null);
+            counter.parseRange(bounds[chunk], bounds[chunk + 1]);
+            offsets[chunk + 1] = new int[]{counter.positionSize, counter.textureCoordSize, counter.normalSize, counter.cornerSize};
+        });
+        for (int i = 0; i < chunkCount; i++) {
+            for (int k = 0; k < 4; k++)
+                offsets[i + 1][k] += offsets[i][k];
+        }
+        int[] total = offsets[chunkCount];
+        ObjData out = new ObjData(total[0], total[1], total[2], total[3]);
+        run(pool, chunkCount, chunk -> new ObjParser(data, out, offsets[chunk]).parseRange(bounds[chunk], bounds[chunk + 1]));
+        out.getPositions().setSize(total[0]);
+        out.getTextureCoords().setSize(total[1]);
+        out.getNormals().setSize(total[2]);
+        out.getCorners().setSize(total[3]);
+        return out;
+    }
+
+    /**
+     * Runs a task for every chunk on the pool and waits for all of them.
+     */
+    private static void run(ForkJoinPool pool, int chunkCount, IntConsumer task) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int chunk = i;
+            tasks[i] = pool.submit(() -> task.accept(chunk));
+        }
+        for (ForkJoinTask<?> pending : tasks)
+            pending.join();
+    }
+
+    /**
+     * Parses every line in {@code [start, end)} and appends the records to the output streams.
+     * When only counting, vertex records are counted without parsing their numbers.
+     *
+     * @param start The absolute index of the first byte.
+     * @param end   The absolute index one past the last byte.
+     */
+    private void parseRange(int start, int end) {
+        this.pos = start;
+        this.end = end;
+        while (pos < end) {
+            skipBlanks();
+            if (pos >= end)
+                break;
+            byte c = data.get(pos);
+            if (c == 'v' && pos + 1 < end) {
+                byte next = data.get(pos + 1);
+                if (isBlank(next)) {
+                    pos++;
+                    if (out == null) {
+                        positionSize += 3;
+                    } else {
+                        if (positionSize + 3 > positions.length)
+                            positions = grow(out.getPositions(), positionSize + 3);
+                        positions[positionSize++] = parseFloat();
+                        positions[positionSize++] = parseFloat();
+                        positions[positionSize++] = parseFloat();
+                    }
+                } else if (next == 't' && pos + 2 < end && isBlank(data.get(pos + 2))) {
+                    pos += 2;
+                    if (out == null) {
+                        textureCoordSize += 2;
+                    } else {
+                        if (textureCoordSize + 2 > textureCoords.length)
+                            textureCoords = grow(out.getTextureCoords(), textureCoordSize + 2);
+                        textureCoords[textureCoordSize++] = parseFloat();
+                        textureCoords[textureCoordSize++] = parseFloat();
+                    }
+                } else if (next == 'n' && pos + 2 < end && isBlank(data.get(pos + 2))) {
+                    pos += 2;
+                    if (out == null) {
+                        normalSize += 3;
+                    } else {
+                        if (normalSize + 3 > normals.length)
+                            normals = grow(out.getNormals(), normalSize + 3);
+                        normals[normalSize++] = parseFloat();
+                        normals[normalSize++] = parseFloat();
+                        normals[normalSize++] = parseFloat();
+                    }
+                }
+            } else if (c == 'f' && pos + 1 < end && isBlank(data.get(pos + 1))) {
+                pos++;
+                parseFace();
+            }
+            skipLine();
+        }
+    }
+
+    /**
+     * Parses the corners of an {@code f} record and emits them as a triangle fan.
+     */
+    private void parseFace() {
+        int positionCount = positionSize / 3;
+        int textCoordCount = textureCoordSize / 2;
+        int normalCount = normalSize / 3;
+
+        int first = cornerSize;
+        int cornerCount = 0;
+        while (true) {
+            skipBlanks();
+            if (pos >= end || !isNumberStart(data.get(pos)))
+                break;
+            if (cornerCount >= 3) {
+                // Fan triangulation: repeat the first and the previous corner before the new one.
+                int previous = cornerSize - 3;
+                copyCorner(first);
+                copyCorner(previous);
+            }
+            addCorner(resolveIndex(parseInt(), positionCount));
+            int textCoord = -1, normal = -1;
+            if (pos < end && data.get(pos) == '/') {
+                pos++;
+                if (pos < end && data.get(pos) != '/' && isNumberStart(data.get(pos)))
+                    textCoord = resolveIndex(parseInt(), textCoordCount);
+                if (pos < end && data.get(pos) == '/') {
+                    pos++;
+                    if (pos < end && isNumberStart(data.get(pos)))
+                        normal = resolveIndex(parseInt(), normalCount);
+                }
+            }
+            addCorner(textCoord);
+            addCorner(normal);
+            cornerCount++;
+        }
+        if (cornerCount > 0 && cornerCount < 3)
+            cornerSize = first;
+    }
+
+    private void addCorner(int index) {
+        if (out != null) {
+            if (cornerSize == corners.length)
+                corners = grow(out.getCorners(), cornerSize + 1);
+            corners[cornerSize] = index;
+        }
+        cornerSize++;
+    }
+
+    /**
+     * Appends a copy of an earlier corner of the current face.
+     *
+     * @param from The slot of the corner to copy.
+     */
+    private void copyCorner(int from) {
+        for (int k = 0; k < 3; k++)
+            addCorner(out != null ? corners[from + k] : 0);
+    }
+
+    private float[] grow(FloatArray stream, int capacity) {
+        if (!growable)
+            throw new IllegalStateException("OBJ chunk has more records than were counted");
+        stream.ensureCapacity(capacity);
+        return stream.elements();
+    }
+
+    private int[] grow(IntArray stream, int capacity) {
+        if (!growable)
+            throw new IllegalStateException("OBJ chunk has more records than were counted");
+        stream.ensureCapacity(capacity);
+        return stream.elements();
+    }
+
+    /**
+     * Converts a 1-based or negative (relative) OBJ index to a 0-based index. Relative indices are
+     * resolved against the number of records read before the face, earlier chunks included.
+     *
+     * @param index The index as written in the file.
+     * @param count The number of records of that kind read so far.
+     * @return The 0-based index.
+     */
+    private static int resolveIndex(int index, int count) {
+        return index >= 0 ? index - 1 : count + index;
+    }
+
+    private int parseInt() {
+        boolean negative = false;
+        byte c = data.get(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+        int value = 0;
+        while (pos < end) {
+            int digit = data.get(pos) - '0';
+            if (digit < 0 || digit > 9)
+                break;
+            value = value * 10 + digit;
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal float at the current position. Up to 18 significant digits are accumulated
+     * in a long and scaled by an exact power of ten; anything unusual (nan, inf, huge exponents)
+     * falls back to {@link Float#parseFloat(String)}.
+     *
+     * @return The parsed value, or 0 if the line has no more tokens.
+     */
+    private float parseFloat() {
+        skipBlanks();
+        int start = pos;
+        if (pos >= end || isLineEnd(data.get(pos)))
+            return 0;
+
+        boolean negative = false;
+        byte c = data.get(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean any = false;
+        while (pos < end) {
+            int digit = data.get(pos) - '0';
+            if (digit < 0 || digit > 9)
+                break;
+            any = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0)
+                    digits++;
+            } else {
+                exponent++;
+            }
+            pos++;
+        }
+        if (pos < end && data.get(pos) == '.') {
+            pos++;
+            while (pos < end) {
+                int digit = data.get(pos) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                    if (mantissa != 0)
+                        digits++;
+                }
+                pos++;
+            }
+        }
+        if (any && pos < end && (data.get(pos) == 'e' || data.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (data.get(pos) == '-' || data.get(pos) == '+')) {
+                negativeExponent = data.get(pos) == '-';
+                pos++;
+            }
+            int value = 0;
+            while (pos < end) {
+                int digit = data.get(pos) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                if (value < 10000)
+                    value = value * 10 + digit;
+                pos++;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (!any || (pos < end && !isBlank(data.get(pos)) && !isLineEnd(data.get(pos)))
+                || exponent >= POWERS_OF_TEN.length || -exponent >= POWERS_OF_TEN.length)
+            return parseFloatSlow(start);
+
+        double value = mantissa;
+        if (exponent < 0)
+            value /= POWERS_OF_TEN[-exponent];
+        else if (exponent > 0)
+            value *= POWERS_OF_TEN[exponent];
+        return (float) (negative ? -value : value);
+    }
+
+    private float parseFloatSlow(int start) {
+        pos = start;
+        while (pos < end && !isBlank(data.get(pos)) && !isLineEnd(data.get(pos)))
+            pos++;
+        byte[] token = new byte[pos - start];
+        for (int i = 0; i < token.length; i++)
+            token[i] = data.get(start + i);
+        return Float.parseFloat(new String(token, StandardCharsets.US_ASCII));
+    }
+
+    private void skipBlanks() {
+        while (pos < end && isBlank(data.get(pos)))
+            pos++;
+    }
+
+    private void skipLine() {
+        while (pos < end && data.get(pos) != '\n')
+            pos++;
+        pos++;
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '#';
+    }
+
+    private static boolean isNumberStart(byte c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+';
+    }
+}
@@ -0,0 +1,29 @@
+package Core.Meshes;
+
+/**
+ * The VertexLayout enum lists the ways {@link Core.Managers.ObjectLoader} can store the vertices
+ * of a model on the GPU.
+ */
+public enum VertexLayout {
+
+    /** One float VBO per attribute: position (12 bytes), texture coordinates (8) and normal (12). */
+    SEPARATE(32),
+
+    /** One interleaved VBO in the format of {@link VertexQuantizer}. */
+    QUANTIZED(VertexQuantizer.BYTES_PER_VERTEX);
+
+    private final int bytesPerVertex;
+
+    VertexLayout(int bytesPerVertex) {
+        this.bytesPerVertex = bytesPerVertex;
+    }
+
+    /**
+     * Gets the number of bytes one vertex takes in this layout.
+     *
+     * @return The vertex size in bytes.
+     */
+    public int getBytesPerVertex() {
+        return bytesPerVertex;
+    }
+}
@@ -0,0 +1,101 @@
+package Core.Meshes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * The VertexQuantizer class packs float vertex attributes into one interleaved 16-byte vertex:
+ * <pre>
+ *   offset  0  ushort[3] position, normalized to the model's bounding box, + 2 bytes padding
+ *   offset  8  short[2]  normal, octahedral encoding as signed normalized values
+ *   offset 12  half[2]   texture coordinates
+ * </pre>
+ * The vertex shader restores the position as {@code position * positionScale + positionOffset},
+ * with the scale and offset from {@link #positionScale(float[])} and {@link #positionOffset(float[])},
+ * and decodes the normal from its two octahedral components. Texture coordinates are stored as
+ * half floats rather than normalized shorts so that coordinates outside [0, 1] keep tiling.
+ */
+public class VertexQuantizer {
+
+    /** The size of a quantized vertex in bytes. */
+    public static final int BYTES_PER_VERTEX = 16;
+
+    /** The byte offset of the position in a quantized vertex. */
+    public static final int POSITION_OFFSET = 0;
+
+    /** The byte offset of the normal in a quantized vertex. */
+    public static final int NORMAL_OFFSET = 8;
+
+    /** The byte offset of the texture coordinates in a quantized vertex. */
+    public static final int TEXTURE_COORD_OFFSET = 12;
+
+    /**
+     * Writes quantized vertices.
+     *
+     * @param positions     The positions, three floats per vertex.
+     * @param textureCoords The texture coordinates, two floats per vertex.
+     * @param normals       The normals, three floats per vertex.
+     * @param bounds        The bounding box of the positions: minimum x, y, z followed by maximum x, y, z.
+     * @param out           The buffer to write to, with {@link #BYTES_PER_VERTEX} bytes per vertex remaining.
+     */
+    public static void encode(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals,
+                              float[] bounds, ByteBuffer out) {
+        out.order(ByteOrder.nativeOrder());
+        int vertexCount = positions.remaining() / 3;
+        float[] scale = positionScale(bounds);
+        int p = positions.position(), t = textureCoords.position(), n = normals.position();
+        for (int v = 0; v < vertexCount; v++) {
+            for (int k = 0; k < 3; k++) {
+                float extent = scale[k];
+                float unit = extent > 0 ? (positions.get(p + v * 3 + k) - bounds[k]) / extent : 0;
+                out.putShort((short) Math.round(Math.min(Math.max(unit, 0), 1) * 65535));
+            }
+            out.putShort((short) 0);
+
+            float x = normals.get(n + v * 3), y = normals.get(n + v * 3 + 1), z = normals.get(n + v * 3 + 2);
+            float sum = Math.abs(x) + Math.abs(y) + Math.abs(z);
+            float ox = 0, oy = 0;
+            if (sum > 0) {
+                ox = x / sum;
+                oy = y / sum;
+                if (z < 0) {
+                    // Fold the lower hemisphere over the diagonals of the octahedron; zero folds
+                    // towards +1, matching the decoder's n >= 0 test.
+                    float fx = (1 - Math.abs(oy)) * (ox >= 0 ? 1 : -1);
+                    float fy = (1 - Math.abs(ox)) * (oy >= 0 ? 1 : -1);
+                    ox = fx;
+                    oy = fy;
+                }
+            }
+            out.putShort(toSnorm16(ox)).putShort(toSnorm16(oy));
+
+            out.putShort(Float.floatToFloat16(textureCoords.get(t + v * 2)));
+            out.putShort(Float.floatToFloat16(textureCoords.get(t + v * 2 + 1)));
+        }
+    }
+
+    private static short toSnorm16(float value) {
+        return (short) Math.round(Math.min(Math.max(value, -1), 1) * 32767);
+    }
+
+    /**
+     * Gets the factor the vertex shader multiplies normalized positions with.
+     *
+     * @param bounds The bounding box the positions were quantized to.
+     * @return The extent of the box on each axis.
+     */
+    public static float[] positionScale(float[] bounds) {
+        return new float[]{bounds[3] - bounds[0], bounds[4] - bounds[1], bounds[5] - bounds[2]};
+    }
+
+    /**
+     * Gets the offset the vertex shader adds to scaled positions.
+     *
+     * @param bounds The bounding box the positions were quantized to.
+     * @return The minimum corner of the box.
+     */
+    public static float[] positionOffset(float[] bounds) {
+        return new float[]{bounds[0], bounds[1], bounds[2]};
+    }
+}
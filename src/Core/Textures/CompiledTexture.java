@@ -0,0 +1,270 @@
+package Core.Textures;
+
+import org.lwjgl.stb.STBDXT;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.stream.IntStream;
+
+/**
+ * The CompiledTexture class is a view over a compiled texture file: a complete mip chain in its
+ * GPU format, so every level can be handed to {@code glCompressedTexImage2D} as it is, without
+ * decoding the source image or generating mipmaps on the driver.
+ * <pre>
+ *   int  magic          'E3DT'
+ *   int  version        {@link #VERSION}
+ *   long source hash    XXH64 of the source file and the compile settings
+ *   int  format         ordinal of the {@link TextureFormat}
+ *   int  width          of level 0
+ *   int  height         of level 0
+ *   int  level count
+ *   byte[]              every level from the largest to 1x1, in the format's block layout
+ * </pre>
+ */
+public class CompiledTexture {
+
+    /** The magic number at the start of every compiled texture file. */
+    public static final int MAGIC = 0x54443345;
+
+    /** The current version of the compiled texture format. Files of any other version are recompiled. */
+    public static final int VERSION = 2;
+
+    /** The size of the header in bytes. */
+    public static final int HEADER_SIZE = 32;
+
+    private static final MipmapGenerator MIPMAPS = new MipmapGenerator();
+
+    private final ByteBuffer data;
+    private final long sourceHash;
+    private final TextureFormat format;
+    private final int width;
+    private final int height;
+    private final int levelCount;
+
+    private CompiledTexture(ByteBuffer data) {
+        this.data = data;
+        this.sourceHash = data.getLong(8);
+        this.format = TextureFormat.values()[data.getInt(16)];
+        this.width = data.getInt(20);
+        this.height = data.getInt(24);
+        this.levelCount = data.getInt(28);
+    }
+
+    /**
+     * Wraps compiled texture data, checking the header.
+     *
+     * @param data         The content of a compiled texture file.
+     * @param expectedHash The hash the texture must have been compiled with.
+     * @return The compiled texture, or null if the data is stale, truncated or of another version.
+     */
+    public static CompiledTexture wrap(ByteBuffer data, long expectedHash) {
+        data = data.duplicate().order(ByteOrder.nativeOrder());
+        if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                || data.getLong(8) != expectedHash || data.getInt(16) < 0 || data.getInt(16) >= TextureFormat.values().length
+                || data.getInt(20) < 1 || data.getInt(24) < 1 || data.getInt(28) != MipmapGenerator.levelCount(data.getInt(20), data.getInt(24)))
+            return null;
+        CompiledTexture texture = new CompiledTexture(data);
+        if (data.remaining() != sizeInBytes(texture.format, texture.width, texture.height))
+            return null;
+        return texture;
+    }
+
+    /**
+     * Compiles an image: builds its mip chain with a {@link MipmapGenerator} and encodes every
+     * level in the specified format. The blocks of a level are encoded in parallel on the common
+     * fork/join pool.
+     *
+     * @param image      The image to compile. It is left unchanged.
+     * @param format     The format to store the levels in.
+     * @param sourceHash The hash of the source and the compile settings, checked by {@link #wrap}.
+     * @return The compiled texture, backed by a direct buffer holding the complete file.
+     */
+    public static CompiledTexture compile(ImageData image, TextureFormat format, long sourceHash) {
+        int levels = MipmapGenerator.levelCount(image.getWidth(), image.getHeight());
+        ByteBuffer out = ByteBuffer.allocateDirect(sizeInBytes(format, image.getWidth(), image.getHeight()))
+                .order(ByteOrder.nativeOrder());
+        out.putInt(MAGIC).putInt(VERSION).putLong(sourceHash)
+                .putInt(format.ordinal()).putInt(image.getWidth()).putInt(image.getHeight()).putInt(levels);
+
+        ImageData[] chain = MIPMAPS.generate(image);
+        try {
+            for (int i = 0; i < levels; i++) {
+                ImageData level = i == 0 ? image : chain[i - 1];
+                int size = format.sizeInBytes(level.getWidth(), level.getHeight());
+                encode(level, format, out.slice(out.position(), size));
+                out.position(out.position() + size);
+            }
+        } finally {
+            for (ImageData level : chain)
+                level.free();
+        }
+        return new CompiledTexture(out.flip());
+    }
+
+    /**
+     * Compiles an image after resampling it to another size.
+     *
+     * @param image      The image to compile. It is left unchanged.
+     * @param format     The format to store the levels in.
+     * @param width      The width to resample the image to, or 0 to keep its size.
+     * @param height     The height to resample the image to, or 0 to keep its size.
+     * @param sourceHash The hash of the source and the compile settings, checked by {@link #wrap}.
+     * @return The compiled texture, backed by a direct buffer holding the complete file.
+     * @throws Exception If the image cannot be resampled.
+     */
+    public static CompiledTexture compile(ImageData image, TextureFormat format, int width, int height, long sourceHash) throws Exception {
+        if (width == 0 || height == 0 || (width == image.getWidth() && height == image.getHeight()))
+            return compile(image, format, sourceHash);
+        ImageData resized = image.resize(width, height);
+        try {
+            return compile(resized, format, sourceHash);
+        } finally {
+            resized.free();
+        }
+    }
+
+    /**
+     * Computes the size of a compiled texture file.
+     *
+     * @param format The format of the levels.
+     * @param width  The width of level 0 in pixels.
+     * @param height The height of level 0 in pixels.
+     * @return The size of the file in bytes.
+     */
+    public static int sizeInBytes(TextureFormat format, int width, int height) {
+        int size = HEADER_SIZE;
+        for (int i = 0; i < MipmapGenerator.levelCount(width, height); i++)
+            size += format.sizeInBytes(Math.max(1, width >> i), Math.max(1, height >> i));
+        return size;
+    }
+
+    /**
+     * Encodes one level with stb_dxt, block row by block row. Blocks reaching past the edge of
+     * the image repeat its last row and column.
+     */
+    private static void encode(ImageData image, TextureFormat format, ByteBuffer out) {
+        int width = image.getWidth(), height = image.getHeight();
+        long src = MemoryUtil.memAddress(image.getPixels());
+        if (!format.isCompressed()) {
+            MemoryUtil.memCopy(src, MemoryUtil.memAddress(out), (long) width * height * 4);
+            return;
+        }
+        int blocksX = (width + 3) / 4;
+        int blockBytes = format.sizeInBytes(4, 4);
+        long dst = MemoryUtil.memAddress(out);
+        int alpha = format.hasAlpha() ? 1 : 0;
+        IntStream.range(0, (height + 3) / 4).parallel().forEach(by -> {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                long block = MemoryUtil.memAddress(stack.malloc(64));
+                for (int bx = 0; bx < blocksX; bx++) {
+                    for (int y = 0; y < 4; y++) {
+                        int py = Math.min(by * 4 + y, height - 1);
+                        for (int x = 0; x < 4; x++) {
+                            int px = Math.min(bx * 4 + x, width - 1);
+                            MemoryUtil.memPutInt(block + (y * 4 + x) * 4L, MemoryUtil.memGetInt(src + ((long) py * width + px) * 4));
+                        }
+                    }
+                    STBDXT.nstb_compress_dxt_block(dst + ((long) by * blocksX + bx) * blockBytes, block, alpha, STBDXT.STB_DXT_HIGHQUAL);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the complete content of the compiled texture file.
+     *
+     * @return A view of the file, header included.
+     */
+    public ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    /**
+     * Gets one level of the mip chain.
+     *
+     * @param level The level, 0 being the largest.
+     * @return A view of the level's blocks or pixels.
+     */
+    public ByteBuffer getLevel(int level) {
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < level; i++)
+            offset += format.sizeInBytes(getLevelWidth(i), getLevelHeight(i));
+        return data.slice(data.position() + offset, format.sizeInBytes(getLevelWidth(level), getLevelHeight(level))).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Gets the width of a level.
+     *
+     * @param level The level, 0 being the largest.
+     * @return The width in pixels.
+     */
+    public int getLevelWidth(int level) {
+        return Math.max(1, width >> level);
+    }
+
+    /**
+     * Gets the height of a level.
+     *
+     * @param level The level, 0 being the largest.
+     * @return The height in pixels.
+     */
+    public int getLevelHeight(int level) {
+        return Math.max(1, height >> level);
+    }
+
+    /**
+     * Gets the size of all levels, as uploaded to the GPU.
+     *
+     * @return The size in bytes.
+     */
+    public int getLevelsSize() {
+        return sizeInBytes(format, width, height) - HEADER_SIZE;
+    }
+
+    /**
+     * Gets the hash of the source file and settings the texture was compiled from.
+     *
+     * @return The hash stored in the header.
+     */
+    public long getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Gets the format the levels are stored in.
+     *
+     * @return The texture format.
+     */
+    public TextureFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the width of level 0.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of level 0.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of levels in the mip chain.
+     *
+     * @return The level count.
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+}
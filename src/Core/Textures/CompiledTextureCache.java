@@ -0,0 +1,130 @@
+package Core.Textures;
+
+import Core.Utils.ResourceBuffer;
+import org.lwjgl.util.xxhash.XXHash;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The CompiledTextureCache class keeps compiled textures in a directory on disk, keyed by the
+ * XXH64 hash of their source image and the format and size they were compiled to. A cache hit
+ * memory-maps the compiled file, so the texture can be uploaded without decoding the image or
+ * generating mipmaps; a miss compiles the image once and writes the result for the next launch.
+ * The cache may be used from several threads at once.
+ */
+public class CompiledTextureCache {
+
+    private final Path directory;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Constructs a new CompiledTextureCache that stores compiled textures in the specified directory.
+     *
+     * @param directory The cache directory. It is created on the first miss.
+     */
+    public CompiledTextureCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the compiled form of an image at its own size, compiling and caching it first if needed.
+     *
+     * @param filename The classpath resource name or file path of the image.
+     * @param format   The format to store the texture in.
+     * @return The compiled texture, backed by a memory-mapped cache file.
+     * @throws Exception If the image or the cache file cannot be read or written.
+     */
+    public CompiledTexture load(String filename, TextureFormat format) throws Exception {
+        return load(filename, format, 0, 0);
+    }
+
+    /**
+     * Loads the compiled form of an image, compiling and caching it first if needed.
+     *
+     * @param filename The classpath resource name or file path of the image.
+     * @param format   The format to store the texture in.
+     * @param width    The width to resample the image to, or 0 to keep its size.
+     * @param height   The height to resample the image to, or 0 to keep its size.
+     * @return The compiled texture, backed by a memory-mapped cache file on a hit.
+     * @throws Exception If the image or the cache file cannot be read or written.
+     */
+    public CompiledTexture load(String filename, TextureFormat format, int width, int height) throws Exception {
+        try (ResourceBuffer source = ResourceBuffer.open(filename)) {
+            // The settings seed the hash, so each format and size of an image gets its own entry.
+            long seed = ((long) format.ordinal() << 56) | ((long) width << 28) | height;
+            long hash = XXHash.XXH64(source.getBuffer(), seed);
+            Path file = directory.resolve(String.format("%016x.tex", hash));
+
+            if (Files.isRegularFile(file)) {
+                CompiledTexture texture = CompiledTexture.wrap(ResourceBuffer.map(file).getBuffer(), hash);
+                if (texture != null) {
+                    hits.incrementAndGet();
+                    return texture;
+                }
+            }
+
+            misses.incrementAndGet();
+            ImageData image = ImageData.decode(source.getBuffer(), filename);
+            CompiledTexture texture;
+            try {
+                texture = CompiledTexture.compile(image, format, width, height, hash);
+            } finally {
+                image.free();
+            }
+            write(file, texture);
+            return texture;
+        }
+    }
+
+    /**
+     * Writes a compiled texture through a temporary file, so a crash never leaves a truncated entry.
+     */
+    private void write(Path file, CompiledTexture texture) throws Exception {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "texture", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer data = texture.getData();
+                while (data.hasRemaining())
+                    channel.write(data);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gets the directory the compiled textures are stored in.
+     *
+     * @return The cache directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the number of textures loaded from the cache without compiling.
+     *
+     * @return The hit count.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of textures that had to be compiled.
+     *
+     * @return The miss count.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,167 @@
+package Core.Textures;
+
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.stb.STBImageResize;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The ImageData class holds the RGBA pixels of a decoded image in native memory. Decoding makes
+ * no OpenGL calls, so images can be decoded on worker threads and uploaded later on the GL thread.
+ */
+public class ImageData {
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer pixels;
+    private final boolean decoded;
+
+    /**
+     * Constructs a new ImageData from decoded pixels.
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param pixels The pixels, four bytes each, allocated by stb_image.
+     */
+    public ImageData(int width, int height, ByteBuffer pixels) {
+        this(width, height, pixels, true);
+    }
+
+    private ImageData(int width, int height, ByteBuffer pixels, boolean decoded) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.decoded = decoded;
+    }
+
+    /**
+     * Decodes an image file that has already been read into memory.
+     *
+     * @param data The content of the image file.
+     * @param name The name of the file, for the error message.
+     * @return The decoded image, which must be freed after use.
+     * @throws Exception If the image cannot be decoded.
+     */
+    public static ImageData decode(ByteBuffer data, String name) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer c = stack.mallocInt(1);
+
+            ByteBuffer buffer = STBImage.stbi_load_from_memory(data, w, h, c, 4);
+            if (buffer == null)
+                throw new Exception("Image File " + name + " not loaded " + STBImage.stbi_failure_reason());
+
+            return new ImageData(w.get(), h.get(), buffer);
+        }
+    }
+
+    /**
+     * Allocates an image with uninitialized pixels.
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @return The image, which must be freed after use.
+     */
+    public static ImageData allocate(int width, int height) {
+        return new ImageData(width, height, MemoryUtil.memAlloc(width * height * 4), false);
+    }
+
+    /**
+     * Decodes an image file into RGBA pixels.
+     *
+     * @param filename The path to the image file.
+     * @return The decoded image, which must be freed after use.
+     * @throws Exception If the image cannot be decoded.
+     */
+    public static ImageData decode(String filename) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer c = stack.mallocInt(1);
+
+            ByteBuffer buffer = STBImage.stbi_load(filename, w, h, c, 4);
+            if (buffer == null)
+                throw new Exception("Image File " + filename + " not loaded " + STBImage.stbi_failure_reason());
+
+            return new ImageData(w.get(), h.get(), buffer);
+        }
+    }
+
+    /**
+     * Reads the size of an image file from its header, without decoding the pixels.
+     *
+     * @param filename The path to the image file.
+     * @return The width and height in pixels.
+     * @throws Exception If the file is not an image stb_image can decode.
+     */
+    public static int[] getSize(String filename) throws Exception {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer c = stack.mallocInt(1);
+
+            if (!STBImage.stbi_info(filename, w, h, c))
+                throw new Exception("Image File " + filename + " not loaded " + STBImage.stbi_failure_reason());
+
+            return new int[]{w.get(), h.get()};
+        }
+    }
+
+    /**
+     * Resamples the image to another size.
+     *
+     * @param width  The width of the new image in pixels.
+     * @param height The height of the new image in pixels.
+     * @return The resampled image, which must be freed after use; this image is left unchanged.
+     * @throws Exception If the image cannot be resampled.
+     */
+    public ImageData resize(int width, int height) throws Exception {
+        ImageData resized = allocate(width, height);
+        if (!STBImageResize.stbir_resize_uint8(pixels, this.width, this.height, 0, resized.pixels, width, height, 0, 4)) {
+            resized.free();
+            throw new Exception("Image could not be resized from " + this.width + "x" + this.height + " to " + width + "x" + height);
+        }
+        return resized;
+    }
+
+    /**
+     * Gets the width of the image.
+     *
+     * @return The width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the image.
+     *
+     * @return The height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the pixels of the image.
+     *
+     * @return The RGBA pixels, row by row from the top.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Frees the pixels.
+     */
+    public void free() {
+        if (decoded)
+            STBImage.stbi_image_free(pixels);
+        else
+            MemoryUtil.memFree(pixels);
+    }
+}
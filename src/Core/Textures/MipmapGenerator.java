@@ -0,0 +1,171 @@
+package Core.Textures;
+
+import Core.Utils.Constants;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The MipmapGenerator class builds the mip chain of an image on the CPU with a gamma-correct 2x2
+ * box filter: color channels are averaged in linear light and converted back to sRGB, alpha is
+ * averaged as it is. Averaging the stored sRGB values, as a plain box filter does, darkens every
+ * level below the first.
+ * <p>
+ * The image is cut into tiles of {@link Constants#MIPMAP_TILE_SIZE} pixels. A tile reduces all
+ * its levels down to a single pixel on its own, without waiting for its neighbours, so tiles run
+ * in parallel across several levels at once; the single pixels of all tiles form the next image,
+ * which is reduced the same way until the chain ends at 1x1.
+ */
+public class MipmapGenerator {
+
+    private static final float[] TO_LINEAR = new float[256];
+    private static final int FROM_LINEAR_STEPS = 4096;
+    private static final byte[] FROM_LINEAR = new byte[FROM_LINEAR_STEPS + 1];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            float c = i / 255f;
+            TO_LINEAR[i] = c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4f);
+        }
+        for (int i = 0; i <= FROM_LINEAR_STEPS; i++) {
+            float c = (float) i / FROM_LINEAR_STEPS;
+            float s = c <= 0.0031308f ? c * 12.92f : 1.055f * (float) Math.pow(c, 1 / 2.4f) - 0.055f;
+            FROM_LINEAR[i] = (byte) Math.round(s * 255);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int tileShift;
+
+    /**
+     * Constructs a new MipmapGenerator that runs on the common fork/join pool.
+     */
+    public MipmapGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new MipmapGenerator.
+     *
+     * @param pool The pool the tiles are reduced on.
+     */
+    public MipmapGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+        this.tileShift = Integer.numberOfTrailingZeros(Constants.MIPMAP_TILE_SIZE);
+    }
+
+    /**
+     * Gets the number of levels in the complete mip chain of an image.
+     *
+     * @param width  The width of level 0 in pixels.
+     * @param height The height of level 0 in pixels.
+     * @return The level count, level 0 included.
+     */
+    public static int levelCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+    }
+
+    /**
+     * Builds the levels below an image. Level {@code n} is {@code max(1, width >> n)} by
+     * {@code max(1, height >> n)} pixels; an odd last row or column is averaged with itself.
+     *
+     * @param image The image at level 0. It is left unchanged.
+     * @return Levels 1 to the 1x1 level, which must be freed after use.
+     */
+    public ImageData[] generate(ImageData image) {
+        int width = image.getWidth(), height = image.getHeight();
+        int levels = levelCount(width, height);
+        ImageData[] chain = new ImageData[levels - 1];
+        for (int level = 1; level < levels; level++)
+            chain[level - 1] = ImageData.allocate(Math.max(1, width >> level), Math.max(1, height >> level));
+
+        long pixels = MemoryUtil.memAddress(image.getPixels());
+        float[] linear = null;
+        int base = 0;
+        while (base < levels - 1) {
+            int steps = Math.min(tileShift, levels - 1 - base);
+            int baseWidth = Math.max(1, width >> base), baseHeight = Math.max(1, height >> base);
+            int tilesX = (baseWidth + (1 << tileShift) - 1) >> tileShift;
+            int tilesY = (baseHeight + (1 << tileShift) - 1) >> tileShift;
+            float[] source = linear;
+            float[] next = new float[Math.max(1, width >> (base + steps)) * Math.max(1, height >> (base + steps)) * 4];
+            int from = base;
+            pool.submit(() -> IntStream.range(0, tilesX * tilesY).parallel().forEach(tile ->
+                    reduceTile(tile % tilesX, tile / tilesX, from, steps, width, height, pixels, source, chain, next))).join();
+            linear = next;
+            base += steps;
+        }
+        return chain;
+    }
+
+    /**
+     * Reduces one tile of level {@code base} by {@code steps} levels, writing each level into the
+     * chain and the last one, in linear light, into {@code next}.
+     *
+     * @param source The linear pixels of level {@code base}, or null to read level 0 from {@code pixels}.
+     */
+    private void reduceTile(int tileX, int tileY, int base, int steps, int width, int height,
+                            long pixels, float[] source, ImageData[] chain, float[] next) {
+        int size = 1 << tileShift;
+        int levelWidth = Math.max(1, width >> base), levelHeight = Math.max(1, height >> base);
+        int x0 = tileX * size, y0 = tileY * size;
+        int w = Math.min(size, levelWidth - x0), h = Math.min(size, levelHeight - y0);
+        float[] previous = new float[w * h * 4];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int at = (y * w + x) * 4, from = ((y0 + y) * levelWidth + x0 + x) * 4;
+                if (source != null) {
+                    System.arraycopy(source, from, previous, at, 4);
+                } else {
+                    previous[at] = TO_LINEAR[MemoryUtil.memGetByte(pixels + from) & 0xFF];
+                    previous[at + 1] = TO_LINEAR[MemoryUtil.memGetByte(pixels + from + 1) & 0xFF];
+                    previous[at + 2] = TO_LINEAR[MemoryUtil.memGetByte(pixels + from + 2) & 0xFF];
+                    previous[at + 3] = (MemoryUtil.memGetByte(pixels + from + 3) & 0xFF) / 255f;
+                }
+            }
+        }
+
+        int previousWidth = levelWidth, previousHeight = levelHeight, previousW = w, previousH = h;
+        for (int step = 1; step <= steps; step++) {
+            int level = base + step;
+            levelWidth = Math.max(1, width >> level);
+            levelHeight = Math.max(1, height >> level);
+            int lx0 = x0 >> step, ly0 = y0 >> step;
+            int lw = Math.min(size >> step, levelWidth - lx0), lh = Math.min(size >> step, levelHeight - ly0);
+            if (lw <= 0 || lh <= 0)
+                return; // The tile lies past the edge of a level that shrank to one pixel.
+            float[] current = new float[lw * lh * 4];
+            long out = MemoryUtil.memAddress(chain[level - 1].getPixels());
+            for (int y = 0; y < lh; y++) {
+                // Rows and columns of the previous level, relative to the tile, clamped to the level.
+                int sy0 = Math.min(2 * (ly0 + y), previousHeight - 1) - (ly0 << 1);
+                int sy1 = Math.min(2 * (ly0 + y) + 1, previousHeight - 1) - (ly0 << 1);
+                sy0 = Math.min(sy0, previousH - 1);
+                sy1 = Math.min(sy1, previousH - 1);
+                for (int x = 0; x < lw; x++) {
+                    int sx0 = Math.min(Math.min(2 * (lx0 + x), previousWidth - 1) - (lx0 << 1), previousW - 1);
+                    int sx1 = Math.min(Math.min(2 * (lx0 + x) + 1, previousWidth - 1) - (lx0 << 1), previousW - 1);
+                    int at = (y * lw + x) * 4;
+                    long to = out + ((long) (ly0 + y) * levelWidth + lx0 + x) * 4;
+                    for (int c = 0; c < 4; c++) {
+                        float value = (previous[(sy0 * previousW + sx0) * 4 + c] + previous[(sy0 * previousW + sx1) * 4 + c]
+                                + previous[(sy1 * previousW + sx0) * 4 + c] + previous[(sy1 * previousW + sx1) * 4 + c]) * 0.25f;
+                        current[at + c] = value;
+                        MemoryUtil.memPutByte(to + c, c == 3 ? (byte) Math.round(value * 255) : FROM_LINEAR[Math.round(value * FROM_LINEAR_STEPS)]);
+                    }
+                }
+            }
+            previous = current;
+            previousWidth = levelWidth;
+            previousHeight = levelHeight;
+            previousW = lw;
+            previousH = lh;
+        }
+
+        // The last level of the tile starts the next round.
+        int lx0 = x0 >> steps, ly0 = y0 >> steps;
+        for (int y = 0; y < previousH; y++)
+            System.arraycopy(previous, y * previousW * 4, next, ((ly0 + y) * previousWidth + lx0) * 4, previousW * 4);
+    }
+}
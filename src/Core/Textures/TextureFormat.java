@@ -0,0 +1,66 @@
+package Core.Textures;
+
+import org.lwjgl.opengl.EXTTextureCompressionS3TC;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * The TextureFormat enum lists the formats textures are stored in on the GPU. The block
+ * compressed formats store every 4x4 pixel block in a fixed number of bytes: BC1 spends 8 bytes
+ * on a block of opaque colors, an eighth of RGBA8, and BC3 adds 8 bytes of alpha.
+ */
+public enum TextureFormat {
+    /** Uncompressed 8-bit red, green, blue and alpha. */
+    RGBA8(GL11.GL_RGBA, 0),
+    /** BC1 (DXT1), opaque colors in 8 bytes per block. */
+    BC1(EXTTextureCompressionS3TC.GL_COMPRESSED_RGB_S3TC_DXT1_EXT, 8),
+    /** BC3 (DXT5), colors and alpha in 16 bytes per block. */
+    BC3(EXTTextureCompressionS3TC.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT, 16);
+
+    private final int internalFormat;
+    private final int bytesPerBlock;
+
+    TextureFormat(int internalFormat, int bytesPerBlock) {
+        this.internalFormat = internalFormat;
+        this.bytesPerBlock = bytesPerBlock;
+    }
+
+    /**
+     * Gets the OpenGL internal format.
+     *
+     * @return The internal format passed to {@code glTexImage2D} or {@code glCompressedTexImage2D}.
+     */
+    public int getInternalFormat() {
+        return internalFormat;
+    }
+
+    /**
+     * Checks whether the format is block compressed.
+     *
+     * @return True if the format is uploaded with {@code glCompressedTexImage2D}; false otherwise.
+     */
+    public boolean isCompressed() {
+        return bytesPerBlock > 0;
+    }
+
+    /**
+     * Checks whether the format stores alpha.
+     *
+     * @return True if the format keeps the alpha channel; false otherwise.
+     */
+    public boolean hasAlpha() {
+        return this != BC1;
+    }
+
+    /**
+     * Computes the size of an image in this format.
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @return The size in bytes.
+     */
+    public int sizeInBytes(int width, int height) {
+        if (!isCompressed())
+            return width * height * 4;
+        return ((width + 3) / 4) * ((height + 3) / 4) * bytesPerBlock;
+    }
+}
@@ -0,0 +1,74 @@
+package Core.Textures;
+
+import org.lwjgl.opengl.GL11;
+
+import java.util.Objects;
+
+/**
+ * The TextureOptions class describes how an image is turned into a texture. Two loads of the
+ * same image with equal options produce the same texture, so the options are part of the key
+ * textures are shared by.
+ */
+public class TextureOptions {
+
+    /** The options {@link Core.Managers.ObjectLoader#loadTexture(String)} has always used. */
+    public static final TextureOptions DEFAULT = new TextureOptions(GL11.GL_LINEAR, GL11.GL_LINEAR, true);
+
+    private final int minFilter;
+    private final int magFilter;
+    private final boolean mipmaps;
+
+    /**
+     * Constructs new TextureOptions.
+     *
+     * @param minFilter The minification filter, e.g. {@code GL_LINEAR_MIPMAP_LINEAR}.
+     * @param magFilter The magnification filter, e.g. {@code GL_LINEAR}.
+     * @param mipmaps   Whether to generate mipmaps.
+     */
+    public TextureOptions(int minFilter, int magFilter, boolean mipmaps) {
+        this.minFilter = minFilter;
+        this.magFilter = magFilter;
+        this.mipmaps = mipmaps;
+    }
+
+    /**
+     * Gets the minification filter.
+     *
+     * @return The OpenGL minification filter.
+     */
+    public int getMinFilter() {
+        return minFilter;
+    }
+
+    /**
+     * Gets the magnification filter.
+     *
+     * @return The OpenGL magnification filter.
+     */
+    public int getMagFilter() {
+        return magFilter;
+    }
+
+    /**
+     * Gets whether mipmaps are generated.
+     *
+     * @return True if the texture has mipmaps.
+     */
+    public boolean hasMipmaps() {
+        return mipmaps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof TextureOptions other))
+            return false;
+        return minFilter == other.minFilter && magFilter == other.magFilter && mipmaps == other.mipmaps;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minFilter, magFilter, mipmaps);
+    }
+}
@@ -36,4 +36,70 @@ public class Constants {
 
     /** The specular power used in lighting calculations. */
     public static final float SPECULAR_POWER = 50f;
+
+    /** The most point lights a frame is lit by; must match MAX_POINT_LIGHTS in fragment.fs. */
+    public static final int MAX_POINT_LIGHTS = 64;
+
+    /** The most spot lights a frame is lit by; must match MAX_SPOT_LIGHTS in fragment.fs. */
+    public static final int MAX_SPOT_LIGHTS = 64;
+
+    /** OBJ files at least this large (in bytes) are parsed in parallel chunks. */
+    public static final int PARALLEL_PARSE_THRESHOLD = 4 << 20;
+
+    /** The directory compiled meshes are cached in, relative to the working directory. */
+    public static final String MESH_CACHE_DIR = ".cache/meshes";
+
+    /** The directory compiled textures are cached in, relative to the working directory. */
+    public static final String TEXTURE_CACHE_DIR = ".cache/textures";
+
+    /** The triangle ratio of each generated level of detail, finest first. */
+    public static final float[] LOD_RATIOS = {1f, 0.5f, 0.25f, 0.1f};
+
+    /**
+     * The projected bounding sphere radius, as a fraction of half the viewport height, below which
+     * an entity switches to the next coarser level of detail; one entry per level boundary.
+     */
+    public static final float[] LOD_SCREEN_SIZES = {0.25f, 0.12f, 0.05f};
+
+    /** How far past a level boundary, relative to its size, the projected size must move before the level changes. */
+    public static final float LOD_HYSTERESIS = 0.15f;
+
+    /** The time the render thread may spend on asset uploads per frame, in nanoseconds. */
+    public static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
+
+    /** The number of bytes the render thread may upload for assets per frame. */
+    public static final long UPLOAD_BUDGET_BYTES = 8L << 20;
+
+    /** The number of threads that decode streamed textures. */
+    public static final int TEXTURE_DECODE_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /** The number of pixel buffer objects streamed texture uploads rotate through. */
+    public static final int PIXEL_BUFFER_RING_SIZE = 4;
+
+    /** The edge length in pixels of the tiles mipmaps are generated in; must be a power of two. */
+    public static final int MIPMAP_TILE_SIZE = 64;
+
+    /** The largest edge length in pixels of the layers of texture arrays; larger images are resampled down to it. */
+    public static final int TEXTURE_ARRAY_SIZE = 1024;
+
+    /** The GPU memory meshes and textures may occupy before the least recently drawn are evicted, in bytes. */
+    public static final long GPU_MEMORY_BUDGET = 512L << 20;
+
+    /** The number of frames of draw data the persistently mapped buffers of indirect rendering hold. */
+    public static final int PERSISTENT_BUFFER_REGIONS = 3;
+
+    /** Whether GLState logs the state changes it issues and removes every frame. */
+    public static final boolean GL_STATE_DEBUG = false;
+
+    /** Whether the demo logs the render statistics of a frame whenever they change. */
+    public static final boolean RENDER_STATS_DEBUG = false;
+
+    /** The width in pixels of the depth buffer occluders are rasterized into on the CPU. */
+    public static final int OCCLUSION_BUFFER_WIDTH = 256;
+
+    /** The height in pixels of the depth buffer occluders are rasterized into on the CPU. */
+    public static final int OCCLUSION_BUFFER_HEIGHT = 128;
+
+    /** The edge length in pixels of the tiles the occlusion depth buffer is rasterized in; a multiple of 8. */
+    public static final int OCCLUSION_TILE_SIZE = 32;
 }
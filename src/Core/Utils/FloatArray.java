@@ -0,0 +1,130 @@
+package Core.Utils;
+
+import java.util.Arrays;
+
+/**
+ * The FloatArray class is a growable array of primitive floats, used to collect vertex data
+ * without boxing every value into a Float or a JOML vector.
+ */
+public class FloatArray {
+
+    private float[] data;
+    private int size;
+
+    /**
+     * Constructs a new FloatArray with a default initial capacity.
+     */
+    public FloatArray() {
+        this(64);
+    }
+
+    /**
+     * Constructs a new FloatArray with the specified initial capacity.
+     *
+     * @param capacity The number of floats the array can hold before growing.
+     */
+    public FloatArray(int capacity) {
+        data = new float[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Appends a value to the end of the array, growing it if necessary.
+     *
+     * @param value The value to append.
+     */
+    public void add(float value) {
+        if (size == data.length)
+            grow(size + 1);
+        data[size++] = value;
+    }
+
+    /**
+     * Appends all values of another FloatArray to the end of this one.
+     *
+     * @param other The array whose values are appended.
+     */
+    public void addAll(FloatArray other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @return The value at the index.
+     */
+    public float get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    public void set(int index, float value) {
+        data[index] = value;
+    }
+
+    /**
+     * Gets the number of values stored in the array.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of valid values, either truncating the array or exposing values
+     * written directly into {@link #elements()}.
+     *
+     * @param size The new size, which must not exceed the capacity.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Removes all values while keeping the allocated storage.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure the array can hold at least the given number of values without growing.
+     *
+     * @param capacity The required capacity.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length)
+            grow(capacity);
+    }
+
+    /**
+     * Gets the backing array. Only the first {@link #size()} values are valid.
+     *
+     * @return The backing array.
+     */
+    public float[] elements() {
+        return data;
+    }
+
+    /**
+     * Copies the stored values into a new array of exactly {@link #size()} elements.
+     *
+     * @return The stored values.
+     */
+    public float[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, data.length + (data.length >> 1));
+        data = Arrays.copyOf(data, capacity);
+    }
+}
@@ -0,0 +1,142 @@
+package Core.Utils;
+
+import java.util.Arrays;
+
+/**
+ * The IntArray class is a growable array of primitive ints, used to collect index data
+ * without boxing every value into an Integer.
+ */
+public class IntArray {
+
+    private int[] data;
+    private int size;
+
+    /**
+     * Constructs a new IntArray with a default initial capacity.
+     */
+    public IntArray() {
+        this(64);
+    }
+
+    /**
+     * Constructs a new IntArray with the specified initial capacity.
+     *
+     * @param capacity The number of ints the array can hold before growing.
+     */
+    public IntArray(int capacity) {
+        data = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Appends a value to the end of the array, growing it if necessary.
+     *
+     * @param value The value to append.
+     */
+    public void add(int value) {
+        if (size == data.length)
+            grow(size + 1);
+        data[size++] = value;
+    }
+
+    /**
+     * Appends all values of another IntArray to the end of this one.
+     *
+     * @param other The array whose values are appended.
+     */
+    public void addAll(IntArray other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Appends the first values of a plain array to the end of this one.
+     *
+     * @param values The array whose values are appended.
+     * @param count  The number of values to append.
+     */
+    public void addAll(int[] values, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(values, 0, data, size, count);
+        size += count;
+    }
+
+    /**
+     * Gets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @return The value at the index.
+     */
+    public int get(int index) {
+        return data[index];
+    }
+
+    /**
+     * Sets the value at the specified index.
+     *
+     * @param index The index of the value.
+     * @param value The new value.
+     */
+    public void set(int index, int value) {
+        data[index] = value;
+    }
+
+    /**
+     * Gets the number of values stored in the array.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of valid values, either truncating the array or exposing values
+     * written directly into {@link #elements()}.
+     *
+     * @param size The new size, which must not exceed the capacity.
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Removes all values while keeping the allocated storage.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure the array can hold at least the given number of values without growing.
+     *
+     * @param capacity The required capacity.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length)
+            grow(capacity);
+    }
+
+    /**
+     * Gets the backing array. Only the first {@link #size()} values are valid.
+     *
+     * @return The backing array.
+     */
+    public int[] elements() {
+        return data;
+    }
+
+    /**
+     * Copies the stored values into a new array of exactly {@link #size()} elements.
+     *
+     * @return The stored values.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, data.length + (data.length >> 1));
+        data = Arrays.copyOf(data, capacity);
+    }
+}
@@ -0,0 +1,165 @@
+package Core.Utils;
+
+import java.util.Arrays;
+
+/**
+ * The LongIntHashMap class is an open-addressing hash map from primitive longs to primitive ints.
+ * It uses linear probing over power-of-two tables and never boxes keys or values, which keeps
+ * lookups on hot paths such as vertex welding free of allocation.
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasEmptyKey;
+    private int emptyKeyValue;
+    private final int missingValue;
+
+    /**
+     * Constructs a new LongIntHashMap.
+     *
+     * @param expectedSize The number of entries the map should hold without resizing.
+     * @param missingValue The value {@link #get(long)} returns for absent keys.
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        allocate(capacity);
+    }
+
+    /**
+     * Gets the value mapped to a key.
+     *
+     * @param key The key.
+     * @return The value, or the missing value if the key is absent.
+     */
+    public int get(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey ? emptyKeyValue : missingValue;
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey)
+                size++;
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, key, value);
+    }
+
+    /**
+     * Gets the value mapped to a key, mapping the key to the given value first if it is absent.
+     * This needs a single probe sequence where {@code get} followed by {@code put} needs two.
+     *
+     * @param key   The key.
+     * @param value The value to map the key to if it is absent.
+     * @return The existing value, or {@code value} if the key was inserted.
+     */
+    public int putIfAbsent(long key, int value) {
+        if (key == EMPTY) {
+            if (hasEmptyKey)
+                return emptyKeyValue;
+            put(key, value);
+            return value;
+        }
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key)
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        insert(slot, key, value);
+        return value;
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries while keeping the allocated tables.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasEmptyKey = false;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt)
+            rehash();
+    }
+
+    private int slot(long key) {
+        // Finalizer of MurmurHash3, so packed indices spread over the whole table.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == EMPTY)
+                continue;
+            int slot = slot(key);
+            while (keys[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+}
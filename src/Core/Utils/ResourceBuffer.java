@@ -0,0 +1,126 @@
+package Core.Utils;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The ResourceBuffer class exposes the raw bytes of an asset as a direct ByteBuffer.
+ * Assets that live on the file system (including classpath resources in an exploded
+ * output directory) are memory-mapped with {@link FileChannel#map}, so no byte is copied
+ * onto the Java heap. Resources packed in a jar fall back to a streaming read into
+ * off-heap memory, which is released by {@link #close()}.
+ */
+public class ResourceBuffer implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+    private final boolean allocated;
+
+    private ResourceBuffer(ByteBuffer buffer, boolean allocated) {
+        this.buffer = buffer;
+        this.allocated = allocated;
+    }
+
+    /**
+     * Opens a resource, first as a classpath resource and then as a file-system path.
+     *
+     * @param filename The classpath resource name (e.g. "/models/cube.obj") or file path.
+     * @return The opened resource.
+     * @throws Exception If the resource cannot be found or read.
+     */
+    public static ResourceBuffer open(String filename) throws Exception {
+        Path path = resolvePath(filename);
+        if (path != null)
+            return map(path);
+
+        try (InputStream in = ResourceBuffer.class.getResourceAsStream(filename)) {
+            if (in == null)
+                throw new Exception("Could not find resource " + filename);
+            return new ResourceBuffer(readFully(in), true);
+        }
+    }
+
+    /**
+     * Memory-maps a file read-only.
+     *
+     * @param path The file to map.
+     * @return The mapped resource.
+     * @throws Exception If the file cannot be opened or is larger than 2 GB.
+     */
+    public static ResourceBuffer map(Path path) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new Exception("Resource " + path + " is too large to map: " + size + " bytes");
+            // The mapping stays valid after the channel is closed and is released with the buffer.
+            return new ResourceBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), false);
+        }
+    }
+
+    /**
+     * Finds the file behind a resource name, if there is one.
+     *
+     * @param filename The classpath resource name or file path.
+     * @return The file, or null if the resource is not a plain file (e.g. it is inside a jar).
+     * @throws Exception If the resource URL cannot be converted to a path.
+     */
+    public static Path resolvePath(String filename) throws Exception {
+        URL url = ResourceBuffer.class.getResource(filename);
+        if (url != null)
+            return "file".equals(url.getProtocol()) ? Paths.get(url.toURI()) : null;
+        Path path = Paths.get(filename);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    private static ByteBuffer readFully(InputStream in) throws Exception {
+        byte[] chunk = new byte[64 * 1024];
+        ByteBuffer buffer = MemoryUtil.memAlloc(Math.max(in.available(), chunk.length));
+        try {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                if (buffer.remaining() < read)
+                    buffer = MemoryUtil.memRealloc(buffer, Math.max(buffer.capacity() * 2, buffer.position() + read));
+                buffer.put(chunk, 0, read);
+            }
+        } catch (Exception e) {
+            MemoryUtil.memFree(buffer);
+            throw e;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Gets the content of the resource. The buffer is only valid until {@link #close()} is called.
+     *
+     * @return A direct buffer positioned at the first byte of the resource.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Checks whether the content is memory-mapped rather than copied off-heap.
+     *
+     * @return True if the resource is memory-mapped.
+     */
+    public boolean isMapped() {
+        return !allocated;
+    }
+
+    /**
+     * Releases the off-heap copy of a streamed resource. Mapped resources are unmapped by the
+     * garbage collector once the buffer is no longer referenced.
+     */
+    @Override
+    public void close() {
+        if (allocated)
+            MemoryUtil.memFree(buffer);
+    }
+}
@@ -15,7 +15,16 @@ public class Transformation {
      * @return The transformation matrix.
      */
     public static Matrix4f createTransformationMatrix(Entity entity) {
-        Matrix4f matrix = new Matrix4f();
+        return createTransformationMatrix(entity, new Matrix4f());
+    }
+    /**
+     * Writes the transformation matrix of the specified entity into an existing matrix.
+     *
+     * @param entity The entity for which the transformation matrix is created.
+     * @param matrix The matrix to overwrite.
+     * @return The matrix.
+     */
+    public static Matrix4f createTransformationMatrix(Entity entity, Matrix4f matrix) {
         matrix.identity().translate(entity.getPos()).
                 rotateX((float) Math.toRadians(entity.getRotation().x)).
                 rotateY((float) Math.toRadians(entity.getRotation().y)).
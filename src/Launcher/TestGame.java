@@ -9,6 +9,9 @@ import Core.Lightning.DirectionalLight;
 import Core.Lightning.PointLight;
 import Core.Lightning.SpotLight;
 import Core.Managers.*;
+import Core.Meshes.VertexLayout;
+import Core.Textures.TextureFormat;
+import Core.Textures.TextureOptions;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.lwjgl.glfw.GLFW;
@@ -18,9 +21,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 import static Core.Utils.Constants.CAMERA_STEP;
 import static Core.Utils.Constants.MOUSE_SENSITIVITY;
+import static Core.Utils.Constants.RENDER_STATS_DEBUG;
+import static Core.Utils.Constants.TEXTURE_ARRAY_SIZE;
 /**
  * The TestGame class implements the game logic for the 3D engine.
  * It initializes the renderer, window, loader, camera, lights, and entities,
@@ -31,6 +37,11 @@ public class TestGame implements ILogic {
 
     private final RenderManager renderer;
     private final ObjectLoader loader;
+    private final AssetLoader assets;
+    private int lastTextureBinds = -1;
+    private int lastEntitiesCulled = -1;
+    private int lastDrawCalls = -1;
+    private int lastUniformsIssued = -1;
     private final WindowManager window;
 
     private List<Entity> entities;
@@ -49,6 +60,7 @@ public class TestGame implements ILogic {
         renderer = new RenderManager();
         window = Main.getWindow();
         loader = new ObjectLoader();
+        assets = new AssetLoader(loader);
         camera = new Camera();
         cameraInc = new Vector3f(0,0,0);
         lightAngle=-90;
@@ -61,29 +73,44 @@ public class TestGame implements ILogic {
     @Override
     public void init() throws Exception {
         renderer.init();
+        renderer.setResources(loader.getResources());
+        loader.setVertexLayout(VertexLayout.QUANTIZED);
 
-        Model model=loader.loadOBJModel("/models/cube.obj");
-        model.setTexture(new Texture(loader.loadTexture("textures/blue.png")),1f);
+        // All textures share BC1 arrays, one per layer size, so the scene draws with few texture binds;
+        // the layers compile on the asset workers and are cached on disk for the next launch.
+        TextureArrayBuilder atlas = new TextureArrayBuilder(loader, TEXTURE_ARRAY_SIZE, TEXTURE_ARRAY_SIZE,
+                TextureFormat.BC1, TextureOptions.DEFAULT);
+        int blue = atlas.add("textures/blue.png");
+        int world = atlas.add("textures/world.png");
+        int grass = atlas.add("textures/grassblock.png");
+        CompletableFuture<Texture[]> layers = assets.loadTextureArray(atlas);
 
+        // Models and textures stream in over the first frames; each callback runs on the render thread after the uploads.
         entities=new ArrayList<>();
-        Random rand=new Random();
-        for(int i=0;i<200;i++) {
-            float x = rand.nextFloat() * 100 - 50;
-            float y = rand.nextFloat() * 100 - 50;
-            float z = rand.nextFloat() * 300;
-            entities.add(new Entity(model, new Vector3f(x, y, z), new Vector3f(rand.nextFloat() * 180, rand.nextFloat() * 180, z), 2));
-        }
-        entities.add(new Entity(model,new Vector3f(0,0,-5f),new Vector3f(0,0,0),2));
-
-
-        model=loader.loadOBJModel("/models/bunny.obj");
-        model.setTexture(new Texture(loader.loadTexture("textures/world.png")),5);
-        entities.add(new Entity(model,new Vector3f(0,-3,-5),new Vector3f(0,0,0),2));
+        assets.loadOBJModel("/models/cube.obj").thenCombine(layers, (model, textures) -> {
+            model.setTexture(textures[blue], 1f);
+            Random rand=new Random();
+            for(int i=0;i<200;i++) {
+                float x = rand.nextFloat() * 100 - 50;
+                float y = rand.nextFloat() * 100 - 50;
+                float z = rand.nextFloat() * 300;
+                addEntity(new Entity(model, new Vector3f(x, y, z), new Vector3f(rand.nextFloat() * 180, rand.nextFloat() * 180, z), 2));
+            }
+            addEntity(new Entity(model,new Vector3f(0,0,-5f),new Vector3f(0,0,0),2));
+            return model;
+        }).exceptionally(TestGame::loadFailed);
 
+        assets.loadOBJModel("/models/bunny.obj").thenCombine(layers, (model, textures) -> {
+            model.setTexture(textures[world], 5);
+            addEntity(new Entity(model,new Vector3f(0,-3,-5),new Vector3f(0,0,0),2));
+            return model;
+        }).exceptionally(TestGame::loadFailed);
 
-        model=loader.loadOBJModel("/models/alligator.obj");
-        model.setTexture(new Texture(loader.loadTexture("textures/grassblock.png")),1);
-        entities.add(new Entity(model,new Vector3f(0,-10,-5),new Vector3f(0,0,0),2));
+        assets.loadOBJModel("/models/alligator.obj").thenCombine(layers, (model, textures) -> {
+            model.setTexture(textures[grass], 1);
+            addEntity(new Entity(model,new Vector3f(0,-10,-5),new Vector3f(0,0,0),2));
+            return model;
+        }).exceptionally(TestGame::loadFailed);
 
 
 
@@ -150,7 +177,8 @@ public class TestGame implements ILogic {
     @Override
     public void update(MouseInput mouseInput) {
         camera.movePosition(cameraInc.x * CAMERA_STEP, cameraInc.y * CAMERA_STEP, cameraInc.z * CAMERA_STEP);
-        entities.get(0).incRotation(0.0f, 0.5f, 0.0f);
+        if(!entities.isEmpty())
+            entities.get(0).incRotation(0.0f, 0.5f, 0.0f);
 
         if(mouseInput.isRightButtonPressed()) {
             Vector2f rotVec = mouseInput.getDisplVec();
@@ -178,9 +206,6 @@ public class TestGame implements ILogic {
         double angRad=Math.toRadians(lightAngle);
         directionalLight.getDirection().x=(float)Math.sin(angRad);
         directionalLight.getDirection().y=(float)Math.cos(angRad);
-        for(Entity entity:entities){
-            renderer.processEntity(entity);
-        }
     }
     /**
      * Renders the scene using the renderer.
@@ -192,9 +217,26 @@ public class TestGame implements ILogic {
             window.setResize(true);
         }
 
+        assets.processUploads();
         renderer.clear();
 //        renderer.render(shaftModel);
         renderer.render( camera,directionalLight,pointLights,spotLights);
+        if(RENDER_STATS_DEBUG && renderer.getTextureBinds()!=lastTextureBinds) {
+            lastTextureBinds = renderer.getTextureBinds();
+            System.out.println("Texture binds per frame: " + lastTextureBinds);
+        }
+        if(RENDER_STATS_DEBUG && renderer.getDrawCalls()!=lastDrawCalls) {
+            lastDrawCalls = renderer.getDrawCalls();
+            System.out.println("Draw calls per frame: " + lastDrawCalls);
+        }
+        if(RENDER_STATS_DEBUG && renderer.getUniformsIssued()!=lastUniformsIssued) {
+            lastUniformsIssued = renderer.getUniformsIssued();
+            System.out.println("Uniforms per frame: " + lastUniformsIssued + " issued, " + renderer.getUniformsSkipped() + " skipped");
+        }
+        if(RENDER_STATS_DEBUG && renderer.getEntitiesCulled()!=lastEntitiesCulled) {
+            lastEntitiesCulled = renderer.getEntitiesCulled();
+            System.out.println("Entities visible: " + renderer.getEntitiesVisible() + ", culled: " + lastEntitiesCulled);
+        }
     }
     /**
      * Cleans up resources used by the renderer and loader.
@@ -202,6 +244,27 @@ public class TestGame implements ILogic {
     @Override
     public void cleanup() {
         renderer.cleanup();
+        assets.cleanup();
         loader.cleanup();
     }
+    /**
+     * Adds an entity to the scene and to the renderer's retained render list, which draws it
+     * every frame and updates its transform only when it moves.
+     *
+     * @param entity The entity to add.
+     */
+    private void addEntity(Entity entity) {
+        entities.add(entity);
+        renderer.add(entity);
+    }
+    /**
+     * Reports an asset that failed to load; the rest of the scene keeps loading.
+     *
+     * @param e The cause of the failure.
+     * @return null, as no model is available.
+     */
+    private static Model loadFailed(Throwable e) {
+        e.printStackTrace();
+        return null;
+    }
 }
\ No newline at end of file